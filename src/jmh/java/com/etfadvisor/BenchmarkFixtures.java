@@ -0,0 +1,183 @@
+package com.etfadvisor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared inputs for the JMH suites, built from data/*_5y.csv and the recorded chart
+ * response in src/main/resources/fixtures (also used to prime the handler).
+ *
+ * Universes larger than the 15 data files reuse them with a rotated return sequence, and
+ * 20-year histories are extended by replaying each file's daily returns, so every ticker
+ * has a distinct but realistic path.
+ */
+final class BenchmarkFixtures {
+    
+    static final String SHORT = "short";
+    static final String TWENTY_YEARS = "20y";
+    
+    private static final int SHORT_DAYS = 260;
+    private static final int TWENTY_YEAR_DAYS = 20 * 252;
+    
+    private static List<PriceSeries> sources;
+    
+    private BenchmarkFixtures() {
+    }
+    
+    static Path dataDir() {
+        return Paths.get(System.getProperty("etf.data", "data"));
+    }
+    
+    static int historyDays(String history) {
+        switch (history) {
+            case SHORT: return SHORT_DAYS;
+            case TWENTY_YEARS: return TWENTY_YEAR_DAYS;
+            default: throw new IllegalArgumentException("Unknown history: " + history);
+        }
+    }
+    
+    static List<String> tickerNames(int count) {
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add("T" + i);
+        }
+        return names;
+    }
+    
+    /**
+     * One close series per ticker, each {@code days} long.
+     */
+    static PriceSeries[] universe(int tickers, int days) {
+        List<PriceSeries> base = sources();
+        PriceSeries[] universe = new PriceSeries[tickers];
+        for (int t = 0; t < tickers; t++) {
+            universe[t] = synthesize(base.get(t % base.size()), days, t / base.size());
+        }
+        return universe;
+    }
+    
+    /**
+     * Last 10 days of signals per ticker, as ReportRenderer receives them.
+     */
+    static Map<String, SignalBatch> reportHistory(Config config, int tickers) {
+        PriceSeries[] universe = universe(tickers, 240);
+        BuyScoreCalculator scoreCalc = new BuyScoreCalculator(config);
+        Map<String, SignalBatch> history = new LinkedHashMap<>();
+        
+        for (int t = 0; t < tickers; t++) {
+            String ticker = config.getTickers().get(t);
+            history.put(ticker, ETFAdvisorHandler.scoreRecentDays(ticker, universe[t], config, scoreCalc, null));
+        }
+        return history;
+    }
+    
+    /**
+     * The recorded one-year chart response for VOO.
+     */
+    static byte[] recordedChartResponse() {
+        try (InputStream in = BenchmarkFixtures.class.getResourceAsStream("/fixtures/VOO_chart_1y.json")) {
+            if (in == null) {
+                throw new IllegalStateException("Missing fixture fixtures/VOO_chart_1y.json");
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * A chart response in Yahoo's v8 layout (meta, timestamp, quote OHLCV, adjclose) for a series.
+     */
+    static byte[] chartResponse(String symbol, PriceSeries series) {
+        StringBuilder json = new StringBuilder(series.size() * 120 + 1024);
+        json.append("{\"chart\":{\"result\":[{\"meta\":{\"currency\":\"USD\",\"symbol\":\"").append(symbol)
+            .append("\",\"exchangeName\":\"PCX\",\"instrumentType\":\"ETF\",\"gmtoffset\":-18000,")
+            .append("\"timezone\":\"EST\",\"exchangeTimezoneName\":\"America/New_York\",\"regularMarketPrice\":")
+            .append(series.lastClose()).append(",\"previousClose\":").append(series.close(series.size() - 2))
+            .append(",\"priceHint\":2,\"dataGranularity\":\"1d\",\"range\":\"\"},\"timestamp\":[");
+        for (int i = 0; i < series.size(); i++) {
+            if (i > 0) json.append(',');
+            // 09:30 America/New_York, standard time
+            json.append(series.epochDay(i) * 86400L + 52200L);
+        }
+        json.append("],\"indicators\":{\"quote\":[{");
+        appendColumn(json, "open", series, 0.998);
+        json.append(',');
+        appendColumn(json, "high", series, 1.006);
+        json.append(',');
+        appendColumn(json, "close", series, 1.0);
+        json.append(',');
+        appendColumn(json, "low", series, 0.994);
+        json.append(",\"volume\":[");
+        for (int i = 0; i < series.size(); i++) {
+            if (i > 0) json.append(',');
+            json.append(1_000_000 + (i * 7919L) % 5_000_000);
+        }
+        json.append("]}],\"adjclose\":[{");
+        appendColumn(json, "adjclose", series, 1.0);
+        json.append("}]}}],\"error\":null}}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private static void appendColumn(StringBuilder json, String name, PriceSeries series, double factor) {
+        json.append('"').append(name).append("\":[");
+        for (int i = 0; i < series.size(); i++) {
+            if (i > 0) json.append(',');
+            json.append(series.close(i) * factor);
+        }
+        json.append(']');
+    }
+    
+    private static synchronized List<PriceSeries> sources() {
+        if (sources == null) {
+            try {
+                List<PriceSeries> loaded = new ArrayList<>();
+                for (String ticker : Backtester.listTickers(dataDir())) {
+                    loaded.add(Backtester.loadHistory(dataDir(), ticker));
+                }
+                if (loaded.isEmpty()) {
+                    throw new IllegalStateException("No *_5y.csv files in " + dataDir().toAbsolutePath());
+                }
+                sources = loaded;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return sources;
+    }
+    
+    /**
+     * A {@code days}-long path that replays the source's daily returns (rotated by
+     * {@code variant}), ending on the source's last date.
+     */
+    private static PriceSeries synthesize(PriceSeries source, int days, int variant) {
+        int n = source.size();
+        double[] closes = new double[days];
+        int[] epochDays = new int[days];
+        int rotation = (variant * 97) % (n - 1);
+        
+        closes[0] = source.close(0);
+        for (int i = 1; i < days; i++) {
+            int r = 1 + (i - 1 + rotation) % (n - 1);
+            closes[i] = closes[i - 1] * (source.close(r) / source.close(r - 1));
+        }
+        
+        // Trading dates: weekdays only, counting back from the source's last bar
+        int day = source.epochDay(n - 1);
+        for (int i = days - 1; i >= 0; i--) {
+            while (Math.floorMod(day + 3, 7) >= 5) { // epoch day 0 was a Thursday
+                day--;
+            }
+            epochDays[i] = day--;
+        }
+        return PriceSeries.of(epochDays, closes);
+    }
+}
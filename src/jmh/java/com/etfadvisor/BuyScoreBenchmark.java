@@ -0,0 +1,61 @@
+package com.etfadvisor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BuyScoreCalculator over precomputed indicators for every ticker-day.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class BuyScoreBenchmark {
+    
+    @Param({"1", "10", "100", "1000"})
+    public int tickers;
+    
+    @Param({BenchmarkFixtures.SHORT, BenchmarkFixtures.TWENTY_YEARS})
+    public String history;
+    
+    private BuyScoreCalculator buyScoreCalc;
+    private IndicatorCalculator.Indicators[] indicators;
+    
+    @Setup
+    public void setup() {
+        Config config = new Config();
+        buyScoreCalc = new BuyScoreCalculator(config);
+        
+        PriceSeries[] universe = BenchmarkFixtures.universe(tickers, BenchmarkFixtures.historyDays(history));
+        indicators = new IndicatorCalculator.Indicators[universe.length * universe[0].size()];
+        int k = 0;
+        for (PriceSeries series : universe) {
+            RollingIndicators rolling = new RollingIndicators(config);
+            for (int i = 0; i < series.size(); i++) {
+                rolling.push(series.close(i));
+                indicators[k++] = rolling.current();
+            }
+        }
+    }
+    
+    @Benchmark
+    public void scoreEveryDay(Blackhole bh) {
+        for (IndicatorCalculator.Indicators day : indicators) {
+            bh.consume(buyScoreCalc.calculate(day));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.etfadvisor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OhlcvCsvLoader over every data/*_5y.csv file (only Close, or every column), and its number
+ * parser against Double.parseDouble on the same close prices.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class CsvLoadBenchmark {
+    
+    @Param({"close", "all"})
+    public String columns;
+    
+    private List<Path> files;
+    private Set<OhlcvCsvLoader.Column> selected;
+    private byte[] closeText;
+    private int[] fieldStarts;
+    private String[] closeStrings;
+    
+    @Setup
+    public void setup() throws IOException {
+        files = new ArrayList<>();
+        for (String ticker : Backtester.listTickers(BenchmarkFixtures.dataDir())) {
+            files.add(BenchmarkFixtures.dataDir().resolve(ticker + "_5y.csv"));
+        }
+        selected = "close".equals(columns) ? EnumSet.of(OhlcvCsvLoader.Column.CLOSE) : null;
+        
+        // Close prices as text, in their CSV form (Double.toString round-trips them)
+        List<String> closes = new ArrayList<>();
+        for (Path file : files) {
+            PriceSeries series = OhlcvCsvLoader.load(file, EnumSet.of(OhlcvCsvLoader.Column.CLOSE)).closes();
+            for (int i = 0; i < series.size(); i++) {
+                closes.add(Double.toString(series.close(i)));
+            }
+        }
+        closeStrings = closes.toArray(new String[0]);
+        closeText = String.join(",", closes).getBytes(StandardCharsets.US_ASCII);
+        fieldStarts = new int[closeStrings.length + 1];
+        for (int i = 0; i < closeStrings.length; i++) {
+            fieldStarts[i + 1] = fieldStarts[i] + closeStrings[i].length() + 1;
+        }
+    }
+    
+    @Benchmark
+    public void loadDataDir(Blackhole bh) throws IOException {
+        for (Path file : files) {
+            bh.consume(OhlcvCsvLoader.load(file, selected));
+        }
+    }
+    
+    @Benchmark
+    public double parseDoubleHandRolled() {
+        double sum = 0;
+        for (int i = 0; i < closeStrings.length; i++) {
+            sum += OhlcvCsvLoader.parseDouble(closeText, fieldStarts[i], fieldStarts[i + 1] - 1);
+        }
+        return sum;
+    }
+    
+    @Benchmark
+    public double parseDoubleJdk() {
+        double sum = 0;
+        for (String close : closeStrings) {
+            sum += Double.parseDouble(close);
+        }
+        return sum;
+    }
+}
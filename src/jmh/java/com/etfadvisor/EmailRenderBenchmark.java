@@ -0,0 +1,46 @@
+package com.etfadvisor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTML report rendering for the handler's 10-day history (no SES call).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class EmailRenderBenchmark {
+    
+    @Param({"1", "10", "100", "1000"})
+    public int tickers;
+    
+    private ReportRenderer renderer;
+    private Map<String, SignalBatch> tickerHistory;
+    
+    @Setup
+    public void setup() {
+        Config config = new Config().withTickers(BenchmarkFixtures.tickerNames(tickers));
+        renderer = new ReportRenderer(config.getTickers());
+        tickerHistory = BenchmarkFixtures.reportHistory(config, tickers);
+    }
+    
+    @Benchmark
+    public String renderHtml() {
+        return renderer.renderToString("2026-01-02", tickerHistory);
+    }
+}
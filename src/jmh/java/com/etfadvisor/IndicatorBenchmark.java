@@ -0,0 +1,63 @@
+package com.etfadvisor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IndicatorCalculator (latest day only) and RollingIndicators (every day) across universes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class IndicatorBenchmark {
+    
+    @Param({"1", "10", "100", "1000"})
+    public int tickers;
+    
+    @Param({BenchmarkFixtures.SHORT, BenchmarkFixtures.TWENTY_YEARS})
+    public String history;
+    
+    private Config config;
+    private IndicatorCalculator indicatorCalc;
+    private PriceSeries[] universe;
+    
+    @Setup
+    public void setup() {
+        config = new Config();
+        indicatorCalc = new IndicatorCalculator(config);
+        universe = BenchmarkFixtures.universe(tickers, BenchmarkFixtures.historyDays(history));
+    }
+    
+    @Benchmark
+    public void calculateLatest(Blackhole bh) {
+        for (PriceSeries series : universe) {
+            bh.consume(indicatorCalc.calculateAll(series));
+        }
+    }
+    
+    @Benchmark
+    public void rollingEveryDay(Blackhole bh) {
+        for (PriceSeries series : universe) {
+            RollingIndicators rolling = new RollingIndicators(config);
+            for (int i = 0; i < series.size(); i++) {
+                rolling.push(series.close(i));
+                bh.consume(rolling.current());
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.etfadvisor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-series indicator columns (IndicatorKernels), scalar loops against the Vector API kernels.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class IndicatorKernelBenchmark {
+    
+    @Param({"1", "10", "100", "1000"})
+    public int tickers;
+    
+    @Param({BenchmarkFixtures.SHORT, BenchmarkFixtures.TWENTY_YEARS})
+    public String history;
+    
+    @Param({"scalar", "vector"})
+    public String kernel;
+    
+    private Config config;
+    private IndicatorKernels.Kernel impl;
+    private PriceSeries[] universe;
+    
+    @Setup
+    public void setup() {
+        config = new Config();
+        impl = "vector".equals(kernel) ? IndicatorKernels.defaultKernel() : IndicatorKernels.scalar();
+        if ("vector".equals(kernel) && !IndicatorKernels.isVectorized()) {
+            throw new IllegalStateException("jdk.incubator.vector not available");
+        }
+        universe = BenchmarkFixtures.universe(tickers, BenchmarkFixtures.historyDays(history));
+    }
+    
+    @Benchmark
+    public void columns(Blackhole bh) {
+        for (PriceSeries series : universe) {
+            bh.consume(IndicatorKernels.compute(impl, series, config));
+        }
+    }
+}
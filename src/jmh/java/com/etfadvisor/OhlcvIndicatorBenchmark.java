@@ -0,0 +1,64 @@
+package com.etfadvisor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OhlcvIndicators over every data/*_5y.csv file: all enabled indicators in one fused pass
+ * against one pass per indicator.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class OhlcvIndicatorBenchmark {
+    
+    @Param({"fused", "separate"})
+    public String passes;
+    
+    private Config config;
+    private Set<OhlcvIndicators.Indicator> indicators;
+    private List<OhlcvCsvLoader.Bars> universe;
+    
+    @Setup
+    public void setup() throws IOException {
+        config = new Config();
+        indicators = config.getIndicators();
+        universe = new ArrayList<>();
+        for (String ticker : Backtester.listTickers(BenchmarkFixtures.dataDir())) {
+            universe.add(OhlcvCsvLoader.load(BenchmarkFixtures.dataDir().resolve(ticker + "_5y.csv")));
+        }
+    }
+    
+    @Benchmark
+    public void dataDir(Blackhole bh) {
+        for (OhlcvCsvLoader.Bars bars : universe) {
+            if ("fused".equals(passes)) {
+                bh.consume(OhlcvIndicators.compute(bars, indicators, config));
+            } else {
+                for (OhlcvIndicators.Indicator indicator : indicators) {
+                    bh.consume(OhlcvIndicators.compute(bars, Collections.singleton(indicator), config));
+                }
+            }
+        }
+    }
+}
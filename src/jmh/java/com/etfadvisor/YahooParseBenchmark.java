@@ -0,0 +1,68 @@
+package com.etfadvisor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chart response parsing: the recorded one-year VOO response for "short" histories,
+ * and 20-year responses in the same layout built from the data files.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class YahooParseBenchmark {
+    
+    @Param({"1", "10", "100", "1000"})
+    public int tickers;
+    
+    @Param({BenchmarkFixtures.SHORT, BenchmarkFixtures.TWENTY_YEARS})
+    public String history;
+    
+    private byte[][] responses;
+    
+    @Setup
+    public void setup() {
+        // One body per distinct source file; larger universes parse them repeatedly
+        int distinct = Math.min(tickers, 15);
+        byte[][] bodies = new byte[distinct][];
+        if (BenchmarkFixtures.SHORT.equals(history)) {
+            byte[] recorded = BenchmarkFixtures.recordedChartResponse();
+            for (int i = 0; i < distinct; i++) {
+                bodies[i] = recorded;
+            }
+        } else {
+            PriceSeries[] universe = BenchmarkFixtures.universe(distinct, BenchmarkFixtures.historyDays(history));
+            for (int i = 0; i < distinct; i++) {
+                bodies[i] = BenchmarkFixtures.chartResponse("T" + i, universe[i]);
+            }
+        }
+        responses = new byte[tickers][];
+        for (int t = 0; t < tickers; t++) {
+            responses[t] = bodies[t % distinct];
+        }
+    }
+    
+    @Benchmark
+    public void parseToSeries(Blackhole bh) throws IOException {
+        for (byte[] body : responses) {
+            bh.consume(YahooChartParser.parse(new ByteArrayInputStream(body)).toSeries(Integer.MAX_VALUE));
+        }
+    }
+}
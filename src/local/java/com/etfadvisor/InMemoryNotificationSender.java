@@ -0,0 +1,47 @@
+package com.etfadvisor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps sent notifications in memory instead of emailing them, for local runs.
+ * An optional per-send delay stands in for SES latency.
+ */
+public class InMemoryNotificationSender implements NotificationSender {
+    
+    private final List<Notification> sent = new ArrayList<>();
+    private final long delayMs;
+    
+    public InMemoryNotificationSender() {
+        this(0);
+    }
+    
+    public InMemoryNotificationSender(long delayMs) {
+        this.delayMs = delayMs;
+    }
+    
+    @Override
+    public void send(Notification notification) throws InterruptedException {
+        if (delayMs > 0) {
+            Thread.sleep(delayMs);
+        }
+        synchronized (sent) {
+            sent.add(notification);
+        }
+    }
+    
+    /**
+     * Notifications sent so far, oldest first.
+     */
+    public List<Notification> getSent() {
+        synchronized (sent) {
+            return new ArrayList<>(sent);
+        }
+    }
+    
+    public void clear() {
+        synchronized (sent) {
+            sent.clear();
+        }
+    }
+}
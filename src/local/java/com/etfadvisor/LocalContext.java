@@ -0,0 +1,47 @@
+package com.etfadvisor;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lambda Context for running handler code from the command line; logs go to stdout.
+ */
+final class LocalContext implements Context {
+    
+    private final LambdaLogger logger;
+    
+    /**
+     * @param verbose Print log lines (false = discard them)
+     */
+    LocalContext(boolean verbose) {
+        this.logger = new LambdaLogger() {
+            @Override
+            public void log(String message) {
+                if (verbose) {
+                    System.out.println(message);
+                }
+            }
+            
+            @Override
+            public void log(byte[] message) {
+                log(new String(message, StandardCharsets.UTF_8));
+            }
+        };
+    }
+    
+    @Override public String getAwsRequestId() { return "local"; }
+    @Override public String getLogGroupName() { return null; }
+    @Override public String getLogStreamName() { return null; }
+    @Override public String getFunctionName() { return "etf-advisor-local"; }
+    @Override public String getFunctionVersion() { return "$LATEST"; }
+    @Override public String getInvokedFunctionArn() { return null; }
+    @Override public CognitoIdentity getIdentity() { return null; }
+    @Override public ClientContext getClientContext() { return null; }
+    @Override public int getRemainingTimeInMillis() { return Integer.MAX_VALUE; }
+    @Override public int getMemoryLimitInMB() { return 0; }
+    @Override public LambdaLogger getLogger() { return logger; }
+}
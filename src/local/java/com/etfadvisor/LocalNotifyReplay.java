@@ -0,0 +1,55 @@
+package com.etfadvisor;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Replays the CSVs through a StreamingScorer and sends every tier crossing as an alert through a
+ * NotificationDispatcher to an InMemoryNotificationSender with the given send latency, then
+ * prints how the alerts were coalesced.
+ *
+ * Usage: mvn -Plocal package; java -cp target/etf-advisor-1.0.0.jar com.etfadvisor.LocalNotifyReplay
+ *          [--data data] [--days-per-second 0] [--ticks-per-day 1] [--notify-latency-ms 50]
+ */
+public class LocalNotifyReplay {
+    
+    public static void main(String[] args) throws Exception {
+        Path dataDir = Paths.get("data");
+        double daysPerSecond = 0;
+        int ticksPerDay = 1;
+        long notifyLatencyMs = 50;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--data": dataDir = Paths.get(args[++i]); break;
+                case "--days-per-second": daysPerSecond = Double.parseDouble(args[++i]); break;
+                case "--ticks-per-day": ticksPerDay = Math.max(1, Integer.parseInt(args[++i])); break;
+                case "--notify-latency-ms": notifyLatencyMs = Long.parseLong(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        notifyReplay(new Config(), PricePanel.loadCsv(dataDir), ticksPerDay, daysPerSecond, notifyLatencyMs);
+    }
+    
+    private static void notifyReplay(Config config, PricePanel panel, int ticksPerDay, double daysPerSecond,
+                                     long latencyMs) throws InterruptedException {
+        InMemoryNotificationSender sink = new InMemoryNotificationSender(latencyMs);
+        String group = config.getRecipientGroups().keySet().iterator().next();
+        try (NotificationDispatcher dispatcher = new NotificationDispatcher(sink, config)) {
+            StreamingScorer scorer = new StreamingScorer(config, crossing -> {
+                try {
+                    dispatcher.submitAlert(group, crossing.getTicker(), "ETF Advisor — tier changes", crossing.toString());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            long start = System.nanoTime();
+            StreamingScorer.replay(panel, scorer, ticksPerDay, daysPerSecond);
+            double scoredMs = (System.nanoTime() - start) / 1e6;
+            dispatcher.awaitIdle(Duration.ofMinutes(10));
+            System.out.printf("ticks=%d crossings=%d scored_ms=%.0f drained_ms=%.0f | submitted=%d coalesced=%d sent=%d failed=%d%n",
+                scorer.getTicks(), scorer.getCrossings(), scoredMs, (System.nanoTime() - start) / 1e6,
+                dispatcher.getSubmitted(), dispatcher.getCoalesced(), dispatcher.getSent(), dispatcher.getFailed());
+        }
+    }
+}
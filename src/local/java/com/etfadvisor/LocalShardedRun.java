@@ -0,0 +1,101 @@
+package com.etfadvisor;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Runs {@link ShardedRun}'s workers as in-process threads, optionally against YahooStubServer.
+ *
+ * Usage: mvn -Plocal package; java -cp target/etf-advisor-1.0.0.jar com.etfadvisor.LocalShardedRun
+ *          [--shards 8] [--parallel 8] [--tickers 5000 | --tickers-file tickers.txt] [--stub-latency-ms 50]
+ *          [--out report.html] [--verbose]
+ */
+public class LocalShardedRun {
+    
+    public static void main(String[] args) throws Exception {
+        int shards = 8;
+        int parallel = -1;
+        int syntheticTickers = 0;
+        Path tickersFile = null;
+        int stubLatencyMs = -1;
+        Path out = null;
+        boolean verbose = false;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--shards": shards = Integer.parseInt(args[++i]); break;
+                case "--parallel": parallel = Integer.parseInt(args[++i]); break;
+                case "--tickers": syntheticTickers = Integer.parseInt(args[++i]); break;
+                case "--tickers-file": tickersFile = Paths.get(args[++i]); break;
+                case "--stub-latency-ms": stubLatencyMs = Integer.parseInt(args[++i]); break;
+                case "--out": out = Paths.get(args[++i]); break;
+                case "--verbose": verbose = true; break;
+                default: throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        if (parallel < 1) {
+            parallel = shards;
+        }
+        
+        // Universe: TICKERS, a file (one per line or comma-separated), or synthetic symbols for the stub
+        Config config = new Config();
+        if (tickersFile != null) {
+            List<String> tickers = Files.readAllLines(tickersFile).stream()
+                .flatMap(line -> List.of(line.split(",")).stream())
+                .map(String::trim).map(String::toUpperCase).filter(s -> !s.isEmpty())
+                .collect(Collectors.toList());
+            config = config.withTickers(tickers);
+        } else if (syntheticTickers > 0) {
+            List<String> tickers = new ArrayList<>(syntheticTickers);
+            for (int i = 0; i < syntheticTickers; i++) {
+                tickers.add("T" + i);
+            }
+            config = config.withTickers(tickers);
+        }
+        
+        YahooStubServer stub = null;
+        if (stubLatencyMs >= 0) {
+            stub = new YahooStubServer(0, stubLatencyMs, 0, 0, 0, 0, 1, 42);
+            stub.start();
+            YahooFinanceHelper.configure(new HttpFetcher(HttpFetcher.Policy.from(config)), stub.getBaseUrl());
+            System.out.println("Fetching from stub at " + stub.getBaseUrl());
+        }
+        
+        try {
+            RunMetrics metrics = new RunMetrics();
+            double[] shardMs = new double[shards];
+            ETFAdvisorHandler.TickerResults results = ShardedRun.run(config, shards, parallel, metrics,
+                new LocalContext(verbose), shardMs);
+                
+            double[] sortedShardMs = shardMs.clone();
+            Arrays.sort(sortedShardMs);
+            System.out.printf("tickers=%d shards=%d parallel=%d scored=%d failed=%d elapsed_ms=%.0f "
+                    + "shard_ms_min=%.0f shard_ms_max=%.0f%n",
+                config.getTickers().size(), shards, parallel, results.getHistory().size(), results.getErrors().size(),
+                metrics.getElapsedMs(), sortedShardMs[0], sortedShardMs[sortedShardMs.length - 1]);
+            Map<String, Object> summary = metrics.summary(List.of());
+            System.out.println("stages_ms=" + summary.get("stages_ms") + " counters=" + summary.get("counters"));
+            
+            if (out != null) {
+                try (OutputStream stream = Files.newOutputStream(out)) {
+                    new ReportRenderer(config.getTickers()).render(
+                        LocalDate.now().format(DateTimeFormatter.ISO_DATE), results.getHistory(), stream);
+                }
+                System.out.println("Report written to " + out);
+            }
+        } finally {
+            if (stub != null) {
+                stub.stop();
+            }
+        }
+    }
+}
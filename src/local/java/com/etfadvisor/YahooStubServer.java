@@ -0,0 +1,251 @@
+package com.etfadvisor;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the Yahoo chart endpoint that serves the bundled fixture with injected
+ * latency, slow tail requests, 5xx errors and 429 throttling, for exercising HttpFetcher.
+ * With --drive N it starts the server, points YahooFinanceHelper at it (using the HTTP_*
+ * settings from the environment) and fetches N tickers concurrently. Tests script the next
+ * replies with {@link #enqueue}.
+ *
+ * Usage (mvn -Plocal package): java -cp target/classes com.etfadvisor.YahooStubServer [--port 0] [--latency-ms 20]
+ *          [--tail-rate 0.05] [--tail-ms 2000] [--error-rate 0.1] [--throttle-rate 0.05]
+ *          [--retry-after-s 1] [--seed 42] [--drive 50]
+ */
+public class YahooStubServer {
+    
+    private final HttpServer server;
+    private final byte[] chart;
+    private final SplittableRandom random;
+    
+    private final int latencyMs;
+    private final double tailRate;
+    private final int tailMs;
+    private final double errorRate;
+    private final double throttleRate;
+    private final int retryAfterSeconds;
+    
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong throttles = new AtomicLong();
+    
+    // Status and delay of the next requests, served in order before the random ones
+    private final Deque<int[]> script = new ArrayDeque<>();
+    
+    public YahooStubServer(int port, int latencyMs, double tailRate, int tailMs, double errorRate,
+                           double throttleRate, int retryAfterSeconds, long seed) throws IOException {
+        this.latencyMs = latencyMs;
+        this.tailRate = tailRate;
+        this.tailMs = tailMs;
+        this.errorRate = errorRate;
+        this.throttleRate = throttleRate;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.random = new SplittableRandom(seed);
+        try (InputStream in = YahooStubServer.class.getResourceAsStream(Primer.CHART_FIXTURE)) {
+            if (in == null) {
+                throw new IOException("Missing fixture " + Primer.CHART_FIXTURE);
+            }
+            this.chart = in.readAllBytes();
+        }
+        
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext("/v8/finance/chart/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "yahoo-stub");
+            t.setDaemon(true);
+            return t;
+        }));
+    }
+    
+    public void start() {
+        server.start();
+    }
+    
+    public void stop() {
+        server.stop(0);
+    }
+    
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+    
+    /**
+     * Answers the next request not yet answered by the script with {@code status} (200 serves the
+     * fixture, 429 sets Retry-After) after {@code delayMs}.
+     */
+    public void enqueue(int status, int delayMs) {
+        synchronized (script) {
+            script.add(new int[] {status, delayMs});
+        }
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        int[] scripted;
+        synchronized (script) {
+            scripted = script.poll();
+        }
+        int status;
+        int delayMs;
+        if (scripted != null) {
+            status = scripted[0];
+            delayMs = scripted[1];
+        } else {
+            double latencyRoll;
+            double errorRoll;
+            synchronized (random) {
+                latencyRoll = random.nextDouble();
+                errorRoll = random.nextDouble();
+            }
+            delayMs = latencyRoll < tailRate ? tailMs : latencyMs;
+            status = errorRoll < throttleRate ? 429 : errorRoll < throttleRate + errorRate ? 503 : 200;
+        }
+        
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        try (exchange) {
+            if (status == 429) {
+                throttles.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", Integer.toString(retryAfterSeconds));
+                respond(exchange, 429, "Too Many Requests".getBytes());
+            } else if (status != 200) {
+                errors.incrementAndGet();
+                respond(exchange, status, "Service Unavailable".getBytes());
+            } else {
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                respond(exchange, 200, chart);
+            }
+        } catch (IOException e) {
+            // Client gave up (timeout or losing hedge)
+        }
+    }
+    
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+    
+    public long getRequests() { return requests.get(); }
+    public long getErrors() { return errors.get(); }
+    public long getThrottles() { return throttles.get(); }
+    
+    public static void main(String[] args) throws Exception {
+        int port = 0;
+        int latencyMs = 20;
+        double tailRate = 0.05;
+        int tailMs = 2000;
+        double errorRate = 0.1;
+        double throttleRate = 0.05;
+        int retryAfterSeconds = 1;
+        long seed = 42;
+        int drive = 0;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port": port = Integer.parseInt(args[++i]); break;
+                case "--latency-ms": latencyMs = Integer.parseInt(args[++i]); break;
+                case "--tail-rate": tailRate = Double.parseDouble(args[++i]); break;
+                case "--tail-ms": tailMs = Integer.parseInt(args[++i]); break;
+                case "--error-rate": errorRate = Double.parseDouble(args[++i]); break;
+                case "--throttle-rate": throttleRate = Double.parseDouble(args[++i]); break;
+                case "--retry-after-s": retryAfterSeconds = Integer.parseInt(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--drive": drive = Integer.parseInt(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        
+        YahooStubServer stub = new YahooStubServer(port, latencyMs, tailRate, tailMs, errorRate,
+            throttleRate, retryAfterSeconds, seed);
+        stub.start();
+        System.out.println("Serving " + Primer.CHART_FIXTURE + " at " + stub.getBaseUrl());
+        if (drive <= 0) {
+            Thread.currentThread().join();
+            return;
+        }
+        
+        try {
+            drive(stub, drive, new Config());
+        } finally {
+            stub.stop();
+        }
+    }
+    
+    /**
+     * Fetches {@code tickers} histories through the stub and prints success rate, latency and retry counts.
+     */
+    private static void drive(YahooStubServer stub, int tickers, Config config) throws InterruptedException {
+        HttpFetcher fetcher = new HttpFetcher(HttpFetcher.Policy.from(config));
+        YahooFinanceHelper.configure(fetcher, stub.getBaseUrl());
+        
+        ExecutorService pool = Executors.newFixedThreadPool(config.getFetchConcurrency());
+        List<CompletableFuture<Double>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < tickers; i++) {
+            String ticker = "T" + i;
+            results.add(CompletableFuture.supplyAsync(() -> {
+                long t0 = System.nanoTime();
+                try {
+                    YahooFinanceHelper.fetchHistoricalData(ticker, 230, null, (Duration) null);
+                    return (System.nanoTime() - t0) / 1e6;
+                } catch (Exception e) {
+                    System.out.println(ticker + " failed: " + e.getMessage());
+                    return Double.NaN;
+                }
+            }, pool));
+        }
+        
+        List<Double> latencies = new ArrayList<>();
+        int failed = 0;
+        for (CompletableFuture<Double> result : results) {
+            double ms = result.join();
+            if (Double.isNaN(ms)) {
+                failed++;
+            } else {
+                latencies.add(ms);
+            }
+        }
+        double elapsedMs = (System.nanoTime() - start) / 1e6;
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.SECONDS);
+        
+        double[] sorted = latencies.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        System.out.printf("tickers=%d ok=%d failed=%d elapsed_ms=%.0f p50_ms=%.0f p95_ms=%.0f max_ms=%.0f%n",
+            tickers, sorted.length, failed, elapsedMs, percentile(sorted, 0.50), percentile(sorted, 0.95),
+            percentile(sorted, 1.0));
+        System.out.printf("server: requests=%d errors=%d throttled=%d | client: attempts=%d retries=%d hedges=%d throttled=%d aborted=%d%n",
+            stub.getRequests(), stub.getErrors(), stub.getThrottles(), fetcher.getAttempts(),
+            fetcher.getRetries(), fetcher.getHedges(), fetcher.getThrottled(), fetcher.getAborted());
+    }
+    
+    private static double percentile(double[] sorted, double p) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,246 @@
+package com.etfadvisor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the production scoring path (RollingIndicators + BuyScoreCalculator)
+ * over every trading day in data/*_5y.csv and writes results/*_backtest_results.csv.
+ * Replaces the per-day loop in backtest_historical.ipynb.
+ *
+ * Usage: Backtester [--data DIR] [--out DIR] [--tickers VOO,QQQ,...]
+ */
+public class Backtester {
+    
+    static final int MIN_DAYS_NEEDED = 220;
+    static final double BASELINE_DCA_USD = 200.0;
+    
+    static final String CSV_SUFFIX = "_5y.csv";
+    static final String ARCHIVE_SUFFIX = "_5y" + PriceArchive.FILE_SUFFIX;
+    private static final String RESULT_HEADER =
+        "date,ticker,close,sma_200,drawdown_6m,zscore,buy_score,tier,trend_score,drawdown_score,zscore_score,suggested_buy_usd";
+    
+    private final Config config;
+    private final BuyScoreCalculator buyScoreCalc;
+    
+    public Backtester(Config config) {
+        this.config = config;
+        this.buyScoreCalc = new BuyScoreCalculator(config);
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Path dataDir = Paths.get("data");
+        Path outDir = Paths.get("results");
+        List<String> tickers = null;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--data": dataDir = Paths.get(args[++i]); break;
+                case "--out": outDir = Paths.get(args[++i]); break;
+                case "--tickers": tickers = Arrays.stream(args[++i].split(","))
+                    .map(String::trim).map(String::toUpperCase).filter(s -> !s.isEmpty())
+                    .collect(Collectors.toList()); break;
+                default: throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        if (tickers == null) {
+            tickers = listTickers(dataDir);
+        }
+        Files.createDirectories(outDir);
+        
+        long start = System.nanoTime();
+        List<TickerSummary> summaries = new Backtester(new Config()).runAll(tickers, dataDir, outDir);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        
+        for (TickerSummary s : summaries) {
+            System.out.println(s);
+        }
+        System.out.printf("Backtested %d tickers in %d ms%n", summaries.size(), elapsedMs);
+    }
+    
+    /**
+     * Backtest all tickers in parallel (one task per ticker). Results are returned in input order.
+     */
+    public List<TickerSummary> runAll(List<String> tickers, Path dataDir, Path outDir) {
+        return tickers.parallelStream()
+            .map(ticker -> {
+                try {
+                    return run(ticker, dataFile(dataDir, ticker), outDir.resolve(ticker + "_backtest_results.csv"));
+                } catch (IOException e) {
+                    return TickerSummary.failed(ticker, e.getMessage());
+                }
+            })
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Walk every trading day from MIN_DAYS_NEEDED onward and write one result row per day.
+     */
+    public TickerSummary run(String ticker, Path dataFile, Path resultFile) throws IOException {
+        PriceSeries closes = load(dataFile);
+        
+        if (closes.size() <= MIN_DAYS_NEEDED) {
+            return TickerSummary.failed(ticker, "Insufficient data: " + closes.size() + " rows (need " + MIN_DAYS_NEEDED + ")");
+        }
+        
+        int[] tierCounts = new int[Tier.values().length];
+        double totalBuyUsd = 0.0;
+        
+        try (BufferedWriter out = Files.newBufferedWriter(resultFile, StandardCharsets.UTF_8)) {
+            out.write(RESULT_HEADER);
+            out.write('\n');
+            
+            StringBuilder row = new StringBuilder(256);
+            RollingIndicators rolling = new RollingIndicators(config);
+            for (int i = 0; i < closes.size(); i++) {
+                rolling.push(closes.close(i));
+                if (i < MIN_DAYS_NEEDED) {
+                    continue;
+                }
+                IndicatorCalculator.Indicators indicators = rolling.current();
+                BuyScoreCalculator.BuyScoreResult score = buyScoreCalc.calculate(indicators);
+                double suggestedBuy = suggestedBuyUsd(score.getTier());
+                
+                tierCounts[score.getTier().ordinal()]++;
+                totalBuyUsd += suggestedBuy;
+                
+                row.setLength(0);
+                row.append(closes.date(i)).append(',')
+                   .append(ticker).append(',')
+                   .append(formatDouble(indicators.getCloseToday())).append(',')
+                   .append(indicators.getSma200() != null ? formatDouble(indicators.getSma200()) : "").append(',')
+                   .append(formatDouble(indicators.getDrawdown6m())).append(',')
+                   .append(formatDouble(indicators.getZscore())).append(',')
+                   .append(score.getBuyScore()).append(',')
+                   .append(score.getTier()).append(',')
+                   .append(formatDouble(score.getTrendScore())).append(',')
+                   .append(formatDouble(score.getDrawdownScore())).append(',')
+                   .append(formatDouble(score.getZscoreScore())).append(',')
+                   .append(formatDouble(suggestedBuy)).append('\n');
+                out.append(row);
+            }
+        }
+        
+        return new TickerSummary(ticker, closes.size() - MIN_DAYS_NEEDED, tierCounts, totalBuyUsd, null);
+    }
+    
+    /**
+     * Baseline DCA scaled by tier: STRONG_BUY 2.5x, BUY 1.5x, DCA_ONLY 1x, WAIT nothing.
+     */
+    static double suggestedBuyUsd(Tier tier) {
+        return BASELINE_DCA_USD * tier.getBuyMultiplier();
+    }
+    
+    /**
+     * Loads Date and Close columns from a yfinance CSV export (oldest first).
+     * Dates like "2021-01-04 00:00:00-05:00" are truncated to the calendar date;
+     * rows without a close are skipped.
+     */
+    static PriceSeries loadCsv(Path csvFile) throws IOException {
+        return OhlcvCsvLoader.load(csvFile, EnumSet.of(OhlcvCsvLoader.Column.CLOSE)).closes();
+    }
+    
+    /**
+     * Closes from a price archive (*.pcol) or a yfinance CSV export, by file name.
+     */
+    static PriceSeries load(Path dataFile) throws IOException {
+        if (dataFile.getFileName().toString().endsWith(PriceArchive.FILE_SUFFIX)) {
+            return PriceArchive.open(dataFile).closes();
+        }
+        return loadCsv(dataFile);
+    }
+    
+    /**
+     * A ticker's history file: the *_5y.pcol archive if there is one, else the *_5y.csv export.
+     */
+    static Path dataFile(Path dataDir, String ticker) {
+        Path archive = dataDir.resolve(ticker + ARCHIVE_SUFFIX);
+        return Files.exists(archive) ? archive : dataDir.resolve(ticker + CSV_SUFFIX);
+    }
+    
+    /**
+     * Closes for a ticker from the data directory (archive preferred over CSV).
+     */
+    static PriceSeries loadHistory(Path dataDir, String ticker) throws IOException {
+        return load(dataFile(dataDir, ticker));
+    }
+    
+    /**
+     * Ticker symbols for every *_5y.csv or *_5y.pcol file in the data directory, sorted.
+     */
+    public static List<String> listTickers(Path dataDir) throws IOException {
+        Set<String> tickers = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dataDir, "*_5y.{csv,pcol}")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String suffix = name.endsWith(CSV_SUFFIX) ? CSV_SUFFIX : ARCHIVE_SUFFIX;
+                tickers.add(name.substring(0, name.length() - suffix.length()));
+            }
+        }
+        return new ArrayList<>(tickers);
+    }
+    
+    /**
+     * Formats like Python's float repr (as pandas writes it), so output diffs cleanly
+     * against the notebook's result files.
+     */
+    static String formatDouble(double value) {
+        String s = Double.toString(value);
+        if (s.indexOf('E') < 0) {
+            return s;
+        }
+        String plain = new BigDecimal(s).toPlainString();
+        return plain.indexOf('.') < 0 ? plain + ".0" : plain;
+    }
+    
+    /**
+     * Per-ticker outcome of a backtest run.
+     */
+    public static class TickerSummary {
+        private final String ticker;
+        private final int days;
+        private final int[] tierCounts;
+        private final double totalBuyUsd;
+        private final String error;
+        
+        public TickerSummary(String ticker, int days, int[] tierCounts, double totalBuyUsd, String error) {
+            this.ticker = ticker;
+            this.days = days;
+            this.tierCounts = tierCounts;
+            this.totalBuyUsd = totalBuyUsd;
+            this.error = error;
+        }
+        
+        static TickerSummary failed(String ticker, String error) {
+            return new TickerSummary(ticker, 0, new int[Tier.values().length], 0.0, error);
+        }
+        
+        public String getTicker() { return ticker; }
+        public int getDays() { return days; }
+        public int[] getTierCounts() { return tierCounts; }
+        public double getTotalBuyUsd() { return totalBuyUsd; }
+        public String getError() { return error; }
+        
+        @Override
+        public String toString() {
+            if (error != null) {
+                return String.format("%-6s FAILED: %s", ticker, error);
+            }
+            return String.format("%-6s %4d days | STRONG_BUY %4d | BUY %4d | DCA_ONLY %4d | WAIT %4d | suggested $%,.0f",
+                ticker, days, tierCounts[0], tierCounts[1], tierCounts[2], tierCounts[3], totalBuyUsd);
+        }
+    }
+}
@@ -3,52 +3,60 @@ package com.etfadvisor;
 public class BuyScoreCalculator {
     
     private final Config config;
+    private final ScoringFormula formula;
+    
+    /**
+     * @throws IllegalArgumentException if the config's SCORE_FORMULA does not compile
+     */
     public BuyScoreCalculator(Config config) {
         this.config = config;
+        this.formula = ScoringFormula.of(config.getScoreFormula());
     }
     
     /**
-     * Pasted from backtest_historical.ipynb
+     * Scores with the configured formula; the default (ScoringFormula.DEFAULT) is the one
+     * pasted from backtest_historical.ipynb.
      */
     public BuyScoreResult calculate(IndicatorCalculator.Indicators indicators) {
-        double closeToday = indicators.getCloseToday();
         Double sma200 = indicators.getSma200();
-        double drawdown6m = indicators.getDrawdown6m();
-        double zscore = indicators.getZscore();
-        
-        double trendScore = (sma200 != null && closeToday > sma200) ? 1.0 : 0.3;
-        double dd = Math.abs(Math.min(drawdown6m, 0));
-        double drawdownScore = Math.max(0, Math.min(1, dd / config.getDrawdownMax()));
-        double z = Math.abs(Math.min(zscore, 0));
-        double zscoreScore = Math.max(0, Math.min(1, z / config.getZscoreMax()));
+        double[] components = new double[ScoringFormula.COMPONENTS.size()];
+        int buyScore = ScoringFormula.toScore(formula.evaluate(indicators.getCloseToday(),
+            sma200 != null ? sma200 : Double.NaN, indicators.getDrawdown6m(), indicators.getZscore(),
+            config.getDrawdownMax(), config.getZscoreMax(), components));
         
-        // Combine with weights: 25% trend, 45% drawdown, 30% z-score
-        double baseScore = 100 * (0.25 * trendScore + 0.45 * drawdownScore + 0.30 * zscoreScore);
-        int buyScore = (int) Math.max(0, Math.min(100, baseScore));
+        Tier tier = Tier.of(buyScore, config);
         
-        String tier;
-        if (buyScore >= config.getTierStrongBuy()) {
-            tier = "STRONG_BUY";
-        } else if (buyScore >= config.getTierBuy()) {
-            tier = "BUY";
-        } else if (buyScore >= config.getTierDcaOnly()) {
-            tier = "DCA_ONLY";
-        } else {
-            tier = "WAIT";
-        }
-        
-        return new BuyScoreResult(buyScore, tier, trendScore, drawdownScore, zscoreScore);
+        return new BuyScoreResult(buyScore, tier, components[0], components[1], components[2]);
+    }
+    
+    /**
+     * Just the 0-100 score for one day's inputs (sma NaN when not available), without allocating.
+     * @param components Scratch of length ScoringFormula.COMPONENTS.size(); receives the components
+     */
+    public int score(double closeToday, double sma200, double drawdown6m, double zscore, double[] components) {
+        return ScoringFormula.toScore(formula.evaluate(closeToday, sma200, drawdown6m, zscore,
+            config.getDrawdownMax(), config.getZscoreMax(), components));
+    }
+    
+    public ScoringFormula getFormula() { return formula; }
+    
+    /**
+     * How far below zero a value is, as a fraction of max (0..1).
+     */
+    static double dipScore(double value, double max) {
+        double dip = Math.abs(Math.min(value, 0));
+        return Math.max(0, Math.min(1, dip / max));
     }
     
 
     public static class BuyScoreResult {
         private final int buyScore;
-        private final String tier;
+        private final Tier tier;
         private final double trendScore;
         private final double drawdownScore;
         private final double zscoreScore;
         
-        public BuyScoreResult(int buyScore, String tier, double trendScore, 
+        public BuyScoreResult(int buyScore, Tier tier, double trendScore, 
                             double drawdownScore, double zscoreScore) {
             this.buyScore = buyScore;
             this.tier = tier;
@@ -58,7 +66,7 @@ public class BuyScoreCalculator {
         }
         
         public int getBuyScore() { return buyScore; }
-        public String getTier() { return tier; }
+        public Tier getTier() { return tier; }
         public double getTrendScore() { return trendScore; }
         public double getDrawdownScore() { return drawdownScore; }
         public double getZscoreScore() { return zscoreScore; }
@@ -1,7 +1,12 @@
 package com.etfadvisor;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -18,15 +23,60 @@ public class Config {
     private final int lookbackHighDays;
     private final int smaDays;
     
+    // Extra indicators (see OhlcvIndicators)
+    private final Set<OhlcvIndicators.Indicator> indicators;
+    private final int emaDays;
+    private final int rsiDays;
+    private final int atrDays;
+    private final int bollingerDays;
+    private final double bollingerK;
+    private final int volumeZscoreWindow;
+    
     // Buy Score parameters
     private final double drawdownMax;
     private final double zscoreMax;
+    // Expression combining the inputs into the score (see ScoringFormula)
+    private final String scoreFormula;
     
     // Buy Score tier thresholds
     private final int tierStrongBuy;
     private final int tierBuy;
     private final int tierDcaOnly;
     
+    // Fetch pipeline
+    private final int fetchConcurrency;
+    private final int fetchTimeoutSeconds;
+    
+    // Local price cache
+    private final String priceCacheDir;
+    private final String priceCacheSeedDir;
+    
+    // Computed indicators and scores (see ScoreCache)
+    private final int scoreCacheEntries;
+    private final String scoreCacheFile;
+    
+    // Cold start
+    private final boolean primeOnInit;
+    
+    // HTTP resilience (see HttpFetcher)
+    private final int httpConnectTimeoutMs;
+    private final int httpRequestTimeoutMs;
+    private final int httpMaxAttempts;
+    private final int httpBackoffBaseMs;
+    private final int httpBackoffMaxMs;
+    private final int httpHedgeDelayMs;
+    private final double httpRatePerSecond;
+    private final int httpRateBurst;
+    private final String yahooBaseUrl;
+    
+    // Notifications (see NotificationDispatcher)
+    private final Map<String, List<String>> recipientGroups;
+    private final List<String> alertGroups;
+    private final int notifyQueueCapacity;
+    private final int notifySenders;
+    private final int notifyLingerMs;
+    private final int notifyDrainTimeoutSeconds;
+    
     public Config() {
         String tickersStr = System.getenv("TICKERS");
         if (tickersStr == null || tickersStr.isEmpty()) {
@@ -41,17 +91,147 @@ public class Config {
         
         // Algorithm parameters (with defaults from notebook)
         this.zscoreWindow = getIntEnv("ZSCORE_WINDOW", 30);
-        this.lookbackHighDays = getIntEnv("LOOKBACK_HIGH_DAYS", 126);
+        this.lookbackHighDays = Math.max(1, getIntEnv("LOOKBACK_HIGH_DAYS", 126));
         this.smaDays = getIntEnv("SMA_DAYS", 200);
         
+        // Indicators computed by the fused OHLCV pass (comma-separated keys, default all)
+        // and their windows
+        String indicatorsStr = System.getenv("INDICATORS");
+        this.indicators = indicatorsStr != null && !indicatorsStr.isBlank()
+            ? parseIndicators(indicatorsStr)
+            : Collections.unmodifiableSet(EnumSet.allOf(OhlcvIndicators.Indicator.class));
+        this.emaDays = Math.max(1, getIntEnv("EMA_DAYS", 50));
+        this.rsiDays = Math.max(1, getIntEnv("RSI_DAYS", 14));
+        this.atrDays = Math.max(1, getIntEnv("ATR_DAYS", 14));
+        this.bollingerDays = Math.max(1, getIntEnv("BOLLINGER_DAYS", 20));
+        this.bollingerK = getDoubleEnv("BOLLINGER_K", 2.0);
+        this.volumeZscoreWindow = Math.max(1, getIntEnv("VOLUME_ZSCORE_WINDOW", 20));
+        
         // Buy Score parameters (with defaults from notebook)
         this.drawdownMax = getDoubleEnv("DRAWDOWN_MAX", 0.12);
         this.zscoreMax = getDoubleEnv("ZSCORE_MAX", 2.5);
+        String scoreFormula = System.getenv("SCORE_FORMULA");
+        this.scoreFormula = scoreFormula != null && !scoreFormula.isBlank() ? scoreFormula.trim() : ScoringFormula.DEFAULT;
         
         // Buy Score tier thresholds (with defaults from notebook)
         this.tierStrongBuy = getIntEnv("TIER_STRONG_BUY", 75);
         this.tierBuy = getIntEnv("TIER_BUY", 55);
         this.tierDcaOnly = getIntEnv("TIER_DCA_ONLY", 35);
+        
+        // Max tickers fetched/scored at once, and per-ticker time limit
+        this.fetchConcurrency = Math.max(1, getIntEnv("FETCH_CONCURRENCY", 8));
+        this.fetchTimeoutSeconds = Math.max(1, getIntEnv("FETCH_TIMEOUT_SECONDS", 30));
+        
+        // Price cache directory (empty = disabled) and optional CSV directory to seed it from
+        String cacheDir = System.getenv("PRICE_CACHE_DIR");
+        this.priceCacheDir = cacheDir != null ? cacheDir.trim() : "/tmp/etf-price-cache";
+        this.priceCacheSeedDir = System.getenv("PRICE_CACHE_SEED_DIR");
+        
+        // Max cached (ticker, day) scores (0 = disabled) and optional file to keep them in
+        this.scoreCacheEntries = Math.max(0, getIntEnv("SCORE_CACHE_ENTRIES", 50000));
+        String scoreCacheFile = System.getenv("SCORE_CACHE_FILE");
+        this.scoreCacheFile = scoreCacheFile != null ? scoreCacheFile.trim() : "";
+        
+        // Run the request path against bundled fixtures while the container initializes
+        this.primeOnInit = Boolean.parseBoolean(System.getenv("PRIME_ON_INIT"));
+        
+        // Per-attempt timeouts, retries with jittered backoff, hedging (0 = off) and the run's
+        // total request rate, split evenly across the workers of a sharded run (0 = unlimited)
+        this.httpConnectTimeoutMs = Math.max(1, getIntEnv("HTTP_CONNECT_TIMEOUT_MS", 5000));
+        this.httpRequestTimeoutMs = Math.max(1, getIntEnv("HTTP_REQUEST_TIMEOUT_MS", 10000));
+        this.httpMaxAttempts = Math.max(1, getIntEnv("HTTP_MAX_ATTEMPTS", 4));
+        this.httpBackoffBaseMs = Math.max(0, getIntEnv("HTTP_BACKOFF_BASE_MS", 200));
+        this.httpBackoffMaxMs = Math.max(0, getIntEnv("HTTP_BACKOFF_MAX_MS", 5000));
+        this.httpHedgeDelayMs = Math.max(0, getIntEnv("HTTP_HEDGE_DELAY_MS", 0));
+        this.httpRatePerSecond = getDoubleEnv("HTTP_RATE_PER_SECOND", 5);
+        this.httpRateBurst = Math.max(1, getIntEnv("HTTP_RATE_BURST", 5));
+        String baseUrl = System.getenv("YAHOO_BASE_URL");
+        this.yahooBaseUrl = baseUrl != null && !baseUrl.isBlank() ? baseUrl.trim() : "https://query1.finance.yahoo.com";
+        
+        // Digest recipients by group ("name:a@x,b@x;name2:c@x", default: one group with emailTo),
+        // the groups that also get tier-change alerts, and the dispatcher's queue, parallel
+        // sends, coalescing window and how long a run waits for its notifications
+        this.recipientGroups = parseRecipientGroups(System.getenv("NOTIFY_GROUPS"), emailTo);
+        String alertGroupsStr = System.getenv("NOTIFY_ALERT_GROUPS");
+        this.alertGroups = alertGroupsStr != null ? parseList(alertGroupsStr) : List.of();
+        this.notifyQueueCapacity = Math.max(1, getIntEnv("NOTIFY_QUEUE_CAPACITY", 64));
+        this.notifySenders = Math.max(1, getIntEnv("NOTIFY_SENDERS", 4));
+        this.notifyLingerMs = Math.max(0, getIntEnv("NOTIFY_LINGER_MS", 20));
+        this.notifyDrainTimeoutSeconds = Math.max(1, getIntEnv("NOTIFY_DRAIN_TIMEOUT_SECONDS", 30));
+    }
+    
+    /**
+     * Copy of {@code base} with the ticker list, algorithm parameters and formula replaced.
+     */
+    private Config(Config base, List<String> tickers, int zscoreWindow, int lookbackHighDays, int smaDays,
+                   double drawdownMax, double zscoreMax, String scoreFormula,
+                   int tierStrongBuy, int tierBuy, int tierDcaOnly) {
+        this.tickers = tickers;
+        this.emailFrom = base.emailFrom;
+        this.emailTo = base.emailTo;
+        this.zscoreWindow = zscoreWindow;
+        this.lookbackHighDays = lookbackHighDays;
+        this.smaDays = smaDays;
+        this.indicators = base.indicators;
+        this.emaDays = base.emaDays;
+        this.rsiDays = base.rsiDays;
+        this.atrDays = base.atrDays;
+        this.bollingerDays = base.bollingerDays;
+        this.bollingerK = base.bollingerK;
+        this.volumeZscoreWindow = base.volumeZscoreWindow;
+        this.drawdownMax = drawdownMax;
+        this.zscoreMax = zscoreMax;
+        this.scoreFormula = scoreFormula;
+        this.tierStrongBuy = tierStrongBuy;
+        this.tierBuy = tierBuy;
+        this.tierDcaOnly = tierDcaOnly;
+        this.fetchConcurrency = base.fetchConcurrency;
+        this.fetchTimeoutSeconds = base.fetchTimeoutSeconds;
+        this.priceCacheDir = base.priceCacheDir;
+        this.priceCacheSeedDir = base.priceCacheSeedDir;
+        this.scoreCacheEntries = base.scoreCacheEntries;
+        this.scoreCacheFile = base.scoreCacheFile;
+        this.primeOnInit = base.primeOnInit;
+        this.httpConnectTimeoutMs = base.httpConnectTimeoutMs;
+        this.httpRequestTimeoutMs = base.httpRequestTimeoutMs;
+        this.httpMaxAttempts = base.httpMaxAttempts;
+        this.httpBackoffBaseMs = base.httpBackoffBaseMs;
+        this.httpBackoffMaxMs = base.httpBackoffMaxMs;
+        this.httpHedgeDelayMs = base.httpHedgeDelayMs;
+        this.httpRatePerSecond = base.httpRatePerSecond;
+        this.httpRateBurst = base.httpRateBurst;
+        this.yahooBaseUrl = base.yahooBaseUrl;
+        this.recipientGroups = base.recipientGroups;
+        this.alertGroups = base.alertGroups;
+        this.notifyQueueCapacity = base.notifyQueueCapacity;
+        this.notifySenders = base.notifySenders;
+        this.notifyLingerMs = base.notifyLingerMs;
+        this.notifyDrainTimeoutSeconds = base.notifyDrainTimeoutSeconds;
+    }
+    
+    /**
+     * Same configuration for a different ticker list.
+     */
+    public Config withTickers(List<String> tickers) {
+        return new Config(this, List.copyOf(tickers), zscoreWindow, lookbackHighDays, smaDays,
+            drawdownMax, zscoreMax, scoreFormula, tierStrongBuy, tierBuy, tierDcaOnly);
+    }
+    
+    /**
+     * Same configuration with different algorithm parameters (used by the parameter sweep).
+     */
+    public Config withParameters(int zscoreWindow, int lookbackHighDays, int smaDays, double drawdownMax,
+                                 double zscoreMax, int tierStrongBuy, int tierBuy, int tierDcaOnly) {
+        return new Config(this, tickers, zscoreWindow, lookbackHighDays, smaDays,
+            drawdownMax, zscoreMax, scoreFormula, tierStrongBuy, tierBuy, tierDcaOnly);
+    }
+    
+    /**
+     * Same configuration scored with a different formula.
+     */
+    public Config withScoreFormula(String scoreFormula) {
+        return new Config(this, tickers, zscoreWindow, lookbackHighDays, smaDays,
+            drawdownMax, zscoreMax, scoreFormula, tierStrongBuy, tierBuy, tierDcaOnly);
     }
     
     private String getRequiredEnv(String key) {
@@ -94,6 +274,40 @@ public class Config {
             .collect(Collectors.toList());
     }
     
+    private static List<String> parseList(String value) {
+        return Arrays.stream(value.split(","))
+            .map(String::trim)
+            .filter(s -> !s.isEmpty())
+            .collect(Collectors.toList());
+    }
+    
+    private static Set<OhlcvIndicators.Indicator> parseIndicators(String value) {
+        Set<OhlcvIndicators.Indicator> indicators = EnumSet.noneOf(OhlcvIndicators.Indicator.class);
+        for (String key : parseList(value)) {
+            indicators.add(OhlcvIndicators.Indicator.fromKey(key));
+        }
+        return Collections.unmodifiableSet(indicators);
+    }
+    
+    private static Map<String, List<String>> parseRecipientGroups(String value, String defaultRecipient) {
+        Map<String, List<String>> groups = new LinkedHashMap<>();
+        if (value == null || value.isBlank()) {
+            groups.put("default", List.of(defaultRecipient));
+            return groups;
+        }
+        for (String group : value.split(";")) {
+            int colon = group.indexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("NOTIFY_GROUPS entry must be name:address[,address]: " + group);
+            }
+            List<String> recipients = parseList(group.substring(colon + 1));
+            if (!recipients.isEmpty()) {
+                groups.put(group.substring(0, colon).trim(), recipients);
+            }
+        }
+        return groups;
+    }
+    
     // Getters
     public List<String> getTickers() { return tickers; }
     public String getEmailFrom() { return emailFrom; }
@@ -101,10 +315,40 @@ public class Config {
     public int getZscoreWindow() { return zscoreWindow; }
     public int getLookbackHighDays() { return lookbackHighDays; }
     public int getSmaDays() { return smaDays; }
+    public Set<OhlcvIndicators.Indicator> getIndicators() { return indicators; }
+    public int getEmaDays() { return emaDays; }
+    public int getRsiDays() { return rsiDays; }
+    public int getAtrDays() { return atrDays; }
+    public int getBollingerDays() { return bollingerDays; }
+    public double getBollingerK() { return bollingerK; }
+    public int getVolumeZscoreWindow() { return volumeZscoreWindow; }
     public double getDrawdownMax() { return drawdownMax; }
     public double getZscoreMax() { return zscoreMax; }
+    public String getScoreFormula() { return scoreFormula; }
     public int getTierStrongBuy() { return tierStrongBuy; }
     public int getTierBuy() { return tierBuy; }
     public int getTierDcaOnly() { return tierDcaOnly; }
+    public int getFetchConcurrency() { return fetchConcurrency; }
+    public int getFetchTimeoutSeconds() { return fetchTimeoutSeconds; }
+    public String getPriceCacheDir() { return priceCacheDir; }
+    public String getPriceCacheSeedDir() { return priceCacheSeedDir; }
+    public int getScoreCacheEntries() { return scoreCacheEntries; }
+    public String getScoreCacheFile() { return scoreCacheFile; }
+    public boolean isPrimeOnInit() { return primeOnInit; }
+    public int getHttpConnectTimeoutMs() { return httpConnectTimeoutMs; }
+    public int getHttpRequestTimeoutMs() { return httpRequestTimeoutMs; }
+    public int getHttpMaxAttempts() { return httpMaxAttempts; }
+    public int getHttpBackoffBaseMs() { return httpBackoffBaseMs; }
+    public int getHttpBackoffMaxMs() { return httpBackoffMaxMs; }
+    public int getHttpHedgeDelayMs() { return httpHedgeDelayMs; }
+    public double getHttpRatePerSecond() { return httpRatePerSecond; }
+    public int getHttpRateBurst() { return httpRateBurst; }
+    public String getYahooBaseUrl() { return yahooBaseUrl; }
+    public Map<String, List<String>> getRecipientGroups() { return recipientGroups; }
+    public List<String> getAlertGroups() { return alertGroups; }
+    public int getNotifyQueueCapacity() { return notifyQueueCapacity; }
+    public int getNotifySenders() { return notifySenders; }
+    public int getNotifyLingerMs() { return notifyLingerMs; }
+    public int getNotifyDrainTimeoutSeconds() { return notifyDrainTimeoutSeconds; }
 }
 
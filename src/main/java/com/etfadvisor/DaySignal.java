@@ -0,0 +1,20 @@
+package com.etfadvisor;
+
+import java.time.LocalDate;
+
+/**
+ * Indicators, buy score and tier of one ticker on one trading day.
+ * @param epochDay Trading date as days since 1970-01-01
+ * @param sma200 NaN while the SMA window is not yet full
+ */
+public record DaySignal(int epochDay, double close, double sma200, double drawdown6m, double zscore,
+                        int buyScore, Tier tier) {
+                        
+    public LocalDate date() {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+    
+    public boolean hasSma200() {
+        return !Double.isNaN(sma200);
+    }
+}
@@ -2,10 +2,22 @@ package com.etfadvisor;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.simpleemail.AmazonSimpleEmailServiceClientBuilder;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * AWS Lambda handler for ETF Advisor.
@@ -13,100 +25,118 @@ import java.util.*;
  */
 public class ETFAdvisorHandler implements RequestHandler<Map<String, Object>, Map<String, Object>> {
     
+    private static final int MIN_DAYS_NEEDED = 220;
+    private static final int DAYS_TO_ANALYZE = 10; // Past 10 trading days
+    private static final long NOT_STARTED = Long.MIN_VALUE; // Ticker task still queued
+    
+    // Built once per container and reused by warm invocations; null when the environment is
+    // invalid (e.g. NOTIFY_GROUPS or SCORE_FORMULA), and every request then reports initError
+    private static final Config config;
+    private static final BuyScoreCalculator buyScoreCalc;
+    private static final ReportRenderer renderer;
+    private static final RuntimeException initError;
+    private static NotificationDispatcher dispatcher;
+    
+    // Survive warm invocations, like the files behind them in /tmp
+    private static PriceCache priceCache;
+    private static ScoreCache scoreCache;
+    
+    static {
+        Config initConfig = null;
+        BuyScoreCalculator initCalc = null;
+        ReportRenderer initRenderer = null;
+        RuntimeException error = null;
+        try {
+            initConfig = new Config();
+            initCalc = new BuyScoreCalculator(initConfig);
+            initRenderer = new ReportRenderer(initConfig.getTickers());
+        } catch (RuntimeException e) {
+            // Thrown from here it would surface as ExceptionInInitializerError, then
+            // NoClassDefFoundError on every later invocation
+            System.err.println("Invalid configuration: " + e.getMessage());
+            error = e;
+        }
+        config = initConfig;
+        buyScoreCalc = initCalc;
+        renderer = initRenderer;
+        initError = error;
+        
+        if (initError == null && config.isPrimeOnInit()) {
+            // Init runs before the first request is timed (and at full CPU), so pay class
+            // loading and JIT warm-up here instead of inside the first invocation
+            long start = System.nanoTime();
+            try {
+                if (System.getenv("AWS_REGION") != null) {
+                    getDispatcher();
+                }
+                Primer.prime(config, buyScoreCalc);
+                System.out.printf("Primed in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+            } catch (RuntimeException e) {
+                System.err.println("Priming failed, continuing cold: " + e.getMessage());
+            }
+        }
+    }
+    
     @Override
     public Map<String, Object> handleRequest(Map<String, Object> event, Context context) {
         Map<String, Object> response = new HashMap<>();
+        if (initError != null) {
+            context.getLogger().log("Lambda handler error: " + initError.getMessage());
+            response.put("statusCode", 500);
+            response.put("error", initError.getMessage());
+            return response;
+        }
+        RunMetrics metrics = new RunMetrics();
+        HttpFetcher fetcher = YahooFinanceHelper.getFetcher();
+        long retriesBefore = fetcher.getRetries();
+        long hedgesBefore = fetcher.getHedges();
+        long throttledBefore = fetcher.getThrottled();
+        List<String> tickers = config.getTickers();
         
         try {
-            Config config = new Config();
             context.getLogger().log("Starting ETF Advisor analysis");
             
             LocalDate runDate = LocalDate.now();
             String runDateStr = runDate.format(DateTimeFormatter.ISO_DATE);
             context.getLogger().log("Processing date: " + runDateStr);
             
-            IndicatorCalculator indicatorCalc = new IndicatorCalculator(config);
-            BuyScoreCalculator buyScoreCalc = new BuyScoreCalculator(config);
-            
-            // Store results for past 10 trading days for each ticker
-            Map<String, List<Map<String, Object>>> tickerHistory = new HashMap<>();
-            int minDaysNeeded = 220;
-            int daysToAnalyze = 10; // Past 10 trading days
-            
-            // Process each ticker
-            for (String ticker : config.getTickers()) {
-                try {
-                    context.getLogger().log("Processing ticker: " + ticker);
-                    
-                    // Fetch historical data (need enough for past 10 days + calculations)
-                    List<Double> priceData = YahooFinanceHelper.fetchHistoricalData(ticker, minDaysNeeded + daysToAnalyze, runDate);
-                    
-                    if (priceData == null || priceData.size() < minDaysNeeded) {
-                        context.getLogger().log("Insufficient data for " + ticker + ": " + 
-                            (priceData != null ? priceData.size() : 0) + " days");
-                        continue;
-                    }
-                    
-                    List<Map<String, Object>> tickerResults = new ArrayList<>();
-                    
-                    // Calculate signals for past 10 trading days
-                    for (int dayOffset = 0; dayOffset < daysToAnalyze && dayOffset < priceData.size() - minDaysNeeded; dayOffset++) {
-                        int endIndex = priceData.size() - dayOffset;
-                        int startIndex = Math.max(0, endIndex - minDaysNeeded);
-                        
-                        List<Double> dayData = new ArrayList<>();
-                        for (int i = startIndex; i < endIndex; i++) {
-                            dayData.add(priceData.get(i));
-                        }
-                        
-                        if (dayData.size() < minDaysNeeded) {
-                            continue;
-                        }
-                        
-                        try {
-                            // Calculate indicators for this day
-                            IndicatorCalculator.Indicators indicators = indicatorCalc.calculateAll(dayData);
-                            
-                            // Calculate Buy Score
-                            BuyScoreCalculator.BuyScoreResult scoreResult = buyScoreCalc.calculate(indicators);
-                            
-                            // Estimate date (approximate - trading days only)
-                            LocalDate dayDate = runDate.minusDays(dayOffset);
-                            
-                            Map<String, Object> dayResult = new HashMap<>();
-                            dayResult.put("ticker", ticker);
-                            dayResult.put("date", dayDate.format(DateTimeFormatter.ISO_DATE));
-                            dayResult.put("close", indicators.getCloseToday());
-                            dayResult.put("sma_200", indicators.getSma200());
-                            dayResult.put("drawdown_6m", indicators.getDrawdown6m());
-                            dayResult.put("zscore", indicators.getZscore());
-                            dayResult.put("buy_score", scoreResult.getBuyScore());
-                            dayResult.put("tier", scoreResult.getTier());
-                            
-                            tickerResults.add(dayResult);
-                            
-                        } catch (Exception e) {
-                            context.getLogger().log("Error processing day offset " + dayOffset + " for " + ticker + ": " + e.getMessage());
-                        }
-                    }
-                    
-                    // Reverse to show oldest first
-                    Collections.reverse(tickerResults);
-                    tickerHistory.put(ticker, tickerResults);
-                    
-                    context.getLogger().log(String.format("%s: Processed %d days", ticker, tickerResults.size()));
-                    
-                } catch (Exception e) {
-                    context.getLogger().log("Error processing " + ticker + ": " + e.getMessage());
+            TickerResults results;
+            boolean sendReport = true;
+            if (event != null && event.get("partials") instanceof List) {
+                // Reducer: merge worker responses, then report as a single run would
+                results = TickerResults.fromResponses(tickers, (List<?>) event.get("partials"));
+                context.getLogger().log("Merged " + ((List<?>) event.get("partials")).size() + " shard results");
+            } else {
+                int shardCount = 1;
+                if (event != null && event.get("shard_count") != null) {
+                    // Worker: score one shard of TICKERS and return it for the reducer
+                    int shardIndex = ((Number) event.get("shard_index")).intValue();
+                    shardCount = ((Number) event.get("shard_count")).intValue();
+                    tickers = ShardedRun.split(tickers, shardCount).get(shardIndex);
+                    response.put("shard_index", shardIndex);
+                    response.put("shard_count", shardCount);
+                    sendReport = false;
+                    context.getLogger().log("Shard " + shardIndex + "/" + shardCount + ": " + tickers.size() + " tickers");
                 }
+                // HTTP_RATE_PER_SECOND is for the whole run: each of n workers takes 1/n of it
+                fetcher.setRateShares(shardCount);
+                PriceCache cache = getPriceCache(config, context);
+                ScoreCache scores = getScoreCache(config, context);
+                results = scoreTickers(tickers, runDate, config, buyScoreCalc, cache, scores, metrics, context);
+                saveScoreCache(scores, context);
             }
             
-            // Send email report if email is configured
-            if (config.getEmailFrom() != null && config.getEmailTo() != null && 
+            // Queue the email report (and tier-change alerts) if email is configured; they
+            // render and send while the response is built
+            NotificationDispatcher notifications = null;
+            long failedBefore = 0;
+            if (!sendReport) {
+                context.getLogger().log("Shard worker, report left to the reducer");
+            } else if (config.getEmailFrom() != null && config.getEmailTo() != null && 
                 !config.getEmailFrom().isEmpty() && !config.getEmailTo().isEmpty()) {
-                EmailService emailService = new EmailService(config);
-                emailService.sendEmailReport(runDateStr, tickerHistory, context);
-                context.getLogger().log("Email report sent successfully");
+                notifications = getDispatcher();
+                failedBefore = notifications.getFailed();
+                queueNotifications(notifications, config, renderer, runDateStr, results.getHistory(), metrics);
             } else {
                 context.getLogger().log("Email not configured, skipping email send");
             }
@@ -114,7 +144,27 @@ public class ETFAdvisorHandler implements RequestHandler<Map<String, Object>, Ma
             // Build response
             response.put("statusCode", 200);
             response.put("run_date", runDateStr);
-            response.put("ticker_history", tickerHistory);
+            // Typed signals stay typed until here: the response carries plain maps
+            Map<String, List<Map<String, Object>>> historyResponse = new LinkedHashMap<>();
+            for (Map.Entry<String, SignalBatch> entry : results.getHistory().entrySet()) {
+                historyResponse.put(entry.getKey(), entry.getValue().toResponse());
+            }
+            response.put("ticker_history", historyResponse);
+            if (!results.getErrors().isEmpty()) {
+                response.put("ticker_errors", results.getErrors());
+            }
+            
+            if (notifications != null) {
+                // The container is frozen once the handler returns, so the sends finish here
+                if (!notifications.awaitIdle(Duration.ofSeconds(config.getNotifyDrainTimeoutSeconds()))) {
+                    throw new RuntimeException("Timed out sending notifications after "
+                        + config.getNotifyDrainTimeoutSeconds() + "s");
+                }
+                if (notifications.getFailed() > failedBefore) {
+                    throw new RuntimeException("Failed to send email: " + notifications.getLastError());
+                }
+                context.getLogger().log("Email report sent successfully");
+            }
             
         } catch (Exception e) {
             context.getLogger().log("Lambda handler error: " + e.getMessage());
@@ -122,6 +172,384 @@ public class ETFAdvisorHandler implements RequestHandler<Map<String, Object>, Ma
             response.put("error", e.getMessage());
         }
         
+        // Retries, hedges and 429s seen by the shared fetcher during this run
+        metrics.add(RunMetrics.Counter.RETRIES, fetcher.getRetries() - retriesBefore);
+        metrics.add(RunMetrics.Counter.HEDGES, fetcher.getHedges() - hedgesBefore);
+        metrics.add(RunMetrics.Counter.THROTTLED, fetcher.getThrottled() - throttledBefore);
+        String function = context.getFunctionName() != null ? context.getFunctionName() : "etf-advisor";
+        for (String line : metrics.toEmf(function, System.currentTimeMillis())) {
+            context.getLogger().log(line);
+        }
+        response.put("metrics", metrics.summary(tickers));
+        
         return response;
     }
+    
+    /**
+     * Fetch and score every ticker concurrently, at most FETCH_CONCURRENCY in flight.
+     * Each ticker gets FETCH_TIMEOUT_SECONDS from when a worker starts it, however long it
+     * queued; failures and timeouts are reported per ticker rather than failing the run.
+     */
+    static TickerResults scoreTickers(List<String> tickers, LocalDate runDate, Config config,
+                                      BuyScoreCalculator buyScoreCalc, PriceCache cache, ScoreCache scores,
+                                      RunMetrics metrics, Context context) {
+        TickerResults results = new TickerResults();
+        int poolSize = Math.max(1, Math.min(config.getFetchConcurrency(), tickers.size()));
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize, r -> {
+            Thread t = new Thread(r, "ticker-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        
+        try {
+            List<Future<SignalBatch>> futures = new ArrayList<>();
+            AtomicLongArray started = new AtomicLongArray(tickers.size());
+            long timeoutNanos = TimeUnit.SECONDS.toNanos(config.getFetchTimeoutSeconds());
+            for (int i = 0; i < tickers.size(); i++) {
+                String ticker = tickers.get(i);
+                int index = i;
+                started.set(i, NOT_STARTED);
+                futures.add(pool.submit(() -> {
+                    long start = System.nanoTime();
+                    started.set(index, start);
+                    return processTicker(ticker, runDate, start + timeoutNanos, config, buyScoreCalc, cache, scores,
+                        metrics, context);
+                }));
+            }
+            
+            // Collect in TICKERS order so the response and report are deterministic; waiting
+            // on one ticker does not use up the next one's time
+            for (int i = 0; i < tickers.size(); i++) {
+                String ticker = tickers.get(i);
+                Future<SignalBatch> future = futures.get(i);
+                try {
+                    SignalBatch tickerResults = awaitTicker(future, started, i, timeoutNanos);
+                    results.history.put(ticker, tickerResults);
+                    context.getLogger().log(String.format("%s: Processed %d days", ticker, tickerResults.size()));
+                } catch (TimeoutException e) {
+                    // Interrupts the task: HttpFetcher.send then aborts its request and pending retries
+                    future.cancel(true);
+                    metrics.increment(RunMetrics.Counter.FAILURES);
+                    metrics.increment(RunMetrics.Counter.TIMEOUTS);
+                    results.errors.put(ticker, "Timed out after " + config.getFetchTimeoutSeconds() + "s");
+                    context.getLogger().log("Timed out processing " + ticker);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    metrics.increment(RunMetrics.Counter.FAILURES);
+                    results.errors.put(ticker, cause.getMessage());
+                    context.getLogger().log("Error processing " + ticker + ": " + cause.getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    results.errors.put(ticker, "Interrupted");
+                    break;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return results;
+    }
+    
+    /**
+     * Waits for a ticker's task until it has run for {@code timeoutNanos}, counting from its
+     * entry in {@code started} (NOT_STARTED while it is still queued).
+     */
+    private static <T> T awaitTicker(Future<T> future, AtomicLongArray started, int index, long timeoutNanos)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        while (true) {
+            long start = started.get(index);
+            long deadline = (start != NOT_STARTED ? start : System.nanoTime()) + timeoutNanos;
+            try {
+                return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (start != NOT_STARTED) {
+                    throw e;
+                }
+                // Still queued when the wait began: wait again from its actual start
+            }
+        }
+    }
+    
+    /**
+     * Fetch one ticker's history and score its past 10 trading days (oldest first).
+     * @param deadline System.nanoTime() by which the ticker must finish
+     */
+    private static SignalBatch processTicker(String ticker, LocalDate runDate, long deadline, Config config,
+                                             BuyScoreCalculator buyScoreCalc, PriceCache cache,
+                                             ScoreCache scores, RunMetrics metrics, Context context) 
+            throws Exception {
+        context.getLogger().log("Processing ticker: " + ticker);
+        long start = System.nanoTime();
+        try {
+            // Fetch historical data (need enough for past 10 days + calculations); no HTTP attempt
+            // outlives the ticker's deadline, and the collector cancels the task once it passes
+            PriceSeries priceData = YahooFinanceHelper.fetchHistoricalData(ticker, MIN_DAYS_NEEDED + DAYS_TO_ANALYZE,
+                runDate, attemptTimeout(deadline, config), cache, metrics);
+                
+            if (priceData == null || priceData.size() < MIN_DAYS_NEEDED) {
+                throw new IllegalStateException("Insufficient data for " + ticker + ": " + 
+                    (priceData != null ? priceData.size() : 0) + " days");
+            }
+            
+            long scoreStart = System.nanoTime();
+            SignalBatch batch = scoreRecentDays(ticker, priceData, config, buyScoreCalc, scores, metrics, context);
+            metrics.record(RunMetrics.Stage.INDICATORS, scoreStart);
+            return batch;
+        } finally {
+            metrics.recordTicker(ticker, start);
+        }
+    }
+    
+    /**
+     * HTTP_REQUEST_TIMEOUT_MS, cut down to the time left before {@code deadline} (at least 1 ms).
+     */
+    static Duration attemptTimeout(long deadline, Config config) {
+        long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        return Duration.ofMillis(Math.max(1, Math.min(config.getHttpRequestTimeoutMs(), remainingMs)));
+    }
+    
+    /**
+     * Score the past 10 trading days of a price history (oldest first).
+     * @param context Lambda context for logging per-day errors (null = not logged)
+     */
+    static SignalBatch scoreRecentDays(String ticker, PriceSeries priceData, Config config,
+                                       BuyScoreCalculator buyScoreCalc, Context context) {
+        return scoreRecentDays(ticker, priceData, config, buyScoreCalc, null, null, context);
+    }
+    
+    /**
+     * Score the past 10 trading days, taking days already scored from {@code scores} (null =
+     * no cache). Each missing day is computed from its own trailing window, so a steady-state
+     * run computes just the newest bar. Once the history covers the longest window a day's
+     * values depend only on the closes in its windows, not on where the fetched range starts
+     * (which moves forward every day), so cached days match a cold run.
+     * @param metrics Receives score cache hits and misses (null = not recorded)
+     */
+    static SignalBatch scoreRecentDays(String ticker, PriceSeries priceData, Config config,
+                                       BuyScoreCalculator buyScoreCalc, ScoreCache scores,
+                                       RunMetrics metrics, Context context) {
+        SignalBatch tickerResults = new SignalBatch(ticker, DAYS_TO_ANALYZE);
+        int firstDay = Math.max(priceData.size() - DAYS_TO_ANALYZE, MIN_DAYS_NEEDED);
+        int days = Math.max(0, priceData.size() - firstDay);
+        
+        ScoreCache.Entry[] cached = new ScoreCache.Entry[days];
+        long fingerprint = 0;
+        int misses = days;
+        if (scores != null) {
+            fingerprint = ScoreCache.fingerprint(config);
+            for (int d = 0; d < days; d++) {
+                int i = firstDay + d;
+                cached[d] = scores.get(ticker, priceData.epochDay(i), fingerprint, priceData.close(i));
+                if (cached[d] != null) {
+                    misses--;
+                }
+            }
+            if (metrics != null) {
+                metrics.add(RunMetrics.Counter.SCORE_CACHE_HITS, days - misses);
+                metrics.add(RunMetrics.Counter.SCORE_CACHE_MISSES, misses);
+            }
+        }
+        
+        // Trailing windows rather than RollingIndicators: a rolling pass would have to stream
+        // the whole history for one new bar, and its rounding depends on the series origin
+        IndicatorCalculator calculator = misses > 0 ? new IndicatorCalculator(config) : null;
+        for (int d = 0; d < days; d++) {
+            int i = firstDay + d;
+            if (cached[d] != null) {
+                tickerResults.add(priceData.epochDay(i), cached[d].getIndicators(), cached[d].getScore());
+                continue;
+            }
+            
+            int dayOffset = priceData.size() - 1 - i;
+            try {
+                // Indicators for this day
+                IndicatorCalculator.Indicators indicators = calculator.calculateAll(priceData.window(0, i + 1));
+                
+                // Calculate Buy Score
+                BuyScoreCalculator.BuyScoreResult scoreResult = buyScoreCalc.calculate(indicators);
+                
+                tickerResults.add(priceData.epochDay(i), indicators, scoreResult);
+                if (scores != null) {
+                    scores.put(ticker, priceData.epochDay(i), fingerprint, indicators, scoreResult);
+                }
+                
+            } catch (Exception e) {
+                if (context == null) {
+                    continue;
+                }
+                context.getLogger().log("Error processing day offset " + dayOffset + " for " + ticker + ": " + e.getMessage());
+            }
+        }
+        
+        return tickerResults;
+    }
+    
+    /**
+     * One digest per recipient group, plus an alert line to each alert group for every ticker
+     * whose tier changed since the previous trading day.
+     */
+    static void queueNotifications(NotificationDispatcher notifications, Config config, ReportRenderer renderer,
+                                   String runDate, Map<String, SignalBatch> history, RunMetrics metrics)
+            throws InterruptedException {
+        String subject = EmailService.subject(runDate);
+        for (String group : config.getRecipientGroups().keySet()) {
+            notifications.submitDigest(group, subject, () -> renderer.renderToString(runDate, history), metrics);
+        }
+        if (config.getAlertGroups().isEmpty()) {
+            return;
+        }
+        for (SignalBatch batch : history.values()) {
+            int n = batch.size();
+            if (n < 2 || batch.tier(n - 1) == batch.tier(n - 2)) {
+                continue;
+            }
+            String line = String.format("%s: %s -> %s (score %d, close %.2f)", batch.getTicker(),
+                batch.tier(n - 2), batch.tier(n - 1), batch.buyScore(n - 1), batch.close(n - 1));
+            for (String group : config.getAlertGroups()) {
+                notifications.submitAlert(group, batch.getTicker(), "ETF Advisor — tier changes " + runDate, line);
+            }
+        }
+    }
+    
+    private static synchronized NotificationDispatcher getDispatcher() {
+        if (dispatcher == null) {
+            dispatcher = new NotificationDispatcher(new SesNotificationSender(
+                AmazonSimpleEmailServiceClientBuilder.defaultClient(), config.getEmailFrom()), config);
+        }
+        return dispatcher;
+    }
+    
+    /**
+     * Replaces the SES sender (e.g. with an InMemoryNotificationSender for local runs).
+     */
+    static synchronized void setNotificationSender(NotificationSender sender) {
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+        dispatcher = new NotificationDispatcher(sender, config);
+    }
+    
+    /**
+     * Price cache for PRICE_CACHE_DIR, created (and optionally seeded) on first use.
+     * Returns null when the cache is disabled.
+     */
+    static synchronized PriceCache getPriceCache(Config config, Context context) {
+        if (config.getPriceCacheDir().isEmpty()) {
+            return null;
+        }
+        if (priceCache == null || !priceCache.getDirectory().equals(Paths.get(config.getPriceCacheDir()))) {
+            priceCache = new PriceCache(Paths.get(config.getPriceCacheDir()));
+            if (config.getPriceCacheSeedDir() != null && !config.getPriceCacheSeedDir().isEmpty()) {
+                try {
+                    int seeded = priceCache.seedFromCsv(Paths.get(config.getPriceCacheSeedDir()));
+                    context.getLogger().log("Seeded price cache with " + seeded + " tickers");
+                } catch (IOException e) {
+                    context.getLogger().log("Could not seed price cache: " + e.getMessage());
+                }
+            }
+        }
+        return priceCache;
+    }
+    
+    /**
+     * Score cache holding SCORE_CACHE_ENTRIES (loaded from SCORE_CACHE_FILE if set), created on
+     * first use. Returns null when the cache is disabled.
+     */
+    static synchronized ScoreCache getScoreCache(Config config, Context context) {
+        if (config.getScoreCacheEntries() == 0) {
+            return null;
+        }
+        Path file = config.getScoreCacheFile().isEmpty() ? null : Paths.get(config.getScoreCacheFile());
+        if (scoreCache == null || !Objects.equals(scoreCache.getFile(), file)
+                || scoreCache.getMaxEntries() != config.getScoreCacheEntries()) {
+            scoreCache = new ScoreCache(config.getScoreCacheEntries(), file);
+            try {
+                scoreCache.load();
+            } catch (IOException e) {
+                context.getLogger().log("Could not load score cache: " + e.getMessage());
+            }
+        }
+        return scoreCache;
+    }
+    
+    /**
+     * Saves the score cache to SCORE_CACHE_FILE, if it has one. Failures are logged only.
+     */
+    static void saveScoreCache(ScoreCache scores, Context context) {
+        if (scores == null) {
+            return;
+        }
+        try {
+            scores.save();
+        } catch (IOException e) {
+            context.getLogger().log("Could not save score cache: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Scored tickers and per-ticker errors of a run or of one shard, in ticker order.
+     */
+    public static class TickerResults {
+        private final Map<String, SignalBatch> history = new LinkedHashMap<>();
+        private final Map<String, String> errors = new LinkedHashMap<>();
+        
+        public Map<String, SignalBatch> getHistory() { return history; }
+        public Map<String, String> getErrors() { return errors; }
+        
+        /**
+         * Combine shard results back into {@code universe} order.
+         */
+        static TickerResults merge(List<String> universe, List<TickerResults> parts) {
+            Map<String, SignalBatch> allHistory = new HashMap<>();
+            Map<String, String> allErrors = new HashMap<>();
+            for (TickerResults part : parts) {
+                allHistory.putAll(part.history);
+                allErrors.putAll(part.errors);
+            }
+            TickerResults merged = new TickerResults();
+            for (String ticker : universe) {
+                SignalBatch batch = allHistory.get(ticker);
+                if (batch != null) {
+                    merged.history.put(ticker, batch);
+                } else if (allErrors.containsKey(ticker)) {
+                    merged.errors.put(ticker, allErrors.get(ticker));
+                }
+            }
+            return merged;
+        }
+        
+        /**
+         * Rebuild shard results from worker responses (the handler's response maps). Tickers of a
+         * shard whose worker failed are reported as errors.
+         */
+        @SuppressWarnings("unchecked")
+        static TickerResults fromResponses(List<String> universe, List<?> responses) {
+            List<TickerResults> parts = new ArrayList<>();
+            for (Object item : responses) {
+                Map<String, Object> response = (Map<String, Object>) item;
+                TickerResults part = new TickerResults();
+                Object status = response.get("statusCode");
+                if (status instanceof Number && ((Number) status).intValue() == 200) {
+                    Map<String, List<?>> history = (Map<String, List<?>>) response.get("ticker_history");
+                    if (history != null) {
+                        for (Map.Entry<String, List<?>> entry : history.entrySet()) {
+                            part.history.put(entry.getKey(), SignalBatch.fromResponse(entry.getKey(), entry.getValue()));
+                        }
+                    }
+                    Map<String, String> errors = (Map<String, String>) response.get("ticker_errors");
+                    if (errors != null) {
+                        part.errors.putAll(errors);
+                    }
+                } else if (response.get("shard_count") instanceof Number) {
+                    int index = ((Number) response.get("shard_index")).intValue();
+                    int count = ((Number) response.get("shard_count")).intValue();
+                    for (String ticker : ShardedRun.split(universe, count).get(index)) {
+                        part.errors.put(ticker, "Shard " + index + " failed: " + response.get("error"));
+                    }
+                }
+                parts.add(part);
+            }
+            return merge(universe, parts);
+        }
+    }
 }
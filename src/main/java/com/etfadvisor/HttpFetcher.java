@@ -0,0 +1,401 @@
+package com.etfadvisor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * HTTP GETs with per-attempt timeouts, retries and a shared rate limit.
+ * <ul>
+ *   <li>Retries I/O errors, timeouts, 429 and 5xx with full-jitter exponential backoff;
+ *       a Retry-After header (seconds or HTTP date) sets the minimum wait.</li>
+ *   <li>Optionally hedges: if no response arrives within the hedge delay, a second identical
+ *       request is sent (when the rate limit allows) and the first non-retryable response wins;
+ *       the other request is then aborted.</li>
+ *   <li>Every attempt and hedge takes a token from one bucket shared by all tickers of the
+ *       process; with {@link #setRateShares} a process takes only its share of the rate.</li>
+ *   <li>Cancelling the future from sendAsync (or interrupting a thread blocked in send) aborts
+ *       the requests in flight and stops retries and hedges that were not sent yet, so a caller
+ *       that gave up does not keep using the rate limit.</li>
+ * </ul>
+ * Waits are scheduled on the common pool's delayed executor, so no thread sleeps.
+ */
+public class HttpFetcher {
+    
+    // Upper bound on a server-requested Retry-After wait
+    private static final long MAX_RETRY_AFTER_MS = 60_000;
+    
+    private final HttpClient client;
+    private final Policy policy;
+    private volatile TokenBucket rateLimiter;
+    private int rateShares = 1;
+    
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong aborted = new AtomicLong();
+    
+    public HttpFetcher(Policy policy) {
+        this(HttpClient.newBuilder().connectTimeout(policy.getConnectTimeout()).build(), policy);
+    }
+    
+    HttpFetcher(HttpClient client, Policy policy) {
+        this.client = client;
+        this.policy = policy;
+        this.rateLimiter = new TokenBucket(policy.getRatePerSecond(), policy.getRateBurst());
+    }
+    
+    /**
+     * Limits this fetcher to 1/{@code shares} of the policy's rate and burst, so that
+     * {@code shares} processes running at once (e.g. the workers of an n-shard run) stay
+     * within the rate together. Applies to requests started afterwards.
+     */
+    public synchronized void setRateShares(int shares) {
+        shares = Math.max(1, shares);
+        if (shares != rateShares) {
+            rateShares = shares;
+            rateLimiter = new TokenBucket(policy.getRatePerSecond() / shares, Math.max(1, policy.getRateBurst() / shares));
+        }
+    }
+    
+    /**
+     * Builder for a GET with the policy's request timeout (or the given one).
+     * @param timeout Per-attempt timeout (null = policy default)
+     */
+    public HttpRequest.Builder newRequest(URI uri, Duration timeout) {
+        return HttpRequest.newBuilder()
+            .uri(uri)
+            .timeout(timeout != null ? timeout : policy.getRequestTimeout())
+            .GET();
+    }
+    
+    /**
+     * Blocking send. Non-retryable responses (and the last retryable one) are returned
+     * as-is; the caller owns and must close the body.
+     */
+    public HttpResponse<InputStream> send(HttpRequest request) throws IOException, InterruptedException {
+        CompletableFuture<HttpResponse<InputStream>> future = sendAsync(request);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            // The caller gave up (e.g. a ticker past its deadline): stop the chain with it
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Request failed: " + cause.getMessage(), cause);
+        }
+    }
+    
+    /**
+     * Asynchronous send; cancelling the returned future aborts the whole exchange (see class doc).
+     */
+    public CompletableFuture<HttpResponse<InputStream>> sendAsync(HttpRequest request) {
+        Call call = new Call(request);
+        CompletableFuture<HttpResponse<InputStream>> result = new CompletableFuture<>();
+        attempt(call, 1).whenComplete((response, error) -> {
+            if (error != null) {
+                result.completeExceptionally(unwrap(error));
+            } else if (!result.complete(response)) {
+                closeQuietly(response);
+            }
+        });
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return result;
+    }
+    
+    private CompletableFuture<HttpResponse<InputStream>> attempt(Call call, int attempt) {
+        if (call.cancelled) {
+            return CompletableFuture.failedFuture(new CancellationException());
+        }
+        TokenBucket bucket = rateLimiter;
+        return after(bucket.reserve(), () -> {
+                if (call.cancelled) {
+                    // Cancelled while waiting for the rate limit: the token was not used
+                    bucket.refund();
+                    return CompletableFuture.<HttpResponse<InputStream>>failedFuture(new CancellationException());
+                }
+                return hedged(call);
+            })
+            .handle((response, error) -> {
+                if (call.cancelled) {
+                    if (response != null) {
+                        closeQuietly(response);
+                    }
+                    return CompletableFuture.<HttpResponse<InputStream>>failedFuture(new CancellationException());
+                }
+                Throwable cause = unwrap(error);
+                if (response != null && response.statusCode() == 429) {
+                    throttled.incrementAndGet();
+                }
+                boolean retryable = response != null ? isRetryable(response.statusCode()) : cause instanceof IOException;
+                if (!retryable || attempt >= policy.getMaxAttempts()) {
+                    return response != null ? CompletableFuture.completedFuture(response)
+                        : CompletableFuture.<HttpResponse<InputStream>>failedFuture(cause);
+                }
+                
+                long delayMs = backoffMs(attempt);
+                if (response != null) {
+                    delayMs = Math.max(delayMs, retryAfterMs(response));
+                    closeQuietly(response);
+                }
+                retries.incrementAndGet();
+                return after(TimeUnit.MILLISECONDS.toNanos(delayMs), () -> attempt(call, attempt + 1));
+            })
+            .thenCompose(next -> next);
+    }
+    
+    /**
+     * One logical attempt: the request, plus a hedge if it is slow.
+     */
+    private CompletableFuture<HttpResponse<InputStream>> hedged(Call call) {
+        Duration hedgeDelay = policy.getHedgeDelay();
+        if (hedgeDelay == null) {
+            return sendOnce(call);
+        }
+        
+        CompletableFuture<HttpResponse<InputStream>> winner = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicReference<HttpResponse<InputStream>> fallback = new AtomicReference<>();
+        List<CompletableFuture<HttpResponse<InputStream>>> copies = new CopyOnWriteArrayList<>();
+        copies.add(sendOnce(call));
+        race(copies.get(0), copies, winner, pending, fallback);
+        CompletableFuture.delayedExecutor(hedgeDelay.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+            if (winner.isDone() || call.cancelled || !rateLimiter.tryAcquire()) {
+                return;
+            }
+            // Pending already at 0 means the race was just decided
+            if (pending.getAndUpdate(n -> n == 0 ? 0 : n + 1) == 0) {
+                return;
+            }
+            hedges.incrementAndGet();
+            CompletableFuture<HttpResponse<InputStream>> hedge = sendOnce(call);
+            copies.add(hedge);
+            race(hedge, copies, winner, pending, fallback);
+            if (winner.isDone()) {
+                abort(hedge);
+            }
+        });
+        return winner;
+    }
+    
+    /**
+     * A non-retryable response completes the winner at once and aborts the other copy. A
+     * retryable response (429, 5xx) or a failure only decides the race once no other request is
+     * in flight, so a fast error from one copy does not abandon the other; the first retryable
+     * response is kept for that case, as it carries the status and any Retry-After.
+     */
+    private void race(CompletableFuture<HttpResponse<InputStream>> request,
+                      List<CompletableFuture<HttpResponse<InputStream>>> copies,
+                      CompletableFuture<HttpResponse<InputStream>> winner, AtomicInteger pending,
+                      AtomicReference<HttpResponse<InputStream>> fallback) {
+        request.whenComplete((response, error) -> {
+            if (error == null && !isRetryable(response.statusCode())) {
+                // The copy still in flight (if any) lost
+                copies.forEach(this::abort);
+                if (!winner.complete(response)) {
+                    closeQuietly(response);
+                }
+            } else if (error == null && !fallback.compareAndSet(null, response)) {
+                closeQuietly(response);
+            }
+            if (pending.decrementAndGet() == 0) {
+                HttpResponse<InputStream> kept = fallback.getAndSet(null);
+                if (kept != null) {
+                    if (!winner.complete(kept)) {
+                        closeQuietly(kept);
+                    }
+                } else if (error != null) {
+                    winner.completeExceptionally(unwrap(error));
+                }
+            }
+        });
+    }
+    
+    private CompletableFuture<HttpResponse<InputStream>> sendOnce(Call call) {
+        attempts.incrementAndGet();
+        CompletableFuture<HttpResponse<InputStream>> request =
+            client.sendAsync(call.request, HttpResponse.BodyHandlers.ofInputStream());
+        call.inFlight.add(request);
+        request.whenComplete((response, error) -> call.inFlight.remove(request));
+        if (call.cancelled) {
+            abort(request);
+        }
+        return request;
+    }
+    
+    /**
+     * Cancels a request still in flight; HttpClient then aborts its exchange.
+     */
+    private void abort(CompletableFuture<HttpResponse<InputStream>> request) {
+        if (!request.isDone() && request.cancel(true)) {
+            aborted.incrementAndGet();
+        }
+    }
+    
+    /**
+     * One sendAsync call: the requests it has in flight and whether its caller cancelled it.
+     */
+    private final class Call {
+        final HttpRequest request;
+        final Set<CompletableFuture<HttpResponse<InputStream>>> inFlight = ConcurrentHashMap.newKeySet();
+        volatile boolean cancelled;
+        
+        Call(HttpRequest request) {
+            this.request = request;
+        }
+        
+        void cancel() {
+            cancelled = true;
+            inFlight.forEach(HttpFetcher.this::abort);
+        }
+    }
+    
+    private static CompletableFuture<HttpResponse<InputStream>> after(
+            long delayNanos, Supplier<CompletableFuture<HttpResponse<InputStream>>> next) {
+        if (delayNanos <= 0) {
+            return next.get();
+        }
+        return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS))
+            .thenCompose(ignored -> next.get());
+    }
+    
+    static boolean isRetryable(int status) {
+        return status == 429 || (status >= 500 && status != 501 && status != 505);
+    }
+    
+    /**
+     * Full jitter: uniform in [0, min(max, base * 2^(attempt-1))].
+     */
+    private long backoffMs(int attempt) {
+        long base = policy.getBackoffBase().toMillis();
+        long cap = policy.getBackoffMax().toMillis();
+        long ceiling = Math.min(cap, base << Math.min(attempt - 1, 30));
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+    
+    /**
+     * Retry-After as delta-seconds or an HTTP date; 0 when absent or unparseable.
+     */
+    static long retryAfterMs(HttpResponse<?> response) {
+        String value = response.headers().firstValue("Retry-After").orElse(null);
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        value = value.trim();
+        long ms;
+        try {
+            ms = Long.parseLong(value) * 1000;
+        } catch (NumberFormatException e) {
+            try {
+                ms = Duration.between(ZonedDateTime.now(),
+                    ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME)).toMillis();
+            } catch (DateTimeParseException dateError) {
+                return 0;
+            }
+        }
+        return Math.max(0, Math.min(ms, MAX_RETRY_AFTER_MS));
+    }
+    
+    private static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+    
+    private static void closeQuietly(HttpResponse<InputStream> response) {
+        try {
+            response.body().close();
+        } catch (IOException ignored) {
+            // Discarded response
+        }
+    }
+    
+    public long getAttempts() { return attempts.get(); }
+    public long getRetries() { return retries.get(); }
+    public long getHedges() { return hedges.get(); }
+    public long getThrottled() { return throttled.get(); }
+    /** Requests cancelled in flight: hedge losers and the requests of cancelled calls. */
+    public long getAborted() { return aborted.get(); }
+    
+    /**
+     * Timeouts, retry, hedging and rate limit settings.
+     */
+    public static class Policy {
+        private final Duration connectTimeout;
+        private final Duration requestTimeout;
+        private final int maxAttempts;
+        private final Duration backoffBase;
+        private final Duration backoffMax;
+        private final Duration hedgeDelay;
+        private final double ratePerSecond;
+        private final int rateBurst;
+        
+        /**
+         * @param hedgeDelay Send a hedge after this long without a response (null = no hedging)
+         * @param ratePerSecond Requests per second across all callers, before {@link #setRateShares} (0 = unlimited)
+         */
+        public Policy(Duration connectTimeout, Duration requestTimeout, int maxAttempts, Duration backoffBase,
+                      Duration backoffMax, Duration hedgeDelay, double ratePerSecond, int rateBurst) {
+            this.connectTimeout = connectTimeout;
+            this.requestTimeout = requestTimeout;
+            this.maxAttempts = Math.max(1, maxAttempts);
+            this.backoffBase = backoffBase;
+            this.backoffMax = backoffMax;
+            this.hedgeDelay = hedgeDelay;
+            this.ratePerSecond = ratePerSecond;
+            this.rateBurst = rateBurst;
+        }
+        
+        public static Policy from(Config config) {
+            return new Policy(
+                Duration.ofMillis(config.getHttpConnectTimeoutMs()),
+                Duration.ofMillis(config.getHttpRequestTimeoutMs()),
+                config.getHttpMaxAttempts(),
+                Duration.ofMillis(config.getHttpBackoffBaseMs()),
+                Duration.ofMillis(config.getHttpBackoffMaxMs()),
+                config.getHttpHedgeDelayMs() > 0 ? Duration.ofMillis(config.getHttpHedgeDelayMs()) : null,
+                config.getHttpRatePerSecond(),
+                config.getHttpRateBurst());
+        }
+        
+        public Duration getConnectTimeout() { return connectTimeout; }
+        public Duration getRequestTimeout() { return requestTimeout; }
+        public int getMaxAttempts() { return maxAttempts; }
+        public Duration getBackoffBase() { return backoffBase; }
+        public Duration getBackoffMax() { return backoffMax; }
+        public Duration getHedgeDelay() { return hedgeDelay; }
+        public double getRatePerSecond() { return ratePerSecond; }
+        public int getRateBurst() { return rateBurst; }
+    }
+}
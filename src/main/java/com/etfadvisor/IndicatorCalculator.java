@@ -1,8 +1,5 @@
 package com.etfadvisor;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Calculates technical indicators: SMA, drawdown, z-score.
  */
@@ -16,18 +13,23 @@ public class IndicatorCalculator {
     
     /**
      * Calculate all indicators from price data.
-     * @param priceData List of daily close prices (most recent last)
+     * @param priceData Daily close prices (most recent last)
      * @return Map with indicators: close_today, sma_200, drawdown_6m, zscore
      */
-    public Indicators calculateAll(List<Double> priceData) {
+    public Indicators calculateAll(PriceSeries priceData) {
         if (priceData == null || priceData.isEmpty()) {
             throw new IllegalArgumentException("Price data is empty");
         }
         
-        double closeToday = priceData.get(priceData.size() - 1);
-        Double sma200 = calculateSMA(priceData, config.getSmaDays());
-        double drawdown6m = calculateDrawdown(priceData, config.getLookbackHighDays());
-        double zscore = calculateZScore(priceData, config.getZscoreWindow());
+        // Loop directly over the backing array: prices[from, to) is this window
+        double[] prices = priceData.closeArray();
+        int from = priceData.arrayOffset();
+        int to = from + priceData.size();
+        
+        double closeToday = prices[to - 1];
+        Double sma200 = calculateSMA(prices, from, to, config.getSmaDays());
+        double drawdown6m = calculateDrawdown(prices, from, to, config.getLookbackHighDays());
+        double zscore = calculateZScore(prices, from, to, config.getZscoreWindow());
         
         return new Indicators(closeToday, sma200, drawdown6m, zscore);
     }
@@ -35,14 +37,14 @@ public class IndicatorCalculator {
     /**
      * Calculate Simple Moving Average.
      */
-    private Double calculateSMA(List<Double> prices, int window) {
-        if (prices.size() < window) {
+    private Double calculateSMA(double[] prices, int from, int to, int window) {
+        if (to - from < window) {
             return null;
         }
         
         double sum = 0.0;
-        for (int i = prices.size() - window; i < prices.size(); i++) {
-            sum += prices.get(i);
+        for (int i = to - window; i < to; i++) {
+            sum += prices[i];
         }
         return sum / window;
     }
@@ -50,13 +52,13 @@ public class IndicatorCalculator {
     /**
      * Calculate drawdown from high.
      */
-    private double calculateDrawdown(List<Double> prices, int lookbackDays) {
-        int actualLookback = Math.min(lookbackDays, prices.size());
-        double closeToday = prices.get(prices.size() - 1);
+    private double calculateDrawdown(double[] prices, int from, int to, int lookbackDays) {
+        int actualLookback = Math.min(lookbackDays, to - from);
+        double closeToday = prices[to - 1];
         
         double maxClose = closeToday;
-        for (int i = prices.size() - actualLookback; i < prices.size(); i++) {
-            maxClose = Math.max(maxClose, prices.get(i));
+        for (int i = to - actualLookback; i < to; i++) {
+            maxClose = Math.max(maxClose, prices[i]);
         }
         
         return (closeToday / maxClose) - 1.0;
@@ -65,21 +67,21 @@ public class IndicatorCalculator {
     /**
      * Calculate z-score of current close vs rolling mean/std.
      */
-    private double calculateZScore(List<Double> prices, int window) {
-        int actualWindow = Math.min(window, prices.size());
-        double closeToday = prices.get(prices.size() - 1);
+    private double calculateZScore(double[] prices, int from, int to, int window) {
+        int actualWindow = Math.min(window, to - from);
+        double closeToday = prices[to - 1];
         
         // Calculate mean
         double sum = 0.0;
-        for (int i = prices.size() - actualWindow; i < prices.size(); i++) {
-            sum += prices.get(i);
+        for (int i = to - actualWindow; i < to; i++) {
+            sum += prices[i];
         }
         double mean = sum / actualWindow;
         
         // Calculate standard deviation
         double variance = 0.0;
-        for (int i = prices.size() - actualWindow; i < prices.size(); i++) {
-            double diff = prices.get(i) - mean;
+        for (int i = to - actualWindow; i < to; i++) {
+            double diff = prices[i] - mean;
             variance += diff * diff;
         }
         variance /= actualWindow;
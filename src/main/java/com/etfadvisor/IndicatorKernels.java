@@ -0,0 +1,198 @@
+package com.etfadvisor;
+
+/**
+ * Whole-series indicator columns: the SMA, drawdown from the rolling high and z-score for
+ * every day of a series, each bit-for-bit equal to IndicatorCalculator.calculateAll on the
+ * series truncated at that day (SMA is NaN where calculateAll returns null).
+ * <p>
+ * Uses the Vector API (VectorIndicatorKernels) when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}, and plain loops otherwise. Both keep
+ * calculateAll's summation order per day, which is what makes the results identical; the
+ * vector version computes one day per lane instead of reordering a single day's sum.
+ */
+public final class IndicatorKernels {
+    
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final Kernel SCALAR = new ScalarKernel();
+    private static final Kernel DEFAULT = loadDefault();
+    
+    private IndicatorKernels() {
+    }
+    
+    /**
+     * One implementation of the three columns. Day i of the output uses prices[from, from + i].
+     */
+    interface Kernel {
+        void sma(double[] prices, int from, int to, int window, double[] out);
+        void drawdown(double[] prices, int from, int to, int lookback, double[] out);
+        void zscore(double[] prices, int from, int to, int window, double[] out);
+    }
+    
+    /**
+     * SMA, drawdown and z-score columns for one series, indexed like the series.
+     */
+    public static final class Columns {
+        private final double[] sma;
+        private final double[] drawdown;
+        private final double[] zscore;
+        
+        Columns(double[] sma, double[] drawdown, double[] zscore) {
+            this.sma = sma;
+            this.drawdown = drawdown;
+            this.zscore = zscore;
+        }
+        
+        public int size() { return sma.length; }
+        public double sma(int i) { return sma[i]; }
+        public double drawdown(int i) { return drawdown[i]; }
+        public double zscore(int i) { return zscore[i]; }
+        public double[] smaArray() { return sma; }
+        public double[] drawdownArray() { return drawdown; }
+        public double[] zscoreArray() { return zscore; }
+    }
+    
+    /**
+     * All three columns with the window lengths from {@code config}.
+     */
+    public static Columns compute(PriceSeries series, Config config) {
+        return compute(DEFAULT, series, config);
+    }
+    
+    static Columns compute(Kernel kernel, PriceSeries series, Config config) {
+        double[] prices = series.closeArray();
+        int from = series.arrayOffset();
+        int to = from + series.size();
+        double[] sma = new double[series.size()];
+        double[] drawdown = new double[series.size()];
+        double[] zscore = new double[series.size()];
+        kernel.sma(prices, from, to, config.getSmaDays(), sma);
+        kernel.drawdown(prices, from, to, config.getLookbackHighDays(), drawdown);
+        kernel.zscore(prices, from, to, config.getZscoreWindow(), zscore);
+        return new Columns(sma, drawdown, zscore);
+    }
+    
+    /**
+     * SMA of the last {@code window} closes for each day (NaN until a full window exists).
+     */
+    public static double[] sma(double[] prices, int window) {
+        double[] out = new double[prices.length];
+        DEFAULT.sma(prices, 0, prices.length, window, out);
+        return out;
+    }
+    
+    /**
+     * Close over the highest close of the last {@code lookback} days, minus one.
+     */
+    public static double[] drawdown(double[] prices, int lookback) {
+        double[] out = new double[prices.length];
+        DEFAULT.drawdown(prices, 0, prices.length, lookback, out);
+        return out;
+    }
+    
+    /**
+     * Z-score of each close against the mean and population std of the last {@code window}
+     * closes (fewer at the start of the series; 0 when the std is 0).
+     */
+    public static double[] zscore(double[] prices, int window) {
+        double[] out = new double[prices.length];
+        DEFAULT.zscore(prices, 0, prices.length, window, out);
+        return out;
+    }
+    
+    /**
+     * True when the Vector API kernels are in use.
+     */
+    public static boolean isVectorized() {
+        return DEFAULT != SCALAR;
+    }
+    
+    static Kernel scalar() {
+        return SCALAR;
+    }
+    
+    static Kernel defaultKernel() {
+        return DEFAULT;
+    }
+    
+    private static Kernel loadDefault() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return SCALAR;
+        }
+        try {
+            return new VectorIndicatorKernels();
+        } catch (LinkageError e) {
+            return SCALAR;
+        }
+    }
+    
+    /**
+     * Reference loops, the same arithmetic as IndicatorCalculator applied day by day. The static
+     * variants cover days [start, to) only, for the partial windows and leftovers of the vector kernel.
+     */
+    static final class ScalarKernel implements Kernel {
+        
+        @Override
+        public void sma(double[] prices, int from, int to, int window, double[] out) {
+            sma(prices, from, from, to, window, out);
+        }
+        
+        static void sma(double[] prices, int from, int start, int to, int window, double[] out) {
+            for (int t = start; t < to; t++) {
+                if (t + 1 - from < window) {
+                    out[t - from] = Double.NaN;
+                    continue;
+                }
+                double sum = 0.0;
+                for (int i = t + 1 - window; i <= t; i++) {
+                    sum += prices[i];
+                }
+                out[t - from] = sum / window;
+            }
+        }
+        
+        @Override
+        public void drawdown(double[] prices, int from, int to, int lookback, double[] out) {
+            drawdown(prices, from, from, to, lookback, out);
+        }
+        
+        static void drawdown(double[] prices, int from, int start, int to, int lookback, double[] out) {
+            for (int t = start; t < to; t++) {
+                int actualLookback = Math.min(lookback, t + 1 - from);
+                double closeToday = prices[t];
+                double maxClose = closeToday;
+                for (int i = t + 1 - actualLookback; i <= t; i++) {
+                    maxClose = Math.max(maxClose, prices[i]);
+                }
+                out[t - from] = (closeToday / maxClose) - 1.0;
+            }
+        }
+        
+        @Override
+        public void zscore(double[] prices, int from, int to, int window, double[] out) {
+            zscore(prices, from, from, to, window, out);
+        }
+        
+        static void zscore(double[] prices, int from, int start, int to, int window, double[] out) {
+            for (int t = start; t < to; t++) {
+                int actualWindow = Math.min(window, t + 1 - from);
+                double closeToday = prices[t];
+                
+                double sum = 0.0;
+                for (int i = t + 1 - actualWindow; i <= t; i++) {
+                    sum += prices[i];
+                }
+                double mean = sum / actualWindow;
+                
+                double variance = 0.0;
+                for (int i = t + 1 - actualWindow; i <= t; i++) {
+                    double diff = prices[i] - mean;
+                    variance += diff * diff;
+                }
+                variance /= actualWindow;
+                double std = Math.sqrt(variance);
+                
+                out[t - from] = std == 0 ? 0.0 : (closeToday - mean) / std;
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.etfadvisor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * NYSE trading days: weekdays other than the exchange's regular full-day holidays.
+ * Unscheduled closures (e.g. national days of mourning) are not known and count as trading days.
+ */
+final class MarketCalendar {
+    
+    private MarketCalendar() {
+    }
+    
+    static boolean isTradingDay(LocalDate date) {
+        DayOfWeek day = date.getDayOfWeek();
+        return day != DayOfWeek.SATURDAY && day != DayOfWeek.SUNDAY && !holidays(date.getYear()).contains(date);
+    }
+    
+    static LocalDate firstTradingDayOnOrAfter(LocalDate date) {
+        while (!isTradingDay(date)) {
+            date = date.plusDays(1);
+        }
+        return date;
+    }
+    
+    /**
+     * The year's NYSE holidays, on the weekday they are observed.
+     */
+    static List<LocalDate> holidays(int year) {
+        List<LocalDate> days = new ArrayList<>();
+        LocalDate newYear = LocalDate.of(year, 1, 1);
+        // A Saturday New Year's Day is not made up on the Friday before
+        if (newYear.getDayOfWeek() != DayOfWeek.SATURDAY) {
+            days.add(observed(newYear));
+        }
+        days.add(newYear.with(TemporalAdjusters.dayOfWeekInMonth(3, DayOfWeek.MONDAY)));
+        days.add(LocalDate.of(year, 2, 1).with(TemporalAdjusters.dayOfWeekInMonth(3, DayOfWeek.MONDAY)));
+        days.add(easter(year).minusDays(2));
+        days.add(LocalDate.of(year, 5, 1).with(TemporalAdjusters.lastInMonth(DayOfWeek.MONDAY)));
+        if (year >= 2022) {
+            days.add(observed(LocalDate.of(year, 6, 19)));
+        }
+        days.add(observed(LocalDate.of(year, 7, 4)));
+        days.add(LocalDate.of(year, 9, 1).with(TemporalAdjusters.firstInMonth(DayOfWeek.MONDAY)));
+        days.add(LocalDate.of(year, 11, 1).with(TemporalAdjusters.dayOfWeekInMonth(4, DayOfWeek.THURSDAY)));
+        days.add(observed(LocalDate.of(year, 12, 25)));
+        return days;
+    }
+    
+    /**
+     * Saturday holidays close the Friday before, Sunday ones the Monday after.
+     */
+    private static LocalDate observed(LocalDate holiday) {
+        switch (holiday.getDayOfWeek()) {
+            case SATURDAY: return holiday.minusDays(1);
+            case SUNDAY: return holiday.plusDays(1);
+            default: return holiday;
+        }
+    }
+    
+    /**
+     * Gregorian Easter Sunday (anonymous Gregorian algorithm).
+     */
+    private static LocalDate easter(int year) {
+        int a = year % 19;
+        int b = year / 100;
+        int c = year % 100;
+        int d = b / 4;
+        int e = b % 4;
+        int f = (b + 8) / 25;
+        int g = (b - f + 1) / 3;
+        int h = (19 * a + b - d - g + 15) % 30;
+        int i = c / 4;
+        int k = c % 4;
+        int l = (32 + 2 * e + 2 * i - h - k) % 7;
+        int m = (a + 11 * h + 22 * l) / 451;
+        int month = (h + l - 7 * m + 114) / 31;
+        int day = (h + l - 7 * m + 114) % 31 + 1;
+        return LocalDate.of(year, month, day);
+    }
+}
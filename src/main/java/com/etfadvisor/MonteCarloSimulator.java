@@ -0,0 +1,380 @@
+package com.etfadvisor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+/**
+ * How robust the buy score strategy is beyond the single historical path of each ticker.
+ * Synthetic price paths are resampled from a ticker's daily returns with a stationary block
+ * bootstrap: runs of consecutive historical days, with geometric lengths of mean --block,
+ * wrapping around at the end. Volatility clusters and trends of about that length survive,
+ * but their order changes. Each path is scored like Backtester (RollingIndicators, then the
+ * configured formula and tiers from MIN_DAYS_NEEDED on). Every scored day buys the tier's
+ * suggested amount, and the result is compared with buying the baseline DCA amount every day.
+ * <p>
+ * Paths run on the fork-join pool in fixed chunks. Each chunk has a SplittableRandom split,
+ * in order, from a stream seeded by --seed and the ticker. Results therefore depend only on
+ * the seed and the ticker, not on the thread count or which other tickers are simulated.
+ *
+ * Usage: MonteCarloSimulator [--data DIR] [--tickers VOO,QQQ,...] [--paths 1000] [--block 20]
+ *          [--days N] [--seed 42] [--out FILE]
+ *   --days is the path length in trading days (default: the ticker's history length).
+ *   --out writes one row of percentiles per ticker plus ALL (every path pooled).
+ */
+public class MonteCarloSimulator {
+    
+    // Paths per parallel task (and per SplittableRandom split)
+    private static final int CHUNK = 256;
+    private static final double[] PERCENTILES = {0.05, 0.25, 0.50, 0.75, 0.95};
+    private static final String[] METRICS = {"return", "excess_return", "max_drawdown", "buy_day_share"};
+    
+    private final Config config;
+    private final BuyScoreCalculator calculator;
+    private final double meanBlock;
+    
+    /**
+     * @param meanBlock Mean bootstrap block length in days (1 = independent daily returns)
+     */
+    public MonteCarloSimulator(Config config, double meanBlock) {
+        if (!(meanBlock >= 1)) {
+            throw new IllegalArgumentException("Mean block length must be at least 1: " + meanBlock);
+        }
+        this.config = config;
+        this.calculator = new BuyScoreCalculator(config);
+        this.meanBlock = meanBlock;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Path dataDir = Paths.get("data");
+        Path outFile = null;
+        List<String> tickers = null;
+        int paths = 1000;
+        double block = 20;
+        int days = 0;
+        long seed = 42;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--data": dataDir = Paths.get(args[++i]); break;
+                case "--out": outFile = Paths.get(args[++i]); break;
+                case "--tickers": tickers = Arrays.stream(args[++i].split(","))
+                    .map(String::trim).map(String::toUpperCase).filter(s -> !s.isEmpty())
+                    .collect(Collectors.toList()); break;
+                case "--paths": paths = Integer.parseInt(args[++i]); break;
+                case "--block": block = Double.parseDouble(args[++i]); break;
+                case "--days": days = Integer.parseInt(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        if (tickers == null) {
+            tickers = Backtester.listTickers(dataDir);
+        }
+        
+        Map<String, PriceSeries> histories = new LinkedHashMap<>();
+        for (String ticker : tickers) {
+            histories.put(ticker, Backtester.loadHistory(dataDir, ticker));
+        }
+        
+        long start = System.nanoTime();
+        MonteCarloSimulator simulator = new MonteCarloSimulator(new Config(), block);
+        List<Distribution> results = simulator.run(histories, paths, days, seed);
+        long elapsedNs = System.nanoTime() - start;
+        
+        List<Distribution> rows = new ArrayList<>(results);
+        if (results.size() > 1) {
+            rows.add(Distribution.pooled("ALL", results));
+        }
+        printTable(rows);
+        long pathDays = results.stream().mapToLong(d -> (long) d.size() * d.getDays()).sum();
+        System.out.printf("Simulated %d paths x %d tickers (%d path-days, mean block %.1f, seed %d) in %d ms (%.1f ns/path-day)%n",
+            paths, results.size(), pathDays, block, seed, elapsedNs / 1_000_000, (double) elapsedNs / Math.max(1, pathDays));
+            
+        if (outFile != null) {
+            writeCsv(rows, outFile);
+            System.out.println("Wrote " + outFile);
+        }
+    }
+    
+    /**
+     * Simulates {@code paths} paths per ticker. Tickers without more than MIN_DAYS_NEEDED
+     * closes are skipped; results are in input order.
+     * @param days Path length (0 = each ticker's history length)
+     */
+    public List<Distribution> run(Map<String, PriceSeries> histories, int paths, int days, long seed) {
+        if (paths < 1) {
+            throw new IllegalArgumentException("Need at least one path: " + paths);
+        }
+        if (days != 0 && days <= Backtester.MIN_DAYS_NEEDED) {
+            throw new IllegalArgumentException("Paths need more than " + Backtester.MIN_DAYS_NEEDED + " days: " + days);
+        }
+        
+        List<Distribution> results = new ArrayList<>();
+        List<Chunk> chunks = new ArrayList<>();
+        for (Map.Entry<String, PriceSeries> e : histories.entrySet()) {
+            PriceSeries series = e.getValue();
+            if (series.size() <= Backtester.MIN_DAYS_NEEDED) {
+                continue;
+            }
+            double[] closes = series.closesToArray();
+            double[] growth = new double[closes.length - 1];
+            for (int i = 1; i < closes.length; i++) {
+                growth[i - 1] = closes[i] / closes[i - 1];
+            }
+            Distribution result = new Distribution(e.getKey(), paths, days > 0 ? days : closes.length);
+            results.add(result);
+            
+            SplittableRandom tickerRandom = new SplittableRandom(seed ^ (e.getKey().hashCode() * 0x9E3779B97F4A7C15L));
+            for (int from = 0; from < paths; from += CHUNK) {
+                chunks.add(new Chunk(result, growth, closes[0], from, Math.min(paths, from + CHUNK), tickerRandom.split()));
+            }
+        }
+        
+        chunks.parallelStream().forEach(this::simulate);
+        for (Chunk chunk : chunks) {
+            for (int t = 0; t < chunk.tierDays.length; t++) {
+                chunk.result.tierDays[t] += chunk.tierDays[t];
+            }
+        }
+        return results;
+    }
+    
+    private void simulate(Chunk chunk) {
+        double[] indicators = new double[4];
+        double[] components = new double[ScoringFormula.COMPONENTS.size()];
+        Distribution out = chunk.result;
+        double[] growth = chunk.growth;
+        double restart = 1.0 / meanBlock;
+        int scoredDays = out.days - Backtester.MIN_DAYS_NEEDED;
+        double baselineInvested = Backtester.BASELINE_DCA_USD * scoredDays;
+        
+        for (int path = chunk.from; path < chunk.to; path++) {
+            SplittableRandom random = chunk.random;
+            RollingIndicators rolling = new RollingIndicators(config);
+            int pos = random.nextInt(growth.length);
+            double price = chunk.firstClose;
+            double peak = 0.0;
+            double maxDrawdown = 0.0;
+            double shares = 0.0;
+            double invested = 0.0;
+            double baselineShares = 0.0;
+            int buyDays = 0;
+            
+            for (int day = 0; day < out.days; day++) {
+                if (day > 0) {
+                    // Stationary bootstrap: start a new block with probability 1 / meanBlock
+                    if (random.nextDouble() < restart) {
+                        pos = random.nextInt(growth.length);
+                    } else if (++pos == growth.length) {
+                        pos = 0;
+                    }
+                    price *= growth[pos];
+                }
+                rolling.push(price);
+                if (day < Backtester.MIN_DAYS_NEEDED) {
+                    continue;
+                }
+                
+                peak = Math.max(peak, price);
+                maxDrawdown = Math.min(maxDrawdown, price / peak - 1.0);
+                
+                rolling.current(indicators);
+                Tier tier = Tier.of(calculator.score(indicators[0], indicators[1], indicators[2], indicators[3],
+                    components), config);
+                double buyUsd = Backtester.suggestedBuyUsd(tier);
+                shares += buyUsd / price;
+                invested += buyUsd;
+                baselineShares += Backtester.BASELINE_DCA_USD / price;
+                chunk.tierDays[tier.ordinal()]++;
+                if (tier.isBuy()) {
+                    buyDays++;
+                }
+            }
+            
+            double strategyReturn = invested > 0 ? shares * price / invested - 1.0 : Double.NaN;
+            double baselineReturn = baselineShares * price / baselineInvested - 1.0;
+            out.returns[path] = strategyReturn;
+            out.excessReturns[path] = strategyReturn - baselineReturn;
+            out.maxDrawdowns[path] = maxDrawdown;
+            out.buyDayShares[path] = (double) buyDays / scoredDays;
+        }
+    }
+    
+    /**
+     * Paths [from, to) of one ticker, with their own random stream.
+     */
+    private static final class Chunk {
+        final Distribution result;
+        final double[] growth;
+        final double firstClose;
+        final int from;
+        final int to;
+        final SplittableRandom random;
+        final long[] tierDays = new long[Tier.values().length];
+        
+        Chunk(Distribution result, double[] growth, double firstClose, int from, int to, SplittableRandom random) {
+            this.result = result;
+            this.growth = growth;
+            this.firstClose = firstClose;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+    }
+    
+    /**
+     * Outcome of every simulated path of a ticker. Returns are final value over amount
+     * invested minus one (NaN for a path that never buys); excess returns subtract the
+     * baseline DCA return on the same path; max drawdown is the deepest fall of the path's
+     * close from its running high over the scored days (negative).
+     */
+    public static final class Distribution {
+        private final String ticker;
+        private final int days;
+        private final double[] returns;
+        private final double[] excessReturns;
+        private final double[] maxDrawdowns;
+        private final double[] buyDayShares;
+        private final long[] tierDays = new long[Tier.values().length];
+        
+        Distribution(String ticker, int paths, int days) {
+            this.ticker = ticker;
+            this.days = days;
+            this.returns = new double[paths];
+            this.excessReturns = new double[paths];
+            this.maxDrawdowns = new double[paths];
+            this.buyDayShares = new double[paths];
+        }
+        
+        /**
+         * Every path of {@code parts} as one distribution (days is the longest part's).
+         */
+        static Distribution pooled(String name, List<Distribution> parts) {
+            int paths = parts.stream().mapToInt(Distribution::size).sum();
+            Distribution pooled = new Distribution(name, paths, parts.stream().mapToInt(d -> d.days).max().orElse(0));
+            int at = 0;
+            for (Distribution d : parts) {
+                System.arraycopy(d.returns, 0, pooled.returns, at, d.size());
+                System.arraycopy(d.excessReturns, 0, pooled.excessReturns, at, d.size());
+                System.arraycopy(d.maxDrawdowns, 0, pooled.maxDrawdowns, at, d.size());
+                System.arraycopy(d.buyDayShares, 0, pooled.buyDayShares, at, d.size());
+                for (int t = 0; t < pooled.tierDays.length; t++) {
+                    pooled.tierDays[t] += d.tierDays[t];
+                }
+                at += d.size();
+            }
+            return pooled;
+        }
+        
+        public String getTicker() { return ticker; }
+        public int getDays() { return days; }
+        public int size() { return returns.length; }
+        public double[] getReturns() { return returns; }
+        public double[] getExcessReturns() { return excessReturns; }
+        public double[] getMaxDrawdowns() { return maxDrawdowns; }
+        public double[] getBuyDayShares() { return buyDayShares; }
+        
+        /**
+         * Share of all scored path-days spent in {@code tier}.
+         */
+        public double tierShare(Tier tier) {
+            long total = Arrays.stream(tierDays).sum();
+            return total > 0 ? (double) tierDays[tier.ordinal()] / total : Double.NaN;
+        }
+        
+        /**
+         * Share of paths that beat the baseline DCA (paths that never buy count as not beating it).
+         */
+        public double beatBaselineShare() {
+            return (double) Arrays.stream(excessReturns).filter(x -> x > 0).count() / size();
+        }
+        
+        double[] metric(int index) {
+            switch (index) {
+                case 0: return returns;
+                case 1: return excessReturns;
+                case 2: return maxDrawdowns;
+                default: return buyDayShares;
+            }
+        }
+    }
+    
+    /**
+     * Nearest-rank percentiles of the non-NaN values (NaN if there are none).
+     */
+    static double[] percentiles(double[] values, double[] ps) {
+        double[] sorted = Arrays.stream(values).filter(x -> !Double.isNaN(x)).sorted().toArray();
+        double[] result = new double[ps.length];
+        for (int i = 0; i < ps.length; i++) {
+            result[i] = sorted.length > 0 ? sorted[(int) Math.round(ps[i] * (sorted.length - 1))] : Double.NaN;
+        }
+        return result;
+    }
+    
+    static double mean(double[] values) {
+        return Arrays.stream(values).filter(x -> !Double.isNaN(x)).average().orElse(Double.NaN);
+    }
+    
+    private static void printTable(List<Distribution> rows) {
+        System.out.printf("%-6s %7s %24s %24s %8s %16s %6s %23s%n", "ticker", "paths",
+            "return p5/p50/p95", "excess p5/p50/p95", "beat", "maxDD p50/p5", "buy%", "tiers SB/B/DCA/W");
+        for (Distribution d : rows) {
+            double[] ret = percentiles(d.returns, PERCENTILES);
+            double[] excess = percentiles(d.excessReturns, PERCENTILES);
+            double[] dd = percentiles(d.maxDrawdowns, PERCENTILES);
+            System.out.printf("%-6s %7d %7.1f%% %7.1f%% %7.1f%% %7.1f%% %7.1f%% %7.1f%% %7.1f%% %7.1f%% %6.1f%% %5.1f%% %4.0f/%2.0f/%2.0f/%2.0f%%%n",
+                d.ticker, d.size(), 100 * ret[0], 100 * ret[2], 100 * ret[4],
+                100 * excess[0], 100 * excess[2], 100 * excess[4], 100 * d.beatBaselineShare(),
+                100 * dd[2], 100 * dd[0], 100 * mean(d.buyDayShares),
+                100 * d.tierShare(Tier.STRONG_BUY), 100 * d.tierShare(Tier.BUY),
+                100 * d.tierShare(Tier.DCA_ONLY), 100 * d.tierShare(Tier.WAIT));
+        }
+    }
+    
+    private static void writeCsv(List<Distribution> rows, Path outFile) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(outFile, StandardCharsets.UTF_8)) {
+            StringBuilder header = new StringBuilder("ticker,paths,days");
+            for (String metric : METRICS) {
+                for (double p : PERCENTILES) {
+                    header.append(',').append(metric).append("_p").append(Math.round(p * 100));
+                }
+                header.append(',').append(metric).append("_mean");
+            }
+            header.append(",beat_baseline_share");
+            for (Tier tier : Tier.values()) {
+                header.append(',').append(tier.name().toLowerCase()).append("_share");
+            }
+            out.write(header.toString());
+            out.write('\n');
+            
+            StringBuilder row = new StringBuilder(512);
+            for (Distribution d : rows) {
+                row.setLength(0);
+                row.append(d.ticker).append(',').append(d.size()).append(',').append(d.days);
+                for (int m = 0; m < METRICS.length; m++) {
+                    for (double value : percentiles(d.metric(m), PERCENTILES)) {
+                        row.append(',').append(Backtester.formatDouble(value));
+                    }
+                    row.append(',').append(Backtester.formatDouble(mean(d.metric(m))));
+                }
+                row.append(',').append(Backtester.formatDouble(d.beatBaselineShare()));
+                for (Tier tier : Tier.values()) {
+                    row.append(',').append(Backtester.formatDouble(d.tierShare(tier)));
+                }
+                row.append('\n');
+                out.append(row);
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.etfadvisor;
+
+import java.util.List;
+
+/**
+ * One message ready to send: a recipient group's daily digest or a batch of tier-change alerts.
+ */
+public class Notification {
+    
+    public enum Kind {
+        DIGEST,
+        ALERT
+    }
+    
+    private final Kind kind;
+    private final String group;
+    private final List<String> recipients;
+    private final String subject;
+    private final String html;
+    
+    public Notification(Kind kind, String group, List<String> recipients, String subject, String html) {
+        this.kind = kind;
+        this.group = group;
+        this.recipients = recipients;
+        this.subject = subject;
+        this.html = html;
+    }
+    
+    public Kind getKind() { return kind; }
+    public String getGroup() { return group; }
+    public List<String> getRecipients() { return recipients; }
+    public String getSubject() { return subject; }
+    public String getHtml() { return html; }
+}
@@ -0,0 +1,307 @@
+package com.etfadvisor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Takes notification jobs off the scoring path. Jobs wait on a bounded queue (submit blocks
+ * when it is full); one dispatch thread drains it, waiting up to NOTIFY_LINGER_MS for more
+ * jobs, and coalesces each batch: the latest digest per recipient group wins, and all alerts
+ * for a group become one message with the latest line per key. Messages are rendered and sent
+ * on NOTIFY_SENDERS threads; when all of them are busy the dispatch thread waits, which in
+ * turn fills the queue and holds back producers.
+ */
+public class NotificationDispatcher implements AutoCloseable {
+    
+    private static final long POLL_MS = 100;
+    
+    private final NotificationSender sender;
+    private final Map<String, List<String>> groups;
+    private final BlockingQueue<Job> queue;
+    private final ExecutorService senders;
+    private final Semaphore inFlight;
+    private final long lingerNanos;
+    private final Thread dispatchThread;
+    // Submitters hold the read lock from the closed check through the put, so close() (write
+    // lock) cannot slip in between and leave a job on a queue nobody drains
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+    
+    // Jobs submitted but not yet sent, failed or coalesced away (guarded by this)
+    private long outstanding;
+    
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile String lastError;
+    
+    private static final class Job {
+        final Notification.Kind kind;
+        final String group;
+        final String key;
+        final String subject;
+        final Supplier<String> html;
+        final RunMetrics metrics;
+        
+        Job(Notification.Kind kind, String group, String key, String subject, Supplier<String> html,
+            RunMetrics metrics) {
+            this.kind = kind;
+            this.group = group;
+            this.key = key;
+            this.subject = subject;
+            this.html = html;
+            this.metrics = metrics;
+        }
+    }
+    
+    public NotificationDispatcher(NotificationSender sender, Config config) {
+        this.sender = sender;
+        this.groups = config.getRecipientGroups();
+        this.queue = new ArrayBlockingQueue<>(config.getNotifyQueueCapacity());
+        this.senders = Executors.newFixedThreadPool(config.getNotifySenders(), r -> {
+            Thread t = new Thread(r, "notify-send");
+            t.setDaemon(true);
+            return t;
+        });
+        this.inFlight = new Semaphore(config.getNotifySenders());
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(config.getNotifyLingerMs());
+        this.dispatchThread = new Thread(this::runDispatch, "notify-dispatch");
+        dispatchThread.setDaemon(true);
+        dispatchThread.start();
+    }
+    
+    /**
+     * Queues a group's digest. The body is rendered on a sender thread; a later digest for the
+     * same group in the same batch replaces this one.
+     * @param metrics Records render and send time (null = not recorded)
+     */
+    public void submitDigest(String group, String subject, Supplier<String> html, RunMetrics metrics)
+            throws InterruptedException {
+        submit(new Job(Notification.Kind.DIGEST, group, group, subject, html, metrics));
+    }
+    
+    /**
+     * Queues one alert line (plain text) for a group. Alerts for a group in the same batch are
+     * sent as one message, keeping the latest line per {@code key} (e.g. the ticker).
+     */
+    public void submitAlert(String group, String key, String subject, String line) throws InterruptedException {
+        submit(new Job(Notification.Kind.ALERT, group, key, subject, () -> line, null));
+    }
+    
+    private void submit(Job job) throws InterruptedException {
+        if (!groups.containsKey(job.group)) {
+            throw new IllegalArgumentException("Unknown recipient group: " + job.group);
+        }
+        closeLock.readLock().lockInterruptibly();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Dispatcher is closed");
+            }
+            synchronized (this) {
+                outstanding++;
+            }
+            submitted.incrementAndGet();
+            try {
+                queue.put(job);
+            } catch (InterruptedException e) {
+                done(1);
+                throw e;
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Waits until every submitted job has been sent, failed or coalesced.
+     * @return false if the timeout passed first
+     */
+    public synchronized boolean awaitIdle(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (outstanding > 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+    
+    private synchronized void done(long jobs) {
+        outstanding -= jobs;
+        if (outstanding == 0) {
+            notifyAll();
+        }
+    }
+    
+    private void runDispatch() {
+        List<Job> batch = new ArrayList<>();
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Job first = queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Linger so jobs submitted together go out together
+                long deadline = System.nanoTime() + lingerNanos;
+                long remaining;
+                while ((remaining = deadline - System.nanoTime()) > 0) {
+                    Job next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                queue.drainTo(batch);
+                dispatch(batch);
+            } catch (InterruptedException e) {
+                if (closed) {
+                    break;
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    private void dispatch(List<Job> batch) throws InterruptedException {
+        Map<String, Job> digests = new LinkedHashMap<>();
+        Map<String, Map<String, Job>> alerts = new LinkedHashMap<>();
+        // Jobs and messages not yet handed to a sender
+        long unsentJobs = batch.size();
+        for (Job job : batch) {
+            Job replaced = job.kind == Notification.Kind.DIGEST
+                ? digests.put(job.group, job)
+                : alerts.computeIfAbsent(job.group, g -> new LinkedHashMap<>()).put(job.key, job);
+            if (replaced != null) {
+                coalesced.incrementAndGet();
+                done(1);
+                unsentJobs--;
+            }
+        }
+        
+        int unsentMessages = digests.size() + alerts.size();
+        try {
+            for (Job digest : digests.values()) {
+                send(1, digest.metrics, () -> new Notification(Notification.Kind.DIGEST, digest.group,
+                    groups.get(digest.group), digest.subject, digest.html.get()));
+                unsentJobs--;
+                unsentMessages--;
+            }
+            for (Map.Entry<String, Map<String, Job>> entry : alerts.entrySet()) {
+                List<Job> lines = new ArrayList<>(entry.getValue().values());
+                send(lines.size(), null, () -> alertNotification(entry.getKey(), lines));
+                coalesced.addAndGet(lines.size() - 1);
+                unsentJobs -= lines.size();
+                unsentMessages--;
+            }
+        } catch (InterruptedException e) {
+            // Interrupted waiting for a free sender: the rest of the batch is dropped and counted
+            // as failed, so awaitIdle does not wait for it
+            failed.addAndGet(unsentMessages);
+            lastError = "Dispatch interrupted with " + unsentMessages + " message(s) unsent";
+            done(unsentJobs);
+            throw e;
+        }
+    }
+    
+    /**
+     * Renders and sends on a sender thread once one is free.
+     * @param jobs Submitted jobs this message accounts for
+     */
+    private void send(int jobs, RunMetrics metrics, Supplier<Notification> build) throws InterruptedException {
+        inFlight.acquire();
+        senders.execute(() -> {
+            try {
+                long start = System.nanoTime();
+                Notification notification = build.get();
+                if (metrics != null) {
+                    metrics.record(RunMetrics.Stage.RENDER, start);
+                    start = System.nanoTime();
+                }
+                sender.send(notification);
+                if (metrics != null) {
+                    metrics.record(RunMetrics.Stage.SEND, start);
+                }
+                sent.incrementAndGet();
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                lastError = e.getMessage();
+            } finally {
+                inFlight.release();
+                done(jobs);
+            }
+        });
+    }
+    
+    private Notification alertNotification(String group, List<Job> lines) {
+        StringBuilder html = new StringBuilder("<html><body><h2>Tier changes</h2><ul>");
+        for (Job line : lines) {
+            html.append("<li>");
+            appendEscaped(html, line.html.get());
+            html.append("</li>");
+        }
+        html.append("</ul></body></html>");
+        return new Notification(Notification.Kind.ALERT, group, groups.get(group),
+            lines.get(lines.size() - 1).subject, html.toString());
+    }
+    
+    private static void appendEscaped(StringBuilder out, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<': out.append("&lt;"); break;
+                case '>': out.append("&gt;"); break;
+                case '&': out.append("&amp;"); break;
+                default: out.append(c);
+            }
+        }
+    }
+    
+    /**
+     * Stops taking jobs, sends what is queued and shuts the threads down. If the caller is
+     * interrupted while waiting, the (daemon) threads finish on their own and the interrupt
+     * flag is restored.
+     */
+    @Override
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            dispatchThread.join();
+            senders.shutdown();
+            senders.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            senders.shutdown();
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    public long getSubmitted() { return submitted.get(); }
+    public long getCoalesced() { return coalesced.get(); }
+    public long getSent() { return sent.get(); }
+    public long getFailed() { return failed.get(); }
+    
+    /** Message of the most recent failed send, or null. */
+    public String getLastError() { return lastError; }
+}
@@ -0,0 +1,10 @@
+package com.etfadvisor;
+
+/**
+ * Delivers a notification (SES in the Lambda, an in-memory sink locally).
+ * Called from several dispatcher threads at once.
+ */
+public interface NotificationSender {
+    
+    void send(Notification notification) throws Exception;
+}
@@ -0,0 +1,678 @@
+package com.etfadvisor;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigInteger;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads yfinance OHLCV exports (Date, Open, High, Low, Close, Volume, Dividends, Stock Splits,
+ * Capital Gains) into primitive columns. The file is memory-mapped and parsed in place: no
+ * per-row Strings, fixed-layout timestamps ("2021-01-04 00:00:00-05:00" or "2021-01-04"), and
+ * a hand-rolled number parser that gives the same double as Double.parseDouble (Clinger's
+ * fast path, then Eisel-Lemire, with Double.parseDouble itself for the rare leftovers).
+ * Columns that are not requested are skipped without being parsed.
+ *
+ * Usage: OhlcvCsvLoader [--data data | --file path] [--columns close,volume] [--repeat 5]
+ */
+public final class OhlcvCsvLoader {
+    
+    public enum Column {
+        OPEN("Open"),
+        HIGH("High"),
+        LOW("Low"),
+        CLOSE("Close"),
+        VOLUME("Volume"),
+        DIVIDENDS("Dividends"),
+        STOCK_SPLITS("Stock Splits"),
+        CAPITAL_GAINS("Capital Gains");
+        
+        private final String header;
+        
+        Column(String header) {
+            this.header = header;
+        }
+        
+        public String getHeader() { return header; }
+    }
+    
+    private static final Column[] COLUMNS = Column.values();
+    private static final int SKIP = -2;
+    private static final int DATE = -1;
+    private static final int VOLUME = Column.VOLUME.ordinal();
+    private static final int WINDOW_BYTES = 1 << 20;
+    
+    private OhlcvCsvLoader() {
+    }
+    
+    /**
+     * Loaded rows, oldest first. Arrays may be longer than size(); missing or empty
+     * fields are NaN (volume: 0).
+     */
+    public static final class Bars {
+        private final int size;
+        private final int[] epochDays;
+        private final long[] epochSeconds;
+        private final double[][] values;
+        private final long[] volumes;
+        
+        Bars(int size, int[] epochDays, long[] epochSeconds, double[][] values, long[] volumes) {
+            this.size = size;
+            this.epochDays = epochDays;
+            this.epochSeconds = epochSeconds;
+            this.values = values;
+            this.volumes = volumes;
+        }
+        
+        public int size() { return size; }
+        
+        /** Calendar date of row i in the exchange's time zone (the date part of the timestamp). */
+        public int epochDay(int i) { return epochDays[i]; }
+        
+        /** Timestamp of row i as seconds since the epoch (UTC). */
+        public long epochSecond(int i) { return epochSeconds[i]; }
+        
+        public boolean has(Column column) {
+            return column == Column.VOLUME ? volumes != null : values[column.ordinal()] != null;
+        }
+        
+        public double value(Column column, int i) {
+            return column == Column.VOLUME ? volumes[i] : values[column.ordinal()][i];
+        }
+        
+        /**
+         * Backing array of a price column (null if not loaded). Not for VOLUME.
+         */
+        public double[] doubles(Column column) {
+            if (column == Column.VOLUME) {
+                throw new IllegalArgumentException("Volume is a long column");
+            }
+            return values[column.ordinal()];
+        }
+        
+        public long[] volumes() { return volumes; }
+        public int[] epochDayArray() { return epochDays; }
+        public long[] epochSecondArray() { return epochSeconds; }
+        
+        /**
+         * Dates and closes, without rows whose close is missing.
+         */
+        public PriceSeries closes() {
+            double[] closes = doubles(Column.CLOSE);
+            if (closes == null) {
+                throw new IllegalStateException("Close column not loaded");
+            }
+            int count = 0;
+            int[] days = epochDays;
+            for (int i = 0; i < size; i++) {
+                if (Double.isNaN(closes[i])) {
+                    if (days == epochDays) {
+                        // First gap: switch to compacted copies
+                        days = Arrays.copyOf(epochDays, size);
+                        closes = Arrays.copyOf(closes, size);
+                    }
+                    continue;
+                }
+                days[count] = days[i];
+                closes[count] = closes[i];
+                count++;
+            }
+            return PriceSeries.wrap(days, closes, count);
+        }
+    }
+    
+    /**
+     * Every column present in the file.
+     */
+    public static Bars load(Path file) throws IOException {
+        return load(file, null);
+    }
+    
+    /**
+     * Only the requested columns (Date is always loaded).
+     * @param columns Columns to parse (null = all present); a requested column missing from the header is an error
+     */
+    public static Bars load(Path file, Set<Column> columns) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("CSV file larger than 2 GB: " + file);
+            }
+            int limit = (int) fileSize;
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, limit);
+            // The mapping is read in bulk into this window, whole lines at a time; per-byte
+            // reads through the buffer are several times slower than array access
+            byte[] window = new byte[Math.min(limit, WINDOW_BYTES)];
+            buf.get(0, window, 0, window.length);
+            
+            // Header: the only line decoded as text
+            int headerEnd = 0;
+            while (headerEnd < window.length && window[headerEnd] != '\n') {
+                headerEnd++;
+            }
+            if (headerEnd == 0) {
+                throw new IOException("Empty CSV file: " + file);
+            }
+            String[] names = new String(window, 0, headerEnd, StandardCharsets.UTF_8).trim().split(",");
+            int[] roles = new int[names.length];
+            Set<Column> found = EnumSet.noneOf(Column.class);
+            boolean hasDate = false;
+            for (int c = 0; c < names.length; c++) {
+                String name = names[c].trim();
+                roles[c] = SKIP;
+                if (name.equals("Date") || name.equals("Datetime")) {
+                    roles[c] = DATE;
+                    hasDate = true;
+                    continue;
+                }
+                for (Column column : COLUMNS) {
+                    if (column.header.equals(name) && (columns == null || columns.contains(column))) {
+                        roles[c] = column.ordinal();
+                        found.add(column);
+                    }
+                }
+            }
+            if (!hasDate || (columns != null && !found.containsAll(columns))) {
+                throw new IOException("CSV file missing Date/" + (columns != null ? columns : "") + " columns: " + file);
+            }
+            
+            // Size the columns from the first row's length
+            int firstRowEnd = headerEnd + 1;
+            while (firstRowEnd < window.length && window[firstRowEnd] != '\n') {
+                firstRowEnd++;
+            }
+            int rowBytes = Math.max(1, firstRowEnd - headerEnd);
+            ColumnBuilder out = new ColumnBuilder(found, Math.max(16, (limit - headerEnd) / rowBytes + 16));
+            
+            int offset = headerEnd + 1;
+            while (offset < limit) {
+                int length = Math.min(window.length, limit - offset);
+                buf.get(offset, window, 0, length);
+                int usable = length;
+                if (offset + length < limit) {
+                    // Stop after the last complete line; the rest starts the next window
+                    while (usable > 0 && window[usable - 1] != '\n') {
+                        usable--;
+                    }
+                    if (usable == 0) {
+                        window = new byte[window.length * 2];
+                        continue;
+                    }
+                }
+                parseRows(window, usable, roles, out, file);
+                offset += usable;
+            }
+            return new Bars(out.size, out.epochDays, out.epochSeconds, out.values, out.volumes);
+        }
+    }
+    
+    /**
+     * Growable primitive columns for the rows parsed so far.
+     */
+    private static final class ColumnBuilder {
+        int size;
+        int capacity;
+        int[] epochDays;
+        long[] epochSeconds;
+        final double[][] values = new double[COLUMNS.length][];
+        long[] volumes;
+        
+        ColumnBuilder(Set<Column> columns, int capacity) {
+            this.capacity = capacity;
+            this.epochDays = new int[capacity];
+            this.epochSeconds = new long[capacity];
+            for (Column column : columns) {
+                if (column == Column.VOLUME) {
+                    volumes = new long[capacity];
+                } else {
+                    values[column.ordinal()] = new double[capacity];
+                }
+            }
+        }
+        
+        void grow() {
+            capacity *= 2;
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+            for (int k = 0; k < values.length; k++) {
+                if (values[k] != null) {
+                    values[k] = Arrays.copyOf(values[k], capacity);
+                }
+            }
+            if (volumes != null) {
+                volumes = Arrays.copyOf(volumes, capacity);
+            }
+        }
+    }
+    
+    /**
+     * Parses the complete lines in b[0, limit) into {@code out}.
+     */
+    private static void parseRows(byte[] b, int limit, int[] roles, ColumnBuilder out, Path file) throws IOException {
+        int pos = 0;
+        while (pos < limit) {
+            byte first = b[pos];
+            if (first == '\n' || first == '\r') {
+                pos++;
+                continue;
+            }
+            if (out.size == out.capacity) {
+                out.grow();
+            }
+            int row = out.size;
+            
+            boolean lineEnded = false;
+            for (int c = 0; c < roles.length; c++) {
+                int end = lineEnded ? pos : fieldEnd(b, pos, limit);
+                int role = roles[c];
+                if (role == DATE) {
+                    if (lineEnded || end == pos) {
+                        throw new IOException("Missing timestamp in row " + (row + 1) + " of " + file);
+                    }
+                    int day = parseDate(b, pos, end);
+                    int secondOfDay = parseTimeOfDay(b, pos, end);
+                    if (day == Integer.MIN_VALUE || secondOfDay == Integer.MIN_VALUE) {
+                        throw new IOException("Bad timestamp in row " + (row + 1) + " of " + file);
+                    }
+                    out.epochDays[row] = day;
+                    out.epochSeconds[row] = day * 86400L + secondOfDay;
+                } else if (role == VOLUME) {
+                    out.volumes[row] = lineEnded || end == pos ? 0 : parseLong(b, pos, end);
+                } else if (role >= 0) {
+                    out.values[role][row] = lineEnded || end == pos ? Double.NaN : parseDouble(b, pos, end);
+                }
+                if (!lineEnded) {
+                    pos = end;
+                    if (pos < limit && b[pos] == ',') {
+                        pos++;
+                    } else {
+                        lineEnded = true;
+                    }
+                }
+            }
+            // Ignore fields past the header's columns
+            while (pos < limit && b[pos] != '\n') {
+                pos++;
+            }
+            out.size++;
+        }
+    }
+    
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    
+    /**
+     * Index of the first ',', '\r' or '\n' at or after {@code pos} (or {@code limit}).
+     * Tests eight bytes per step: a byte equal to the delimiter becomes zero after the xor,
+     * and (v - ONES) & ~v & HIGHS flags the lowest zero byte.
+     */
+    static int fieldEnd(byte[] b, int pos, int limit) {
+        int i = pos;
+        for (; i + 8 <= limit; i += 8) {
+            long word = (long) LONGS.get(b, i);
+            long comma = word ^ (ONES * ',');
+            long newline = word ^ (ONES * '\n');
+            long carriage = word ^ (ONES * '\r');
+            long hits = ((comma - ONES) & ~comma) | ((newline - ONES) & ~newline) | ((carriage - ONES) & ~carriage);
+            hits &= HIGHS;
+            if (hits != 0) {
+                return i + (Long.numberOfTrailingZeros(hits) >>> 3);
+            }
+        }
+        for (; i < limit; i++) {
+            byte x = b[i];
+            if (x == ',' || x == '\n' || x == '\r') {
+                break;
+            }
+        }
+        return i;
+    }
+    
+    /**
+     * Days since 1970-01-01 for "yyyy-MM-dd" at {@code start}, or Integer.MIN_VALUE if malformed.
+     */
+    static int parseDate(byte[] b, int start, int end) {
+        if (end - start < 10 || b[start + 4] != '-' || b[start + 7] != '-') {
+            return Integer.MIN_VALUE;
+        }
+        int year = digits(b, start, 4);
+        int month = digits(b, start + 5, 2);
+        int day = digits(b, start + 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return Integer.MIN_VALUE;
+        }
+        return epochDay(year, month, day);
+    }
+    
+    /**
+     * Seconds from midnight UTC of the timestamp's local date to the instant, i.e. the time of
+     * day minus the UTC offset; 0 for a bare date. Integer.MIN_VALUE if malformed.
+     */
+    static int parseTimeOfDay(byte[] b, int start, int end) {
+        int length = end - start;
+        if (length == 10) {
+            return 0;
+        }
+        if (length < 19 || b[start + 10] != ' ' || b[start + 13] != ':' || b[start + 16] != ':') {
+            return Integer.MIN_VALUE;
+        }
+        int hour = digits(b, start + 11, 2);
+        int minute = digits(b, start + 14, 2);
+        int second = digits(b, start + 17, 2);
+        if (hour < 0 || minute < 0 || second < 0) {
+            return Integer.MIN_VALUE;
+        }
+        int seconds = hour * 3600 + minute * 60 + second;
+        if (length == 19) {
+            return seconds;
+        }
+        // "+hh:mm" / "-hh:mm" offset
+        byte sign = b[start + 19];
+        if (length != 25 || (sign != '+' && sign != '-') || b[start + 22] != ':') {
+            return Integer.MIN_VALUE;
+        }
+        int offsetHours = digits(b, start + 20, 2);
+        int offsetMinutes = digits(b, start + 23, 2);
+        if (offsetHours < 0 || offsetMinutes < 0) {
+            return Integer.MIN_VALUE;
+        }
+        int offset = offsetHours * 3600 + offsetMinutes * 60;
+        return sign == '-' ? seconds + offset : seconds - offset;
+    }
+    
+    private static int digits(byte[] b, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int d = b[i] - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+    
+    /**
+     * Days from civil (proleptic Gregorian), as in LocalDate.toEpochDay without the object.
+     */
+    static int epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+    
+    static long parseLong(byte[] b, int start, int end) {
+        int i = start;
+        boolean negative = b[i] == '-';
+        if (negative || b[i] == '+') {
+            i++;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int d = b[i] - '0';
+            if (d < 0 || d > 9 || value > (Long.MAX_VALUE - 9) / 10) {
+                // "123.0", exponents and overflow
+                return (long) parseDouble(b, start, end);
+            }
+            value = value * 10 + d;
+        }
+        return negative ? -value : value;
+    }
+    
+    // Exact powers of ten for the fast path
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    
+    /**
+     * Same result as Double.parseDouble on the field's text.
+     */
+    static double parseDouble(byte[] b, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        byte first = b[i];
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+        
+        // Up to 19 significant digits, unsigned
+        long mantissa = 0;
+        int significant = 0;
+        int exponent = 0;
+        boolean anyDigits = false;
+        for (; i < end; i++) {
+            int d = b[i] - '0';
+            if (d < 0 || d > 9) {
+                break;
+            }
+            anyDigits = true;
+            if (mantissa != 0 || d != 0) {
+                if (++significant > 19) {
+                    return slowParse(b, start, end);
+                }
+                mantissa = mantissa * 10 + d;
+            }
+        }
+        if (i < end && b[i] == '.') {
+            for (i++; i < end; i++) {
+                int d = b[i] - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                anyDigits = true;
+                if (mantissa != 0 || d != 0) {
+                    if (++significant > 19) {
+                        return slowParse(b, start, end);
+                    }
+                    mantissa = mantissa * 10 + d;
+                }
+                exponent--;
+            }
+        }
+        if (anyDigits && i < end && (b[i] == 'e' || b[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (b[i] == '-' || b[i] == '+')) {
+                negativeExponent = b[i] == '-';
+                i++;
+            }
+            int explicit = 0;
+            int exponentStart = i;
+            for (; i < end; i++) {
+                int d = b[i] - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                if (explicit < 100_000) {
+                    explicit = explicit * 10 + d;
+                }
+            }
+            if (i == exponentStart) {
+                return slowParse(b, start, end);
+            }
+            exponent += negativeExponent ? -explicit : explicit;
+        }
+        if (!anyDigits || i != end) {
+            // NaN, Infinity, hex, trailing garbage
+            return slowParse(b, start, end);
+        }
+        
+        double value;
+        if (mantissa == 0) {
+            value = 0.0;
+        } else if (exponent >= -22 && exponent <= 22 && mantissa > 0 && mantissa <= (1L << 53)) {
+            // Both operands exact, so one correctly rounded operation
+            value = exponent < 0 ? mantissa / POW10[-exponent] : mantissa * POW10[exponent];
+        } else {
+            long bits = eiselLemire(mantissa, exponent);
+            if (bits == -1) {
+                return slowParse(b, start, end);
+            }
+            value = Double.longBitsToDouble(bits);
+        }
+        return negative ? -value : value;
+    }
+    
+    private static double slowParse(byte[] b, int start, int end) {
+        String text = new String(b, start, end - start, StandardCharsets.US_ASCII).trim();
+        if (text.equalsIgnoreCase("nan")) {
+            return Double.NaN;
+        } else if (text.equalsIgnoreCase("inf") || text.equalsIgnoreCase("+inf")) {
+            return Double.POSITIVE_INFINITY;
+        } else if (text.equalsIgnoreCase("-inf")) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return Double.parseDouble(text);
+    }
+    
+    // 128-bit approximations of 5^q for q in [-342, 308], high word first (see eiselLemire)
+    private static final int MIN_POW5 = -342;
+    private static final int MAX_POW5 = 308;
+    private static final long[] POW5_128 = pow5Table();
+    
+    private static long[] pow5Table() {
+        long[] table = new long[2 * (MAX_POW5 - MIN_POW5 + 1)];
+        BigInteger five = BigInteger.valueOf(5);
+        for (int q = MIN_POW5; q <= MAX_POW5; q++) {
+            BigInteger c;
+            if (q < 0) {
+                // Reciprocal, rounded up
+                BigInteger power5 = five.pow(-q);
+                int z = power5.bitLength();
+                int b = q >= -27 ? z + 127 : 2 * z + 128;
+                c = BigInteger.ONE.shiftLeft(b).divide(power5).add(BigInteger.ONE);
+                if (c.bitLength() > 128) {
+                    c = c.shiftRight(c.bitLength() - 128);
+                }
+            } else {
+                // Normalized so bit 127 is set, truncated
+                c = five.pow(q);
+                c = c.bitLength() < 128 ? c.shiftLeft(128 - c.bitLength()) : c.shiftRight(c.bitLength() - 128);
+            }
+            int index = 2 * (q - MIN_POW5);
+            table[index] = c.shiftRight(64).longValue();
+            table[index + 1] = c.longValue();
+        }
+        return table;
+    }
+    
+    /**
+     * IEEE bits of mantissa * 10^exponent, correctly rounded (Lemire, "Number Parsing at a
+     * Gigabyte per Second", 2021), or -1 when the result is subnormal or the 128-bit product
+     * is too close to a halfway point to decide.
+     */
+    static long eiselLemire(long mantissa, int exponent) {
+        if (exponent < MIN_POW5) {
+            return 0L;
+        }
+        if (exponent > MAX_POW5) {
+            return 0x7FFL << 52;
+        }
+        int leadingZeros = Long.numberOfLeadingZeros(mantissa);
+        long w = mantissa << leadingZeros;
+        int index = 2 * (exponent - MIN_POW5);
+        
+        long high = unsignedMultiplyHigh(w, POW5_128[index]);
+        long low = w * POW5_128[index];
+        // 55 bits of precision are needed; refine with the low word when the rest could carry
+        if ((high & 0x1FFL) == 0x1FFL) {
+            long secondHigh = unsignedMultiplyHigh(w, POW5_128[index + 1]);
+            low += secondHigh;
+            if (Long.compareUnsigned(secondHigh, low) > 0) {
+                high++;
+            }
+        }
+        if (low == -1L && (exponent < -27 || exponent > 55)) {
+            return -1;
+        }
+        
+        int upperBit = (int) (high >>> 63);
+        long bits = high >>> (upperBit + 9);
+        int power2 = ((217706 * exponent) >> 16) + 63 + upperBit - leadingZeros + 1023;
+        if (power2 <= 0) {
+            return -1;
+        }
+        // Exactly halfway: round to even
+        if (Long.compareUnsigned(low, 1) <= 0 && exponent >= -4 && exponent <= 23 && (bits & 3) == 1
+            && (bits << (upperBit + 9)) == high) {
+            bits &= ~1L;
+        }
+        bits += bits & 1;
+        bits >>>= 1;
+        if (bits >= (2L << 52)) {
+            bits = 1L << 52;
+            power2++;
+        }
+        bits &= ~(1L << 52);
+        if (power2 >= 0x7FF) {
+            return 0x7FFL << 52;
+        }
+        return bits | ((long) power2 << 52);
+    }
+    
+    private static long unsignedMultiplyHigh(long x, long y) {
+        return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+    }
+    
+    public static void main(String[] args) throws IOException {
+        Path dataDir = Paths.get("data");
+        Path file = null;
+        Set<Column> columns = null;
+        int repeat = 5;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--data": dataDir = Paths.get(args[++i]); break;
+                case "--file": file = Paths.get(args[++i]); break;
+                case "--columns":
+                    columns = EnumSet.noneOf(Column.class);
+                    for (String name : args[++i].split(",")) {
+                        columns.add(Column.valueOf(name.trim().toUpperCase().replace(' ', '_')));
+                    }
+                    break;
+                case "--repeat": repeat = Math.max(1, Integer.parseInt(args[++i])); break;
+                default: throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        
+        List<Path> files = new ArrayList<>();
+        if (file != null) {
+            files.add(file);
+        } else {
+            for (String ticker : Backtester.listTickers(dataDir)) {
+                files.add(dataDir.resolve(ticker + "_5y.csv"));
+            }
+        }
+        long bytes = 0;
+        for (Path f : files) {
+            bytes += f.toFile().length();
+        }
+        for (int run = 1; run <= repeat; run++) {
+            long start = System.nanoTime();
+            long rows = 0;
+            for (Path f : files) {
+                rows += load(f, columns).size();
+            }
+            double ms = (System.nanoTime() - start) / 1e6;
+            System.out.printf("run=%d files=%d rows=%d ms=%.1f MB/s=%.0f%n", run, files.size(), rows, ms,
+                bytes / 1e6 / (ms / 1000));
+        }
+    }
+}
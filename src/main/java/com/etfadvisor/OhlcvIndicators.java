@@ -0,0 +1,688 @@
+package com.etfadvisor;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Whole-series indicator columns from OHLCV bars in one fused pass: the history is walked
+ * once in blocks of rows, and every enabled indicator's accumulator consumes each block while
+ * it is still in cache, so an extra indicator adds an accumulator instead of another scan over
+ * the history. Indicators that use the same rolling window of closes (SMA, z-score,
+ * Bollinger) share one.
+ * <p>
+ * SMA, drawdown and z-score follow IndicatorCalculator (partial drawdown and z-score windows
+ * at the start, NaN instead of a null SMA) but use running sums, so they agree with it to
+ * within rounding rather than bit for bit; IndicatorKernels is the exact version. The others:
+ * <ul>
+ *   <li>EMA: seeded with the first close, alpha = 2 / (EMA_DAYS + 1)</li>
+ *   <li>RSI: Wilder's smoothing over RSI_DAYS closes, NaN until RSI_DAYS changes exist</li>
+ *   <li>ATR: Wilder's smoothing of the true range over ATR_DAYS, NaN until ATR_DAYS bars</li>
+ *   <li>Bollinger %B: position of the close within mean ± BOLLINGER_K population std of the
+ *       last BOLLINGER_DAYS closes, NaN until the window is full or when the band is flat</li>
+ *   <li>Volume z-score: like the close z-score, over VOLUME_ZSCORE_WINDOW days of volume</li>
+ * </ul>
+ * ATR is NaN without high/low columns and the volume z-score without volume (e.g. for a
+ * close-only PriceSeries). Rows without a close are NaN in every column and skipped.
+ *
+ * Usage: OhlcvIndicators [--data DIR] [--file CSV] [--indicators sma,rsi,...] [--repeat N]
+ */
+public final class OhlcvIndicators {
+    
+    public enum Indicator {
+        SMA("sma"),
+        DRAWDOWN("drawdown"),
+        ZSCORE("zscore"),
+        EMA("ema"),
+        RSI("rsi"),
+        ATR("atr"),
+        BOLLINGER_PCT_B("bollinger"),
+        VOLUME_ZSCORE("volume_zscore");
+        
+        private final String key;
+        
+        Indicator(String key) {
+            this.key = key;
+        }
+        
+        /** Name used in the INDICATORS setting. */
+        public String getKey() { return key; }
+        
+        public static Indicator fromKey(String key) {
+            for (Indicator indicator : values()) {
+                if (indicator.key.equalsIgnoreCase(key.trim())) {
+                    return indicator;
+                }
+            }
+            throw new IllegalArgumentException("Unknown indicator: " + key);
+        }
+    }
+    
+    private static final Indicator[] INDICATORS = Indicator.values();
+    // Rows per block: every stage runs over a block before the next one starts, so the
+    // block's input and output columns stay in L1 while each stage's inner loop is monomorphic
+    private static final int BLOCK = 512;
+    
+    private OhlcvIndicators() {
+    }
+    
+    /**
+     * Columns for the enabled indicators, indexed like the input rows.
+     */
+    public static final class Result {
+        private final int size;
+        private final double[][] columns;
+        
+        Result(int size, double[][] columns) {
+            this.size = size;
+            this.columns = columns;
+        }
+        
+        public int size() { return size; }
+        
+        public boolean has(Indicator indicator) {
+            return columns[indicator.ordinal()] != null;
+        }
+        
+        /**
+         * The column for {@code indicator} (length size()).
+         */
+        public double[] column(Indicator indicator) {
+            double[] column = columns[indicator.ordinal()];
+            if (column == null) {
+                throw new IllegalArgumentException(indicator + " is not enabled");
+            }
+            return column;
+        }
+        
+        public double value(Indicator indicator, int i) {
+            return column(indicator)[i];
+        }
+    }
+    
+    /**
+     * The indicators enabled in {@code config} over rows [0, size()) of {@code bars}.
+     */
+    public static Result compute(OhlcvCsvLoader.Bars bars, Config config) {
+        return compute(bars, config.getIndicators(), config);
+    }
+    
+    public static Result compute(OhlcvCsvLoader.Bars bars, Set<Indicator> indicators, Config config) {
+        double[] close = bars.doubles(OhlcvCsvLoader.Column.CLOSE);
+        if (close == null) {
+            throw new IllegalArgumentException("Close column not loaded");
+        }
+        return compute(bars.doubles(OhlcvCsvLoader.Column.HIGH), bars.doubles(OhlcvCsvLoader.Column.LOW), close,
+            bars.volumes(), 0, bars.size(), indicators, config);
+    }
+    
+    /**
+     * The indicators enabled in {@code config} over every row of an archive.
+     */
+    public static Result compute(PriceArchive archive, Config config) {
+        Set<Indicator> indicators = config.getIndicators();
+        boolean range = indicators.contains(Indicator.ATR)
+            && archive.has(OhlcvCsvLoader.Column.HIGH) && archive.has(OhlcvCsvLoader.Column.LOW);
+        boolean volume = indicators.contains(Indicator.VOLUME_ZSCORE) && archive.has(OhlcvCsvLoader.Column.VOLUME);
+        return compute(range ? archive.doubles(OhlcvCsvLoader.Column.HIGH) : null,
+            range ? archive.doubles(OhlcvCsvLoader.Column.LOW) : null,
+            archive.doubles(OhlcvCsvLoader.Column.CLOSE),
+            volume ? archive.longs(OhlcvCsvLoader.Column.VOLUME) : null,
+            0, archive.size(), indicators, config);
+    }
+    
+    /**
+     * Close-only indicators for a series (ATR and volume z-score come out NaN).
+     */
+    public static Result compute(PriceSeries series, Config config) {
+        int from = series.arrayOffset();
+        return compute(null, null, series.closeArray(), null, from, from + series.size(),
+            config.getIndicators(), config);
+    }
+    
+    /**
+     * The fused pass over rows [from, to). {@code high}, {@code low} and {@code volume} may be null.
+     */
+    static Result compute(double[] high, double[] low, double[] close, long[] volume, int from, int to,
+                          Set<Indicator> indicators, Config config) {
+        int size = to - from;
+        double[][] columns = new double[INDICATORS.length][];
+        List<Accumulator> accumulators = new ArrayList<>();
+        Map<Integer, CloseWindow> closeWindows = new LinkedHashMap<>();
+        
+        for (Indicator indicator : indicators) {
+            double[] out = new double[size];
+            columns[indicator.ordinal()] = out;
+            switch (indicator) {
+                case SMA:
+                    accumulators.add(new Sma(out, window(closeWindows, close, config.getSmaDays())));
+                    break;
+                case DRAWDOWN:
+                    accumulators.add(new Drawdown(out, close, config.getLookbackHighDays()));
+                    break;
+                case ZSCORE:
+                    accumulators.add(new ZScore(out, window(closeWindows, close, config.getZscoreWindow())));
+                    break;
+                case EMA:
+                    accumulators.add(new Ema(out, close, config.getEmaDays()));
+                    break;
+                case RSI:
+                    accumulators.add(new Rsi(out, close, config.getRsiDays()));
+                    break;
+                case ATR:
+                    if (high == null || low == null) {
+                        Arrays.fill(out, Double.NaN);
+                    } else {
+                        accumulators.add(new Atr(out, high, low, close, config.getAtrDays()));
+                    }
+                    break;
+                case BOLLINGER_PCT_B:
+                    accumulators.add(new Bollinger(out, window(closeWindows, close, config.getBollingerDays()),
+                        config.getBollingerK()));
+                    break;
+                case VOLUME_ZSCORE:
+                    if (volume == null) {
+                        Arrays.fill(out, Double.NaN);
+                    } else {
+                        accumulators.add(new VolumeZScore(out, close, volume, config.getVolumeZscoreWindow()));
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unhandled indicator " + indicator);
+            }
+        }
+        
+        // Shared windows first so their block of means is ready for the indicators reading it
+        List<Stage> stages = new ArrayList<>(closeWindows.values());
+        stages.addAll(accumulators);
+        Stage[] pipeline = stages.toArray(new Stage[0]);
+        for (int start = from; start < to; start += BLOCK) {
+            int end = Math.min(to, start + BLOCK);
+            for (Stage stage : pipeline) {
+                stage.run(start, end, from);
+            }
+        }
+        return new Result(size, columns);
+    }
+    
+    private static CloseWindow window(Map<Integer, CloseWindow> windows, double[] close, int days) {
+        return windows.computeIfAbsent(days, d -> new CloseWindow(close, d));
+    }
+    
+    /**
+     * One step of the pass, run over each block of rows [start, end) in turn. Rows without a
+     * close are skipped by every stage (they do not count towards any window).
+     */
+    private abstract static class Stage {
+        abstract void run(int start, int end, int from);
+    }
+    
+    /**
+     * A stage that writes one indicator column (row t goes to out[t - from]).
+     */
+    private abstract static class Accumulator extends Stage {
+        final double[] out;
+        
+        Accumulator(double[] out) {
+            this.out = out;
+        }
+    }
+    
+    /**
+     * Sliding mean and sum of squared deviations over the last {@code window} values (fewer
+     * until that many were pushed), recomputed exactly once per window to bound drift.
+     */
+    private static final class Moments {
+        private final double[] ring;
+        private final double inverseWindow;
+        private long count;
+        private int slot;
+        private double mean;
+        private double m2;
+        private int sinceResync;
+        
+        Moments(int window) {
+            this.ring = new double[window];
+            this.inverseWindow = 1.0 / window;
+        }
+        
+        void push(double x) {
+            int window = ring.length;
+            if (count < window) {
+                int n = (int) count + 1;
+                double delta = x - mean;
+                mean += delta / n;
+                m2 += delta * (x - mean);
+            } else {
+                double old = ring[slot];
+                double oldMean = mean;
+                mean += (x - old) * inverseWindow;
+                m2 += (x - old) * (x - mean + old - oldMean);
+            }
+            ring[slot] = x;
+            if (++slot == window) {
+                slot = 0;
+            }
+            count++;
+            if (++sinceResync >= window) {
+                resync();
+            }
+        }
+        
+        int n() { return (int) Math.min(count, ring.length); }
+        boolean full() { return count >= ring.length; }
+        double mean() { return mean; }
+        double variance() { return Math.max(m2, 0.0) * (full() ? inverseWindow : 1.0 / count); }
+        
+        private void resync() {
+            sinceResync = 0;
+            int n = n();
+            double sum = 0.0;
+            for (int k = 0; k < n; k++) {
+                sum += ring[k];
+            }
+            double exactMean = sum / n;
+            double exactM2 = 0.0;
+            for (int k = 0; k < n; k++) {
+                double diff = ring[k] - exactMean;
+                exactM2 += diff * diff;
+            }
+            mean = exactMean;
+            m2 = exactM2;
+        }
+    }
+    
+    /**
+     * Rolling mean and variance of the closes, kept for the current block so that SMA,
+     * z-score and Bollinger over the same window share one update per row.
+     */
+    private static final class CloseWindow extends Stage {
+        final double[] close;
+        final double[] mean = new double[BLOCK];
+        final double[] variance = new double[BLOCK];
+        final boolean[] full = new boolean[BLOCK];
+        private final Moments moments;
+        
+        CloseWindow(double[] close, int days) {
+            this.close = close;
+            this.moments = new Moments(days);
+        }
+        
+        @Override
+        void run(int start, int end, int from) {
+            for (int t = start; t < end; t++) {
+                double c = close[t];
+                if (Double.isNaN(c)) {
+                    continue;
+                }
+                moments.push(c);
+                int k = t - start;
+                mean[k] = moments.mean();
+                variance[k] = moments.variance();
+                full[k] = moments.full();
+            }
+        }
+    }
+    
+    private static final class Sma extends Accumulator {
+        private final CloseWindow window;
+        
+        Sma(double[] out, CloseWindow window) {
+            super(out);
+            this.window = window;
+        }
+        
+        @Override
+        void run(int start, int end, int from) {
+            double[] close = window.close;
+            for (int t = start; t < end; t++) {
+                int k = t - start;
+                out[t - from] = !Double.isNaN(close[t]) && window.full[k] ? window.mean[k] : Double.NaN;
+            }
+        }
+    }
+    
+    private static final class ZScore extends Accumulator {
+        private final CloseWindow window;
+        
+        ZScore(double[] out, CloseWindow window) {
+            super(out);
+            this.window = window;
+        }
+        
+        @Override
+        void run(int start, int end, int from) {
+            double[] close = window.close;
+            for (int t = start; t < end; t++) {
+                int k = t - start;
+                double c = close[t];
+                double variance = window.variance[k];
+                if (Double.isNaN(c)) {
+                    out[t - from] = Double.NaN;
+                } else {
+                    out[t - from] = variance > 0 ? (c - window.mean[k]) / Math.sqrt(variance) : 0.0;
+                }
+            }
+        }
+    }
+    
+    private static final class Bollinger extends Accumulator {
+        private final CloseWindow window;
+        private final double k;
+        
+        Bollinger(double[] out, CloseWindow window, double k) {
+            super(out);
+            this.window = window;
+            this.k = k;
+        }
+        
+        @Override
+        void run(int start, int end, int from) {
+            double[] close = window.close;
+            for (int t = start; t < end; t++) {
+                int b = t - start;
+                double c = close[t];
+                double width = 2 * k * Math.sqrt(window.variance[b]);
+                if (Double.isNaN(c) || !window.full[b] || width == 0) {
+                    out[t - from] = Double.NaN;
+                    continue;
+                }
+                double lower = window.mean[b] - width / 2;
+                out[t - from] = (c - lower) / width;
+            }
+        }
+    }
+    
+    /**
+     * Rolling high from a monotonic (decreasing) deque of rows.
+     */
+    private static final class Drawdown extends Accumulator {
+        private final double[] close;
+        private final int lookback;
+        private final int[] deque;
+        private final int[] seq;
+        private int head;
+        private int size;
+        private int count;
+        
+        Drawdown(double[] out, double[] close, int lookback) {
+            super(out);
+            this.close = close;
+            // Under one day: drawdown against the current close only, as in IndicatorCalculator
+            this.lookback = Math.max(1, lookback);
+            this.deque = new int[this.lookback];
+            // Position among rows with a close, so skipped rows do not shorten the window
+            this.seq = new int[this.lookback];
+        }
+        
+        @Override
+        void run(int start, int end, int from) {
+            for (int t = start; t < end; t++) {
+                double c = close[t];
+                if (Double.isNaN(c)) {
+                    out[t - from] = Double.NaN;
+                    continue;
+                }
+                if (size > 0 && seq[head] <= count - lookback) {
+                    head = wrap(head + 1);
+                    size--;
+                }
+                while (size > 0 && close[deque[wrap(head + size - 1)]] <= c) {
+                    size--;
+                }
+                int slot = wrap(head + size);
+                deque[slot] = t;
+                seq[slot] = count;
+                size++;
+                count++;
+                out[t - from] = (c / close[deque[head]]) - 1.0;
+            }
+        }
+        
+        private int wrap(int position) {
+            return position >= deque.length ? position - deque.length : position;
+        }
+    }
+    
+    private static final class Ema extends Accumulator {
+        private final double[] close;
+        private final double alpha;
+        private double ema = Double.NaN;
+        
+        Ema(double[] out, double[] close, int days) {
+            super(out);
+            this.close = close;
+            this.alpha = 2.0 / (days + 1);
+        }
+        
+        @Override
+        void run(int start, int end, int from) {
+            for (int t = start; t < end; t++) {
+                double c = close[t];
+                if (Double.isNaN(c)) {
+                    out[t - from] = Double.NaN;
+                    continue;
+                }
+                ema = Double.isNaN(ema) ? c : ema + alpha * (c - ema);
+                out[t - from] = ema;
+            }
+        }
+    }
+    
+    /**
+     * Wilder's smoothing: a plain mean of the first {@code days} inputs, then
+     * avg += (x - avg) / days.
+     */
+    private static final class Wilder {
+        private final int days;
+        private final double inverseDays;
+        private int count;
+        private double average;
+        
+        Wilder(int days) {
+            this.days = days;
+            this.inverseDays = 1.0 / days;
+        }
+        
+        void push(double x) {
+            if (count < days) {
+                count++;
+                average += (x - average) / count;
+            } else {
+                average += (x - average) * inverseDays;
+            }
+        }
+        
+        boolean ready() { return count >= days; }
+        double value() { return average; }
+    }
+    
+    private static final class Rsi extends Accumulator {
+        private final double[] close;
+        private final Wilder gains;
+        private final Wilder losses;
+        private double previousClose = Double.NaN;
+        
+        Rsi(double[] out, double[] close, int days) {
+            super(out);
+            this.close = close;
+            this.gains = new Wilder(days);
+            this.losses = new Wilder(days);
+        }
+        
+        @Override
+        void run(int start, int end, int from) {
+            for (int t = start; t < end; t++) {
+                double c = close[t];
+                if (Double.isNaN(c)) {
+                    out[t - from] = Double.NaN;
+                    continue;
+                }
+                if (!Double.isNaN(previousClose)) {
+                    double change = c - previousClose;
+                    gains.push(Math.max(change, 0.0));
+                    losses.push(Math.max(-change, 0.0));
+                }
+                previousClose = c;
+                if (!gains.ready()) {
+                    out[t - from] = Double.NaN;
+                } else if (losses.value() == 0) {
+                    out[t - from] = gains.value() == 0 ? 50.0 : 100.0;
+                } else {
+                    out[t - from] = 100.0 - 100.0 / (1.0 + gains.value() / losses.value());
+                }
+            }
+        }
+    }
+    
+    private static final class Atr extends Accumulator {
+        private final double[] high;
+        private final double[] low;
+        private final double[] close;
+        private final Wilder range;
+        private double previousClose = Double.NaN;
+        
+        Atr(double[] out, double[] high, double[] low, double[] close, int days) {
+            super(out);
+            this.high = high;
+            this.low = low;
+            this.close = close;
+            this.range = new Wilder(days);
+        }
+        
+        @Override
+        void run(int start, int end, int from) {
+            for (int t = start; t < end; t++) {
+                double c = close[t];
+                if (Double.isNaN(c)) {
+                    out[t - from] = Double.NaN;
+                    continue;
+                }
+                double h = high[t];
+                double l = low[t];
+                if (Double.isNaN(h) || Double.isNaN(l)) {
+                    // Bar without a range: fall back to the close
+                    h = c;
+                    l = c;
+                }
+                double trueRange = h - l;
+                if (!Double.isNaN(previousClose)) {
+                    trueRange = Math.max(trueRange, Math.max(Math.abs(h - previousClose), Math.abs(l - previousClose)));
+                }
+                previousClose = c;
+                range.push(trueRange);
+                out[t - from] = range.ready() ? range.value() : Double.NaN;
+            }
+        }
+    }
+    
+    private static final class VolumeZScore extends Accumulator {
+        private final double[] close;
+        private final long[] volume;
+        private final Moments window;
+        
+        VolumeZScore(double[] out, double[] close, long[] volume, int days) {
+            super(out);
+            this.close = close;
+            this.volume = volume;
+            this.window = new Moments(days);
+        }
+        
+        @Override
+        void run(int start, int end, int from) {
+            for (int t = start; t < end; t++) {
+                if (Double.isNaN(close[t])) {
+                    out[t - from] = Double.NaN;
+                    continue;
+                }
+                double v = volume[t];
+                window.push(v);
+                double variance = window.variance();
+                out[t - from] = variance > 0 ? (v - window.mean()) / Math.sqrt(variance) : 0.0;
+            }
+        }
+    }
+    
+    public static void main(String[] args) throws IOException {
+        Path dataDir = Paths.get("data");
+        Path file = null;
+        Set<Indicator> indicators = null;
+        int repeat = 5;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--data": dataDir = Paths.get(args[++i]); break;
+                case "--file": file = Paths.get(args[++i]); break;
+                case "--indicators":
+                    indicators = EnumSet.noneOf(Indicator.class);
+                    for (String key : args[++i].split(",")) {
+                        indicators.add(Indicator.fromKey(key));
+                    }
+                    break;
+                case "--repeat": repeat = Math.max(1, Integer.parseInt(args[++i])); break;
+                default: throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        
+        Config config = new Config();
+        if (indicators == null) {
+            indicators = config.getIndicators();
+        }
+        Map<String, OhlcvCsvLoader.Bars> universe = new LinkedHashMap<>();
+        if (file != null) {
+            universe.put(file.getFileName().toString(), OhlcvCsvLoader.load(file));
+        } else {
+            for (String ticker : Backtester.listTickers(dataDir)) {
+                universe.put(ticker, OhlcvCsvLoader.load(dataDir.resolve(ticker + Backtester.CSV_SUFFIX)));
+            }
+        }
+        
+        // Latest values per ticker
+        System.out.printf("%-8s %-10s", "ticker", "date");
+        for (Indicator indicator : indicators) {
+            System.out.printf(" %13s", indicator.getKey());
+        }
+        System.out.println();
+        long rows = 0;
+        for (Map.Entry<String, OhlcvCsvLoader.Bars> entry : universe.entrySet()) {
+            OhlcvCsvLoader.Bars bars = entry.getValue();
+            rows += bars.size();
+            if (bars.size() == 0) {
+                continue;
+            }
+            Result result = compute(bars, indicators, config);
+            int last = bars.size() - 1;
+            System.out.printf("%-8s %-10s", entry.getKey(), LocalDate.ofEpochDay(bars.epochDay(last)));
+            for (Indicator indicator : indicators) {
+                System.out.printf(" %13.4f", result.value(indicator, last));
+            }
+            System.out.println();
+        }
+        
+        // One fused pass against one pass per indicator
+        for (int run = 1; run <= repeat; run++) {
+            long start = System.nanoTime();
+            for (OhlcvCsvLoader.Bars bars : universe.values()) {
+                compute(bars, indicators, config);
+            }
+            double fusedMs = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            for (OhlcvCsvLoader.Bars bars : universe.values()) {
+                for (Indicator indicator : indicators) {
+                    compute(bars, Collections.singleton(indicator), config);
+                }
+            }
+            double separateMs = (System.nanoTime() - start) / 1e6;
+            System.out.printf("run=%d rows=%d indicators=%d fused_ms=%.2f separate_ms=%.2f%n",
+                run, rows, indicators.size(), fusedMs, separateMs);
+        }
+    }
+}
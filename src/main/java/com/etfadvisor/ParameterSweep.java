@@ -0,0 +1,547 @@
+package com.etfadvisor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Grid search over the algorithm parameters in Config, scored on data/*_5y.csv.
+ *
+ * Work is shared across combinations at two levels: indicator columns are computed once per
+ * ticker, indicator and distinct window length (IndicatorKernels, so each day matches
+ * IndicatorCalculator exactly), and the 0-100 buy score distribution is built once per
+ * (windows, drawdownMax, zscoreMax, formula) key. Tier thresholds only regroup that
+ * distribution, so each full combination is priced in O(101). All three stages run on the
+ * fork-join pool. Each distinct scoring formula is compiled once (see ScoringFormula).
+ *
+ * Usage: ParameterSweep [--data DIR] [--tickers VOO,QQQ,...] [--zscore-window 20,30,40]
+ *          [--lookback-high 63:252:21] [--sma 100:250:50] [--drawdown-max 0.06:0.2:0.02]
+ *          [--zscore-max 1.5:3.5:0.5] [--formulas FILE] [--tier-strong-buy 65:85:5]
+ *          [--tier-buy 45:65:5] [--tier-dca-only 25:45:5] [--sample N] [--seed S] [--top 20]
+ *          [--out FILE]
+ * Lists are comma-separated or FROM:TO:STEP ranges; unspecified parameters keep their
+ * Config value. --formulas reads one SCORE_FORMULA per line ('#' starts a comment line).
+ * Combinations whose tier thresholds are out of order are skipped.
+ */
+public class ParameterSweep {
+    
+    static final int SCORE_LEVELS = 101;
+    private static final String RESULT_HEADER = "rank,zscore_window,lookback_high_days,sma_days,drawdown_max,zscore_max,"
+        + "tier_strong_buy,tier_buy,tier_dca_only,days,buy_days,invested_usd,final_value_usd,return,baseline_return,excess_return,"
+        + "score_formula";
+        
+    /**
+     * Best excess return first; combinations that never buy go last.
+     */
+    static final Comparator<StrategyMetrics> RANKING = Comparator
+        .comparingDouble((StrategyMetrics m) -> Double.isNaN(m.getExcessReturn()) ? Double.NEGATIVE_INFINITY : m.getExcessReturn())
+        .reversed();
+        
+    private final List<TickerColumns> universe;
+    
+    public ParameterSweep(Map<String, PriceSeries> histories) {
+        this.universe = universe(histories);
+    }
+    
+    /**
+     * Column holders for every ticker with more than MIN_DAYS_NEEDED closes.
+     */
+    static List<TickerColumns> universe(Map<String, PriceSeries> histories) {
+        return histories.entrySet().stream()
+            .filter(e -> e.getValue().size() > Backtester.MIN_DAYS_NEEDED)
+            .map(e -> new TickerColumns(e.getKey(), e.getValue()))
+            .collect(Collectors.toList());
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Path dataDir = Paths.get("data");
+        Path outFile = null;
+        List<String> tickers = null;
+        int top = 20;
+        
+        Config base = new Config();
+        GridSpec spec = new GridSpec(base);
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--data": dataDir = Paths.get(args[++i]); break;
+                case "--out": outFile = Paths.get(args[++i]); break;
+                case "--tickers": tickers = Arrays.stream(args[++i].split(","))
+                    .map(String::trim).map(String::toUpperCase).filter(s -> !s.isEmpty())
+                    .collect(Collectors.toList()); break;
+                case "--top": top = Integer.parseInt(args[++i]); break;
+                default:
+                    if (i + 1 < args.length && spec.parse(args[i], args[i + 1])) {
+                        i++;
+                        break;
+                    }
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        if (tickers == null) {
+            tickers = Backtester.listTickers(dataDir);
+        }
+        
+        Map<String, PriceSeries> histories = new LinkedHashMap<>();
+        for (String ticker : tickers) {
+            histories.put(ticker, Backtester.loadHistory(dataDir, ticker));
+        }
+        
+        List<Config> combinations = spec.combinations(base);
+            
+        long start = System.nanoTime();
+        ParameterSweep sweep = new ParameterSweep(histories);
+        List<StrategyMetrics> ranked = sweep.run(combinations);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        
+        printTable(ranked, top, spec.formulas);
+        System.out.printf("Evaluated %d combinations over %d tickers in %d ms%n",
+            ranked.size(), sweep.universe.size(), elapsedMs);
+            
+        if (outFile != null) {
+            writeCsv(ranked, outFile);
+            System.out.println("Wrote " + outFile);
+        }
+    }
+    
+    /**
+     * Evaluate every combination and return the metrics ranked by excess return over plain DCA.
+     */
+    public List<StrategyMetrics> run(List<Config> combinations) {
+        if (combinations.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        // Stage 1: indicator columns per ticker and window length
+        computeColumns(universe, combinations);
+        
+        // Stage 2: score distribution per (windows, drawdownMax, zscoreMax, formula)
+        Map<ScoreKey, ScoreHistogram> histograms = combinations.stream()
+            .map(ScoreKey::of)
+            .distinct()
+            .collect(Collectors.toList())
+            .parallelStream()
+            .collect(Collectors.toConcurrentMap(key -> key, this::histogram));
+            
+        // Stage 3: price each combination from its distribution
+        return combinations.parallelStream()
+            .map(c -> histograms.get(ScoreKey.of(c)).evaluate(c))
+            .sorted(RANKING)
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Indicator columns of every ticker for every window length used by the combinations.
+     */
+    static void computeColumns(List<TickerColumns> universe, List<Config> combinations) {
+        Set<Integer> smaWindows = new HashSet<>();
+        Set<Integer> lookbacks = new HashSet<>();
+        Set<Integer> zscoreWindows = new HashSet<>();
+        for (Config c : combinations) {
+            smaWindows.add(c.getSmaDays());
+            lookbacks.add(c.getLookbackHighDays());
+            zscoreWindows.add(c.getZscoreWindow());
+        }
+        universe.parallelStream().forEach(t -> {
+            smaWindows.forEach(t::sma);
+            lookbacks.forEach(t::drawdown);
+            zscoreWindows.forEach(t::zscore);
+        });
+    }
+    
+    private ScoreHistogram histogram(ScoreKey key) {
+        ScoreHistogram histogram = new ScoreHistogram();
+        ScoringFormula formula = ScoringFormula.of(key.formula);
+        double[] components = new double[ScoringFormula.COMPONENTS.size()];
+        for (TickerColumns t : universe) {
+            double[] sma = t.sma(key.smaDays);
+            double[] drawdown = t.drawdown(key.lookbackHighDays);
+            double[] zscore = t.zscore(key.zscoreWindow);
+            double lastClose = t.closes[t.closes.length - 1];
+            
+            for (int i = Backtester.MIN_DAYS_NEEDED; i < t.closes.length; i++) {
+                double close = t.closes[i];
+                int score = ScoringFormula.toScore(formula.evaluate(close, sma[i], drawdown[i], zscore[i],
+                    key.drawdownMax, key.zscoreMax, components));
+                histogram.days[score]++;
+                // Value at the last close of $1 invested on this day
+                histogram.growth[score] += lastClose / close;
+            }
+        }
+        return histogram;
+    }
+    
+    /**
+     * The values to sweep for each parameter, from command-line options (Config's value for
+     * parameters without one). Shared by the sweep and WalkForwardOptimizer.
+     */
+    static final class GridSpec {
+        List<Integer> zscoreWindows;
+        List<Integer> lookbacks;
+        List<Integer> smaDays;
+        List<Double> drawdownMaxes;
+        List<Double> zscoreMaxes;
+        List<String> formulas;
+        List<Integer> strongBuys;
+        List<Integer> buys;
+        List<Integer> dcaOnlys;
+        int sample;
+        long seed = 42;
+        
+        GridSpec(Config base) {
+            zscoreWindows = List.of(base.getZscoreWindow());
+            lookbacks = List.of(base.getLookbackHighDays());
+            smaDays = List.of(base.getSmaDays());
+            drawdownMaxes = List.of(base.getDrawdownMax());
+            zscoreMaxes = List.of(base.getZscoreMax());
+            formulas = List.of(base.getScoreFormula());
+            strongBuys = List.of(base.getTierStrongBuy());
+            buys = List.of(base.getTierBuy());
+            dcaOnlys = List.of(base.getTierDcaOnly());
+        }
+        
+        /**
+         * Applies one grid option.
+         * @return false if {@code option} is not a grid option
+         */
+        boolean parse(String option, String value) throws IOException {
+            switch (option) {
+                case "--zscore-window": zscoreWindows = parseInts(value); return true;
+                case "--lookback-high": lookbacks = parseInts(value); return true;
+                case "--sma": smaDays = parseInts(value); return true;
+                case "--drawdown-max": drawdownMaxes = parseDoubles(value); return true;
+                case "--zscore-max": zscoreMaxes = parseDoubles(value); return true;
+                case "--formulas": formulas = readFormulas(Paths.get(value)); return true;
+                case "--tier-strong-buy": strongBuys = parseInts(value); return true;
+                case "--tier-buy": buys = parseInts(value); return true;
+                case "--tier-dca-only": dcaOnlys = parseInts(value); return true;
+                case "--sample": sample = Integer.parseInt(value); return true;
+                case "--seed": seed = Long.parseLong(value); return true;
+                default: return false;
+            }
+        }
+        
+        List<Config> combinations(Config base) {
+            // Fail on a bad formula before any work is done
+            formulas.forEach(ScoringFormula::of);
+            return grid(base, zscoreWindows, lookbacks, smaDays, drawdownMaxes, zscoreMaxes, formulas,
+                strongBuys, buys, dcaOnlys, sample, seed);
+        }
+    }
+    
+    /**
+     * Cartesian grid of the given values (or a random sample of it when sample > 0).
+     */
+    static List<Config> grid(Config base, List<Integer> zscoreWindows, List<Integer> lookbacks, List<Integer> smaDays,
+                             List<Double> drawdownMaxes, List<Double> zscoreMaxes, List<String> formulas,
+                             List<Integer> strongBuys, List<Integer> buys, List<Integer> dcaOnlys,
+                             int sample, long seed) {
+        int[] radix = {zscoreWindows.size(), lookbacks.size(), smaDays.size(), drawdownMaxes.size(),
+            zscoreMaxes.size(), formulas.size(), strongBuys.size(), buys.size(), dcaOnlys.size()};
+        long total = 1;
+        for (int r : radix) {
+            total *= r;
+        }
+        
+        long[] indices;
+        if (sample > 0 && sample < total) {
+            Random random = new Random(seed);
+            Set<Long> picked = new HashSet<>();
+            while (picked.size() < sample) {
+                picked.add(Math.floorMod(random.nextLong(), total));
+            }
+            indices = picked.stream().mapToLong(Long::longValue).sorted().toArray();
+        } else {
+            indices = new long[(int) total];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = i;
+            }
+        }
+        
+        List<Config> combinations = new ArrayList<>(indices.length);
+        int[] digit = new int[radix.length];
+        for (long index : indices) {
+            long rest = index;
+            for (int d = radix.length - 1; d >= 0; d--) {
+                digit[d] = (int) (rest % radix[d]);
+                rest /= radix[d];
+            }
+            int strongBuy = strongBuys.get(digit[6]);
+            int buy = buys.get(digit[7]);
+            int dcaOnly = dcaOnlys.get(digit[8]);
+            if (strongBuy < buy || buy < dcaOnly) {
+                continue;
+            }
+            combinations.add(base.withScoreFormula(formulas.get(digit[5])).withParameters(
+                zscoreWindows.get(digit[0]), lookbacks.get(digit[1]), smaDays.get(digit[2]),
+                drawdownMaxes.get(digit[3]), zscoreMaxes.get(digit[4]), strongBuy, buy, dcaOnly));
+        }
+        return combinations;
+    }
+    
+    /**
+     * Non-blank lines of a formulas file, skipping '#' comment lines.
+     */
+    static List<String> readFormulas(Path file) throws IOException {
+        List<String> formulas = Files.readAllLines(file, StandardCharsets.UTF_8).stream()
+            .map(String::trim)
+            .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+            .distinct()
+            .collect(Collectors.toList());
+        if (formulas.isEmpty()) {
+            throw new IllegalArgumentException("No formulas in " + file);
+        }
+        return formulas;
+    }
+    
+    static List<Integer> parseInts(String spec) {
+        return parseDoubles(spec).stream().map(v -> (int) Math.round(v)).distinct().collect(Collectors.toList());
+    }
+    
+    /**
+     * "a,b,c" or "from:to:step" (inclusive).
+     */
+    static List<Double> parseDoubles(String spec) {
+        String[] range = spec.split(":");
+        if (range.length == 3) {
+            double from = Double.parseDouble(range[0]);
+            double to = Double.parseDouble(range[1]);
+            double step = Double.parseDouble(range[2]);
+            if (!(step > 0) || to < from) {
+                throw new IllegalArgumentException("Invalid range: " + spec);
+            }
+            // Count steps with a tolerance so 0.06:0.2:0.02 includes 0.2
+            int steps = (int) Math.floor((to - from) / step + 1e-9);
+            List<Double> values = new ArrayList<>(steps + 1);
+            for (int k = 0; k <= steps; k++) {
+                values.add(Math.round((from + k * step) * 1e9) / 1e9);
+            }
+            return values;
+        }
+        return Arrays.stream(spec.split(","))
+            .map(String::trim)
+            .filter(s -> !s.isEmpty())
+            .map(Double::parseDouble)
+            .distinct()
+            .collect(Collectors.toList());
+    }
+    
+    private static void printTable(List<StrategyMetrics> ranked, int top, List<String> formulas) {
+        // Formulas are shown by their line in the formulas file when there are several
+        boolean showFormula = formulas.size() > 1;
+        System.out.printf("%4s %4s %4s %4s %6s %5s %9s %6s %9s %8s %8s%s%n",
+            "rank", "zwin", "high", "sma", "ddMax", "zMax", "tiers", "buy%", "invested", "return", "excess",
+            showFormula ? " formula" : "");
+        for (int i = 0; i < Math.min(top, ranked.size()); i++) {
+            StrategyMetrics m = ranked.get(i);
+            Config c = m.getConfig();
+            System.out.printf("%4d %4d %4d %4d %6.3f %5.2f %9s %5.1f%% %9.0f %7.2f%% %7.2f%%%s%n",
+                i + 1, c.getZscoreWindow(), c.getLookbackHighDays(), c.getSmaDays(), c.getDrawdownMax(),
+                c.getZscoreMax(), c.getTierStrongBuy() + "/" + c.getTierBuy() + "/" + c.getTierDcaOnly(),
+                100.0 * m.getBuyDays() / m.getDays(), m.getInvestedUsd(),
+                100 * m.getReturn(), 100 * m.getExcessReturn(),
+                showFormula ? String.format(" %7d", formulas.indexOf(c.getScoreFormula()) + 1) : "");
+        }
+    }
+    
+    private static void writeCsv(List<StrategyMetrics> ranked, Path outFile) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(outFile, StandardCharsets.UTF_8)) {
+            out.write(RESULT_HEADER);
+            out.write('\n');
+            StringBuilder row = new StringBuilder(160);
+            for (int i = 0; i < ranked.size(); i++) {
+                StrategyMetrics m = ranked.get(i);
+                Config c = m.getConfig();
+                row.setLength(0);
+                row.append(i + 1).append(',')
+                   .append(c.getZscoreWindow()).append(',')
+                   .append(c.getLookbackHighDays()).append(',')
+                   .append(c.getSmaDays()).append(',')
+                   .append(Backtester.formatDouble(c.getDrawdownMax())).append(',')
+                   .append(Backtester.formatDouble(c.getZscoreMax())).append(',')
+                   .append(c.getTierStrongBuy()).append(',')
+                   .append(c.getTierBuy()).append(',')
+                   .append(c.getTierDcaOnly()).append(',')
+                   .append(m.getDays()).append(',')
+                   .append(m.getBuyDays()).append(',')
+                   .append(Backtester.formatDouble(m.getInvestedUsd())).append(',')
+                   .append(Backtester.formatDouble(m.getFinalValueUsd())).append(',')
+                   .append(Backtester.formatDouble(m.getReturn())).append(',')
+                   .append(Backtester.formatDouble(m.getBaselineReturn())).append(',')
+                   .append(Backtester.formatDouble(m.getExcessReturn())).append(',')
+                   .append('"').append(c.getScoreFormula().replace("\"", "\"\"")).append('"').append('\n');
+                out.append(row);
+            }
+        }
+    }
+    
+    /**
+     * Closes of one ticker plus its indicator columns, each computed on first use and kept by
+     * window length (NaN SMA while the window fills).
+     */
+    static final class TickerColumns {
+        final String ticker;
+        final int[] epochDays;
+        final double[] closes;
+        private final Map<Integer, double[]> sma = new ConcurrentHashMap<>();
+        private final Map<Integer, double[]> drawdown = new ConcurrentHashMap<>();
+        private final Map<Integer, double[]> zscore = new ConcurrentHashMap<>();
+        
+        TickerColumns(String ticker, PriceSeries series) {
+            this.ticker = ticker;
+            this.epochDays = series.epochDaysToArray();
+            this.closes = series.closesToArray();
+        }
+        
+        double[] sma(int window) {
+            return sma.computeIfAbsent(window, w -> IndicatorKernels.sma(closes, w));
+        }
+        
+        double[] drawdown(int lookback) {
+            return drawdown.computeIfAbsent(lookback, w -> IndicatorKernels.drawdown(closes, w));
+        }
+        
+        double[] zscore(int window) {
+            return zscore.computeIfAbsent(window, w -> IndicatorKernels.zscore(closes, w));
+        }
+    }
+    
+    /**
+     * Parameters that determine the buy score (everything except the tier thresholds).
+     */
+    static final class ScoreKey {
+        final int zscoreWindow;
+        final int lookbackHighDays;
+        final int smaDays;
+        final double drawdownMax;
+        final double zscoreMax;
+        final String formula;
+        
+        private ScoreKey(int zscoreWindow, int lookbackHighDays, int smaDays, double drawdownMax, double zscoreMax,
+                         String formula) {
+            this.zscoreWindow = zscoreWindow;
+            this.lookbackHighDays = lookbackHighDays;
+            this.smaDays = smaDays;
+            this.drawdownMax = drawdownMax;
+            this.zscoreMax = zscoreMax;
+            this.formula = formula;
+        }
+        
+        static ScoreKey of(Config c) {
+            return new ScoreKey(c.getZscoreWindow(), c.getLookbackHighDays(), c.getSmaDays(),
+                c.getDrawdownMax(), c.getZscoreMax(), c.getScoreFormula());
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ScoreKey)) {
+                return false;
+            }
+            ScoreKey k = (ScoreKey) o;
+            return zscoreWindow == k.zscoreWindow && lookbackHighDays == k.lookbackHighDays && smaDays == k.smaDays
+                && Double.compare(drawdownMax, k.drawdownMax) == 0 && Double.compare(zscoreMax, k.zscoreMax) == 0
+                && formula.equals(k.formula);
+        }
+        
+        @Override
+        public int hashCode() {
+            int h = zscoreWindow;
+            h = 31 * h + lookbackHighDays;
+            h = 31 * h + smaDays;
+            h = 31 * h + Double.hashCode(drawdownMax);
+            h = 31 * h + Double.hashCode(zscoreMax);
+            return 31 * h + formula.hashCode();
+        }
+    }
+    
+    /**
+     * Trading days per buy score across all tickers, and the final value of $1 bought on them.
+     */
+    static final class ScoreHistogram {
+        final long[] days = new long[SCORE_LEVELS];
+        final double[] growth = new double[SCORE_LEVELS];
+        
+        StrategyMetrics evaluate(Config config) {
+            long totalDays = 0;
+            long buyDays = 0;
+            double invested = 0.0;
+            double finalValue = 0.0;
+            double baselineValue = 0.0;
+            
+            for (int score = 0; score < SCORE_LEVELS; score++) {
+                Tier tier = Tier.of(score, config);
+                double buyUsd = Backtester.suggestedBuyUsd(tier);
+                totalDays += days[score];
+                if (tier.isBuy()) {
+                    buyDays += days[score];
+                }
+                invested += buyUsd * days[score];
+                finalValue += buyUsd * growth[score];
+                baselineValue += Backtester.BASELINE_DCA_USD * growth[score];
+            }
+            double baselineInvested = Backtester.BASELINE_DCA_USD * totalDays;
+            return new StrategyMetrics(config, totalDays, buyDays, invested, finalValue,
+                baselineInvested, baselineValue);
+        }
+    }
+    
+    /**
+     * Outcome of one parameter combination: following the tiered suggested buys on every
+     * backtest day across all tickers, compared with buying the baseline DCA amount every day.
+     */
+    public static class StrategyMetrics {
+        private final Config config;
+        private final long days;
+        private final long buyDays;
+        private final double investedUsd;
+        private final double finalValueUsd;
+        private final double baselineInvestedUsd;
+        private final double baselineValueUsd;
+        
+        public StrategyMetrics(Config config, long days, long buyDays, double investedUsd, double finalValueUsd,
+                               double baselineInvestedUsd, double baselineValueUsd) {
+            this.config = config;
+            this.days = days;
+            this.buyDays = buyDays;
+            this.investedUsd = investedUsd;
+            this.finalValueUsd = finalValueUsd;
+            this.baselineInvestedUsd = baselineInvestedUsd;
+            this.baselineValueUsd = baselineValueUsd;
+        }
+        
+        public Config getConfig() { return config; }
+        public long getDays() { return days; }
+        public long getBuyDays() { return buyDays; }
+        public double getInvestedUsd() { return investedUsd; }
+        public double getFinalValueUsd() { return finalValueUsd; }
+        public double getBaselineInvestedUsd() { return baselineInvestedUsd; }
+        public double getBaselineValueUsd() { return baselineValueUsd; }
+        
+        /** Final value over amount invested, minus one (NaN if nothing was bought). */
+        public double getReturn() {
+            return investedUsd > 0 ? finalValueUsd / investedUsd - 1.0 : Double.NaN;
+        }
+        
+        public double getBaselineReturn() {
+            return baselineInvestedUsd > 0 ? baselineValueUsd / baselineInvestedUsd - 1.0 : Double.NaN;
+        }
+        
+        public double getExcessReturn() {
+            return getReturn() - getBaselineReturn();
+        }
+    }
+}
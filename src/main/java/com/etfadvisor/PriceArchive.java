@@ -0,0 +1,554 @@
+package com.etfadvisor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binary columnar price history for one ticker (*.pcol), the compact alternative to the
+ * yfinance CSV exports. Layout, little-endian:
+ * <pre>
+ *   header     magic "PCOL", u16 version, u16 column count, i32 rows, i32 first epoch day
+ *   directory  per column: u8 column id (255 = dates), u8 encoding, u16 0, i32 offset, i32 bytes, i32 0
+ *   sections   one per column, each starting on an 8-byte boundary
+ * </pre>
+ * Dates are varint deltas from the first epoch day (one byte per trading day). Price columns
+ * are RAW (f64, exposed as a DoubleBuffer over the mapped file with no decode), FLOAT32
+ * (half the size, lossy) or XOR (lossless Gorilla-style XOR of consecutive values; sparse
+ * columns like dividends shrink to about a bit per row). Volume is zigzag varint deltas.
+ *
+ * Usage: PriceArchive --convert data [--out data] [--encoding raw|xor|float32]
+ *        PriceArchive --info data/VOO_5y.pcol
+ */
+public final class PriceArchive {
+    
+    public static final String FILE_SUFFIX = ".pcol";
+    
+    public enum Encoding {
+        RAW,
+        FLOAT32,
+        XOR,
+        VARINT_DELTA
+    }
+    
+    private static final int MAGIC = 0x4C4F4350; // "PCOL"
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int ENTRY_BYTES = 16;
+    private static final int DATES_ID = 255;
+    private static final OhlcvCsvLoader.Column[] COLUMNS = OhlcvCsvLoader.Column.values();
+    private static final Encoding[] ENCODINGS = Encoding.values();
+    
+    private final Path file;
+    private final ByteBuffer buf;
+    private final int rows;
+    private final int firstEpochDay;
+    // Indexed by column ordinal; the dates section is tracked separately
+    private final Encoding[] encodings = new Encoding[COLUMNS.length];
+    private final int[] offsets = new int[COLUMNS.length];
+    private final int[] lengths = new int[COLUMNS.length];
+    private int datesOffset = -1;
+    private int datesLength;
+    
+    private PriceArchive(Path file, ByteBuffer buf) throws IOException {
+        this.file = file;
+        this.buf = buf.order(ByteOrder.LITTLE_ENDIAN);
+        if (buf.limit() < HEADER_BYTES || buf.getInt(0) != MAGIC) {
+            throw new IOException("Not a price archive: " + file);
+        }
+        if (buf.getShort(4) != VERSION) {
+            throw new IOException("Unsupported price archive version " + buf.getShort(4) + ": " + file);
+        }
+        int columnCount = buf.getShort(6);
+        this.rows = buf.getInt(8);
+        this.firstEpochDay = buf.getInt(12);
+        for (int c = 0; c < columnCount; c++) {
+            int entry = HEADER_BYTES + c * ENTRY_BYTES;
+            int id = buf.get(entry) & 0xFF;
+            int offset = buf.getInt(entry + 4);
+            int length = buf.getInt(entry + 8);
+            if (offset < 0 || length < 0 || (long) offset + length > buf.limit()) {
+                throw new IOException("Corrupt column directory in " + file);
+            }
+            if (id == DATES_ID) {
+                datesOffset = offset;
+                datesLength = length;
+            } else if (id < COLUMNS.length) {
+                encodings[id] = ENCODINGS[buf.get(entry + 1)];
+                offsets[id] = offset;
+                lengths[id] = length;
+            }
+        }
+        if (datesOffset < 0) {
+            throw new IOException("Price archive without dates: " + file);
+        }
+    }
+    
+    /**
+     * Memory-maps an archive. Sections are decoded only when asked for.
+     */
+    public static PriceArchive open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new PriceArchive(file, buf);
+        }
+    }
+    
+    public Path getFile() { return file; }
+    public int size() { return rows; }
+    public int firstEpochDay() { return firstEpochDay; }
+    
+    public boolean has(OhlcvCsvLoader.Column column) {
+        return encodings[column.ordinal()] != null;
+    }
+    
+    /** Encoding of a column, or null if the archive does not have it. */
+    public Encoding encoding(OhlcvCsvLoader.Column column) {
+        return encodings[column.ordinal()];
+    }
+    
+    /** Size of a column's section in bytes. */
+    public int sectionBytes(OhlcvCsvLoader.Column column) {
+        return lengths[require(column)];
+    }
+    
+    public int[] epochDays() {
+        int[] days = new int[rows];
+        int pos = datesOffset;
+        int end = datesOffset + datesLength;
+        int day = firstEpochDay;
+        if (rows > 0) {
+            days[0] = day;
+        }
+        for (int i = 1; i < rows; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (pos >= end) {
+                    throw new IllegalStateException("Truncated dates section in " + file);
+                }
+                b = buf.get(pos++);
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            day += delta;
+            days[i] = day;
+        }
+        return days;
+    }
+    
+    /**
+     * Read-only view of a RAW column over the mapped file (no copy, no decode).
+     */
+    public DoubleBuffer view(OhlcvCsvLoader.Column column) {
+        int c = require(column);
+        if (encodings[c] != Encoding.RAW) {
+            throw new IllegalStateException(column + " is " + encodings[c] + "-encoded; use doubles()");
+        }
+        return section(c).asDoubleBuffer();
+    }
+    
+    /**
+     * Read-only view of a FLOAT32 column over the mapped file.
+     */
+    public FloatBuffer floatView(OhlcvCsvLoader.Column column) {
+        int c = require(column);
+        if (encodings[c] != Encoding.FLOAT32) {
+            throw new IllegalStateException(column + " is " + encodings[c] + "-encoded; use doubles()");
+        }
+        return section(c).asFloatBuffer();
+    }
+    
+    /**
+     * A column decoded into a new array, whatever its encoding.
+     */
+    public double[] doubles(OhlcvCsvLoader.Column column) {
+        int c = require(column);
+        double[] out = new double[rows];
+        switch (encodings[c]) {
+            case RAW:
+                section(c).asDoubleBuffer().get(out);
+                break;
+            case FLOAT32:
+                FloatBuffer floats = section(c).asFloatBuffer();
+                for (int i = 0; i < rows; i++) {
+                    out[i] = floats.get(i);
+                }
+                break;
+            case XOR:
+                new XorReader(section(c)).read(out, rows);
+                break;
+            case VARINT_DELTA:
+                long[] longs = longs(column);
+                for (int i = 0; i < rows; i++) {
+                    out[i] = longs[i];
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown encoding " + encodings[c]);
+        }
+        return out;
+    }
+    
+    /**
+     * A VARINT_DELTA column (volume) decoded into a new array.
+     */
+    public long[] longs(OhlcvCsvLoader.Column column) {
+        int c = require(column);
+        if (encodings[c] != Encoding.VARINT_DELTA) {
+            throw new IllegalStateException(column + " is " + encodings[c] + "-encoded; use doubles()");
+        }
+        long[] out = new long[rows];
+        int pos = offsets[c];
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            long zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buf.get(pos++);
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+            out[i] = previous;
+        }
+        return out;
+    }
+    
+    /**
+     * Dates and closes, without rows whose close is missing (as OhlcvCsvLoader.Bars.closes()).
+     */
+    public PriceSeries closes() {
+        int[] days = epochDays();
+        double[] closes = doubles(OhlcvCsvLoader.Column.CLOSE);
+        int count = 0;
+        for (int i = 0; i < rows; i++) {
+            if (!Double.isNaN(closes[i])) {
+                days[count] = days[i];
+                closes[count] = closes[i];
+                count++;
+            }
+        }
+        return PriceSeries.wrap(days, closes, count);
+    }
+    
+    private int require(OhlcvCsvLoader.Column column) {
+        int c = column.ordinal();
+        if (encodings[c] == null) {
+            throw new IllegalArgumentException("No " + column + " column in " + file);
+        }
+        return c;
+    }
+    
+    private ByteBuffer section(int c) {
+        return buf.slice(offsets[c], lengths[c]).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    
+    /**
+     * Writes every loaded column of {@code bars}: OHLC with {@code priceEncoding}, volume as
+     * varint deltas and the sparse columns (dividends, splits, capital gains) XOR-encoded.
+     * The file is replaced atomically.
+     */
+    public static void write(Path file, OhlcvCsvLoader.Bars bars, Encoding priceEncoding) throws IOException {
+        int rows = bars.size();
+        int[] days = bars.epochDayArray();
+        for (int i = 1; i < rows; i++) {
+            if (days[i] < days[i - 1]) {
+                throw new IllegalArgumentException("Dates must be ascending: row " + i + " of " + file);
+            }
+        }
+        
+        List<Integer> ids = new ArrayList<>();
+        List<Encoding> encodings = new ArrayList<>();
+        List<byte[]> sections = new ArrayList<>();
+        
+        ByteSink dates = new ByteSink(rows + 8);
+        for (int i = 1; i < rows; i++) {
+            dates.varint(days[i] - days[i - 1]);
+        }
+        ids.add(DATES_ID);
+        encodings.add(Encoding.VARINT_DELTA);
+        sections.add(dates.toArray());
+        
+        for (OhlcvCsvLoader.Column column : COLUMNS) {
+            if (!bars.has(column)) {
+                continue;
+            }
+            Encoding encoding;
+            byte[] section;
+            if (column == OhlcvCsvLoader.Column.VOLUME) {
+                encoding = Encoding.VARINT_DELTA;
+                ByteSink sink = new ByteSink(rows * 3);
+                long previous = 0;
+                long[] volumes = bars.volumes();
+                for (int i = 0; i < rows; i++) {
+                    long delta = volumes[i] - previous;
+                    sink.varint((delta << 1) ^ (delta >> 63));
+                    previous = volumes[i];
+                }
+                section = sink.toArray();
+            } else {
+                boolean price = column.ordinal() <= OhlcvCsvLoader.Column.CLOSE.ordinal();
+                encoding = price ? priceEncoding : Encoding.XOR;
+                section = encode(bars.doubles(column), rows, encoding);
+            }
+            ids.add(column.ordinal());
+            encodings.add(encoding);
+            sections.add(section);
+        }
+        
+        // Header and directory, then 8-byte aligned sections
+        int columnCount = sections.size();
+        int offset = align(HEADER_BYTES + columnCount * ENTRY_BYTES);
+        ByteBuffer header = ByteBuffer.allocate(offset).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putShort(VERSION).putShort((short) columnCount)
+            .putInt(rows).putInt(rows > 0 ? days[0] : 0);
+        for (int c = 0; c < columnCount; c++) {
+            header.put((byte) (int) ids.get(c)).put((byte) encodings.get(c).ordinal()).putShort((short) 0)
+                .putInt(offset).putInt(sections.get(c).length).putInt(0);
+            offset = align(offset + sections.get(c).length);
+        }
+        
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            out.write(header.array());
+            int written = header.capacity();
+            for (byte[] section : sections) {
+                out.write(section);
+                written += section.length;
+                int padding = align(written) - written;
+                out.write(new byte[padding]);
+                written += padding;
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private static byte[] encode(double[] values, int rows, Encoding encoding) {
+        switch (encoding) {
+            case RAW: {
+                ByteBuffer out = ByteBuffer.allocate(rows * 8).order(ByteOrder.LITTLE_ENDIAN);
+                out.asDoubleBuffer().put(values, 0, rows);
+                return out.array();
+            }
+            case FLOAT32: {
+                ByteBuffer out = ByteBuffer.allocate(rows * 4).order(ByteOrder.LITTLE_ENDIAN);
+                FloatBuffer floats = out.asFloatBuffer();
+                for (int i = 0; i < rows; i++) {
+                    floats.put((float) values[i]);
+                }
+                return out.array();
+            }
+            case XOR:
+                return XorWriter.encode(values, rows);
+            default:
+                throw new IllegalArgumentException("Not a float column encoding: " + encoding);
+        }
+    }
+    
+    private static int align(int offset) {
+        return (offset + 7) & ~7;
+    }
+    
+    /**
+     * Growable byte array with LEB128 varints.
+     */
+    private static final class ByteSink {
+        private byte[] bytes;
+        private int size;
+        
+        ByteSink(int capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+        }
+        
+        void varint(long value) {
+            if (size + 10 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+        
+        byte[] toArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+    
+    /**
+     * XOR of each value's bits with the previous value's: '0' when equal, otherwise '1' then
+     * either '0' and the meaningful bits in the previous leading/trailing-zero window, or '1',
+     * 5 bits of leading zeros, 6 bits of (meaningful length - 1) and the meaningful bits.
+     * The first value is stored in full. Bits are packed most significant first.
+     */
+    static final class XorWriter {
+        private byte[] bytes;
+        private int bitCount;
+        
+        private XorWriter(int capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+        }
+        
+        static byte[] encode(double[] values, int rows) {
+            XorWriter out = new XorWriter(rows * 4);
+            if (rows == 0) {
+                return new byte[0];
+            }
+            long previous = Double.doubleToRawLongBits(values[0]);
+            out.write(previous, 64);
+            int prevLeading = Integer.MAX_VALUE;
+            int prevTrailing = 0;
+            for (int i = 1; i < rows; i++) {
+                long bits = Double.doubleToRawLongBits(values[i]);
+                long xor = bits ^ previous;
+                previous = bits;
+                if (xor == 0) {
+                    out.write(0, 1);
+                    continue;
+                }
+                int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                int trailing = Long.numberOfTrailingZeros(xor);
+                if (prevLeading != Integer.MAX_VALUE && leading >= prevLeading && trailing >= prevTrailing) {
+                    out.write(0b10, 2);
+                    out.write(xor >>> prevTrailing, 64 - prevLeading - prevTrailing);
+                } else {
+                    int meaningful = 64 - leading - trailing;
+                    out.write(0b11, 2);
+                    out.write(leading, 5);
+                    out.write(meaningful - 1, 6);
+                    out.write(xor >>> trailing, meaningful);
+                    prevLeading = leading;
+                    prevTrailing = trailing;
+                }
+            }
+            return Arrays.copyOf(out.bytes, (out.bitCount + 7) >>> 3);
+        }
+        
+        private void write(long value, int bits) {
+            if (((bitCount + bits) >>> 3) + 1 >= bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2 + 16);
+            }
+            for (int i = bits - 1; i >= 0; ) {
+                int byteIndex = bitCount >>> 3;
+                int free = 8 - (bitCount & 7);
+                int take = Math.min(free, i + 1);
+                int chunk = (int) ((value >>> (i + 1 - take)) & ((1 << take) - 1));
+                bytes[byteIndex] |= (byte) (chunk << (free - take));
+                bitCount += take;
+                i -= take;
+            }
+        }
+    }
+    
+    static final class XorReader {
+        private final ByteBuffer in;
+        private long bitPos;
+        
+        XorReader(ByteBuffer in) {
+            this.in = in;
+        }
+        
+        void read(double[] out, int rows) {
+            if (rows == 0) {
+                return;
+            }
+            long previous = bits(64);
+            out[0] = Double.longBitsToDouble(previous);
+            int leading = 0;
+            int trailing = 0;
+            for (int i = 1; i < rows; i++) {
+                if (bits(1) != 0) {
+                    if (bits(1) != 0) {
+                        leading = (int) bits(5);
+                        int meaningful = (int) bits(6) + 1;
+                        trailing = 64 - leading - meaningful;
+                    }
+                    previous ^= bits(64 - leading - trailing) << trailing;
+                }
+                out[i] = Double.longBitsToDouble(previous);
+            }
+        }
+        
+        private long bits(int count) {
+            long value = 0;
+            while (count > 0) {
+                int b = in.get((int) (bitPos >>> 3)) & 0xFF;
+                int available = 8 - (int) (bitPos & 7);
+                int take = Math.min(available, count);
+                value = (value << take) | ((b >>> (available - take)) & ((1 << take) - 1));
+                bitPos += take;
+                count -= take;
+            }
+            return value;
+        }
+    }
+    
+    public static void main(String[] args) throws IOException {
+        Path convertDir = null;
+        Path outDir = null;
+        Path info = null;
+        Encoding encoding = Encoding.RAW;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--convert": convertDir = Paths.get(args[++i]); break;
+                case "--out": outDir = Paths.get(args[++i]); break;
+                case "--info": info = Paths.get(args[++i]); break;
+                case "--encoding": encoding = Encoding.valueOf(args[++i].toUpperCase()); break;
+                default: throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        
+        if (info != null) {
+            PriceArchive archive = open(info);
+            int[] days = archive.epochDays();
+            System.out.printf("%s: %d rows, %s to %s, %d bytes%n", info, archive.size(),
+                days.length > 0 ? java.time.LocalDate.ofEpochDay(days[0]) : "-",
+                days.length > 0 ? java.time.LocalDate.ofEpochDay(days[days.length - 1]) : "-", Files.size(info));
+            for (OhlcvCsvLoader.Column column : COLUMNS) {
+                if (archive.has(column)) {
+                    System.out.printf("  %-14s %-12s %8d bytes%n", column, archive.encoding(column), archive.sectionBytes(column));
+                }
+            }
+            return;
+        }
+        if (convertDir == null) {
+            throw new IllegalArgumentException("Usage: PriceArchive --convert DATA_DIR [--out DIR] [--encoding raw|xor|float32] | --info FILE");
+        }
+        if (outDir == null) {
+            outDir = convertDir;
+        }
+        Files.createDirectories(outDir);
+        long csvBytes = 0;
+        long archiveBytes = 0;
+        for (String ticker : Backtester.listTickers(convertDir)) {
+            Path csv = convertDir.resolve(ticker + Backtester.CSV_SUFFIX);
+            if (!Files.exists(csv)) {
+                continue;
+            }
+            Path target = outDir.resolve(ticker + Backtester.ARCHIVE_SUFFIX);
+            write(target, OhlcvCsvLoader.load(csv), encoding);
+            csvBytes += Files.size(csv);
+            archiveBytes += Files.size(target);
+            System.out.printf("%-6s %8d -> %7d bytes%n", ticker, Files.size(csv), Files.size(target));
+        }
+        System.out.printf("Total %d -> %d bytes (%.1f%%)%n", csvBytes, archiveBytes,
+            csvBytes > 0 ? 100.0 * archiveBytes / csvBytes : 0);
+    }
+}
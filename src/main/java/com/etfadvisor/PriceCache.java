@@ -0,0 +1,268 @@
+package com.etfadvisor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent store of daily closes, one file per ticker ("yyyy-MM-dd,close" lines), on the
+ * chart API's basis (split-adjusted, not dividend-adjusted). Every write replaces the whole
+ * file through a temp file and an atomic move, so a reader never sees a half-written line.
+ * Loaded series are also kept in memory, so warm Lambda invocations skip the disk read.
+ * Only completed bars (dated before today) are persisted; today's bar is always re-fetched.
+ * A ticker whose history Yahoo has re-adjusted (e.g. for a split) is rewritten via {@link #replace}.
+ *
+ * Usage (seed from the backtest CSVs): PriceCache --seed data [--dir /tmp/etf-price-cache]
+ */
+public class PriceCache {
+    
+    private static final String FILE_SUFFIX = ".csv";
+    
+    private final Path directory;
+    private final Map<String, PriceSeries> loaded = new ConcurrentHashMap<>();
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+    
+    public PriceCache(Path directory) {
+        this.directory = directory;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        Path dir = Paths.get(new Config().getPriceCacheDir());
+        Path seedDir = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--dir": dir = Paths.get(args[++i]); break;
+                case "--seed": seedDir = Paths.get(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        if (seedDir == null) {
+            throw new IllegalArgumentException("Usage: PriceCache --seed DATA_DIR [--dir CACHE_DIR]");
+        }
+        int seeded = new PriceCache(dir).seedFromCsv(seedDir);
+        System.out.printf("Seeded %d tickers into %s%n", seeded, dir);
+    }
+    
+    public Path getDirectory() { return directory; }
+    
+    /**
+     * All cached bars for a ticker (empty if nothing is cached yet).
+     */
+    public PriceSeries load(String ticker) throws IOException {
+        PriceSeries series = loaded.get(ticker);
+        if (series != null) {
+            return series;
+        }
+        synchronized (lockFor(ticker)) {
+            series = loaded.get(ticker);
+            if (series == null) {
+                series = readFile(fileFor(ticker));
+                loaded.put(ticker, series);
+            }
+            return series;
+        }
+    }
+    
+    /**
+     * Appends completed bars dated after the last cached bar.
+     * @return Number of bars written
+     */
+    public int append(String ticker, PriceSeries bars) throws IOException {
+        synchronized (lockFor(ticker)) {
+            PriceSeries cached = load(ticker);
+            int lastDay = cached.isEmpty() ? Integer.MIN_VALUE : cached.epochDay(cached.size() - 1);
+            PriceSeries fresh = completed(bars).between(lastDay + 1, Integer.MAX_VALUE);
+            if (fresh.isEmpty()) {
+                return 0;
+            }
+            rewrite(ticker, PriceSeries.concat(cached, fresh));
+            return fresh.size();
+        }
+    }
+    
+    /**
+     * Merges bars that may overlap or precede the cached range, rewriting the file.
+     * Fetched values win over cached ones for the same date.
+     */
+    public void merge(String ticker, PriceSeries bars) throws IOException {
+        synchronized (lockFor(ticker)) {
+            PriceSeries cached = load(ticker);
+            PriceSeries fresh = completed(bars);
+            if (fresh.isEmpty()) {
+                return;
+            }
+            int firstDay = fresh.epochDay(0);
+            int lastDay = fresh.epochDay(fresh.size() - 1);
+            PriceSeries before = cached.between(Integer.MIN_VALUE, firstDay - 1);
+            PriceSeries after = cached.between(lastDay + 1, Integer.MAX_VALUE);
+            rewrite(ticker, PriceSeries.concat(PriceSeries.concat(before, fresh), after));
+        }
+    }
+    
+    /**
+     * Discards everything cached for a ticker and stores {@code bars} instead, e.g. after a
+     * split has changed the closes of the cached dates.
+     */
+    public void replace(String ticker, PriceSeries bars) throws IOException {
+        synchronized (lockFor(ticker)) {
+            rewrite(ticker, completed(bars));
+        }
+    }
+    
+    /**
+     * Seeds tickers that are not cached yet from the data/*_5y.csv exports. Their Close is
+     * dividend-adjusted, so it is converted back with the Dividends column first; exports
+     * without that column (and tickers with only a .pcol archive) are skipped rather than mixed
+     * with chart closes.
+     * @return Number of tickers seeded
+     */
+    public int seedFromCsv(Path dataDir) throws IOException {
+        int seeded = 0;
+        for (String ticker : Backtester.listTickers(dataDir)) {
+            Path csv = dataDir.resolve(ticker + Backtester.CSV_SUFFIX);
+            if (!Files.exists(csv)) {
+                continue;
+            }
+            OhlcvCsvLoader.Bars bars = OhlcvCsvLoader.load(csv);
+            if (!bars.has(OhlcvCsvLoader.Column.CLOSE) || !bars.has(OhlcvCsvLoader.Column.DIVIDENDS)) {
+                continue;
+            }
+            synchronized (lockFor(ticker)) {
+                if (load(ticker).isEmpty()) {
+                    rewrite(ticker, completed(unadjusted(bars)));
+                    seeded++;
+                }
+            }
+        }
+        return seeded;
+    }
+    
+    /**
+     * yfinance's dividend-adjusted Close turned back into the chart API's close. Walking back
+     * from the newest bar, the close before an ex-dividend date is adjusted / factor + dividend,
+     * and the factor for the bars before it becomes adjusted / close there. Splits stay applied.
+     */
+    static PriceSeries unadjusted(OhlcvCsvLoader.Bars bars) {
+        double[] adjusted = bars.doubles(OhlcvCsvLoader.Column.CLOSE);
+        double[] dividends = bars.doubles(OhlcvCsvLoader.Column.DIVIDENDS);
+        int size = bars.size();
+        double[] closes = new double[size];
+        double factor = 1.0;
+        double pendingDividend = 0.0;
+        for (int i = size - 1; i >= 0; i--) {
+            closes[i] = adjusted[i] / factor + pendingDividend;
+            if (!Double.isNaN(adjusted[i])) {
+                if (pendingDividend > 0) {
+                    factor = adjusted[i] / closes[i];
+                }
+                pendingDividend = 0.0;
+            }
+            if (dividends[i] > 0) {
+                pendingDividend += dividends[i];
+            }
+        }
+        
+        int[] epochDays = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (!Double.isNaN(closes[i])) {
+                epochDays[count] = bars.epochDay(i);
+                closes[count] = closes[i];
+                count++;
+            }
+        }
+        return PriceSeries.wrap(epochDays, closes, count);
+    }
+    
+    /**
+     * Drops bars dated today or later: they may still change before the close.
+     */
+    private static PriceSeries completed(PriceSeries bars) {
+        return bars.between(Integer.MIN_VALUE, (int) LocalDate.now().toEpochDay() - 1);
+    }
+    
+    /**
+     * Writes the whole file through a temp file and an atomic move. Caller holds the ticker lock.
+     */
+    private void rewrite(String ticker, PriceSeries bars) throws IOException {
+        Files.createDirectories(directory);
+        Path target = fileFor(ticker);
+        Path temp = directory.resolve(ticker + FILE_SUFFIX + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writeBars(out, bars);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        loaded.put(ticker, bars);
+    }
+    
+    private Object lockFor(String ticker) {
+        return locks.computeIfAbsent(ticker, t -> new Object());
+    }
+    
+    private Path fileFor(String ticker) {
+        return directory.resolve(ticker + FILE_SUFFIX);
+    }
+    
+    private static void writeBars(BufferedWriter out, PriceSeries bars) throws IOException {
+        for (int i = 0; i < bars.size(); i++) {
+            out.write(bars.date(i).toString());
+            out.write(',');
+            out.write(Double.toString(bars.close(i)));
+            out.write('\n');
+        }
+    }
+    
+    /**
+     * Parses a cache file. {@link #rewrite} only ever replaces a file whole, so each one is a
+     * complete write; lines that do not parse or are out of date order are still skipped, and
+     * text after the last newline ignored, for files copied in or edited by hand.
+     */
+    private static PriceSeries readFile(Path file) throws IOException {
+        int[] epochDays = new int[512];
+        double[] closes = new double[512];
+        int count = 0;
+        
+        String text;
+        try {
+            text = Files.readString(file, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return PriceSeries.empty();
+        }
+        int end = text.lastIndexOf('\n') + 1;
+        for (String line : text.substring(0, end).split("\n")) {
+            int comma = line.indexOf(',');
+            if (comma < 0) {
+                continue;
+            }
+            int day;
+            double close;
+            try {
+                day = (int) LocalDate.parse(line.substring(0, comma)).toEpochDay();
+                close = Double.parseDouble(line.substring(comma + 1));
+            } catch (RuntimeException e) {
+                continue;
+            }
+            if (count > 0 && day <= epochDays[count - 1]) {
+                continue;
+            }
+            if (count == closes.length) {
+                epochDays = Arrays.copyOf(epochDays, count * 2);
+                closes = Arrays.copyOf(closes, count * 2);
+            }
+            epochDays[count] = day;
+            closes[count] = close;
+            count++;
+        }
+        
+        return PriceSeries.wrap(epochDays, closes, count);
+    }
+}
@@ -0,0 +1,267 @@
+package com.etfadvisor;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Daily closes of many tickers on one shared date axis (the union of their trading dates).
+ * Closes live in a single column-major matrix, so a ticker's history is one contiguous run
+ * of the backing array and a date's cross-section is a fixed-stride gather; missing bars are NaN.
+ * Filled from the data/*.csv exports or from live fetches.
+ *
+ * Usage: PricePanel [--data data] [--date 2024-03-01] [--lookback 126]
+ *   Loads the CSVs and ranks the tickers by drawdown from their high on the date (default: last date).
+ */
+public final class PricePanel {
+    
+    private final List<String> tickers;
+    private final Map<String, Integer> tickerIndex;
+    private final int[] epochDays;
+    private final double[] closes;
+    
+    private PricePanel(List<String> tickers, int[] epochDays, double[] closes) {
+        this.tickers = Collections.unmodifiableList(tickers);
+        this.epochDays = epochDays;
+        this.closes = closes;
+        this.tickerIndex = new HashMap<>();
+        for (int t = 0; t < tickers.size(); t++) {
+            tickerIndex.put(tickers.get(t), t);
+        }
+    }
+    
+    /**
+     * Aligns the series onto the union of their dates, in map iteration order.
+     */
+    public static PricePanel of(Map<String, PriceSeries> seriesByTicker) {
+        // Date axis: every date any ticker traded, ascending and distinct
+        int total = 0;
+        for (PriceSeries series : seriesByTicker.values()) {
+            total += series.size();
+        }
+        int[] allDays = new int[total];
+        int n = 0;
+        for (PriceSeries series : seriesByTicker.values()) {
+            for (int i = 0; i < series.size(); i++) {
+                allDays[n++] = series.epochDay(i);
+            }
+        }
+        Arrays.sort(allDays);
+        int days = 0;
+        for (int i = 0; i < n; i++) {
+            if (days == 0 || allDays[i] != allDays[days - 1]) {
+                allDays[days++] = allDays[i];
+            }
+        }
+        int[] axis = Arrays.copyOf(allDays, days);
+        
+        // One merge walk per ticker against the axis
+        List<String> tickers = new ArrayList<>(seriesByTicker.keySet());
+        double[] closes = new double[tickers.size() * days];
+        Arrays.fill(closes, Double.NaN);
+        int column = 0;
+        for (PriceSeries series : seriesByTicker.values()) {
+            int base = column * days;
+            int d = 0;
+            for (int i = 0; i < series.size(); i++) {
+                int day = series.epochDay(i);
+                while (axis[d] < day) {
+                    d++;
+                }
+                closes[base + d] = series.close(i);
+            }
+            column++;
+        }
+        return new PricePanel(tickers, axis, closes);
+    }
+    
+    /**
+     * Every *_5y.csv export (or *_5y.pcol archive) in {@code dataDir}, tickers sorted.
+     */
+    public static PricePanel loadCsv(Path dataDir) throws IOException {
+        Map<String, PriceSeries> series = new LinkedHashMap<>();
+        for (String ticker : Backtester.listTickers(dataDir)) {
+            series.put(ticker, Backtester.loadHistory(dataDir, ticker));
+        }
+        return of(series);
+    }
+    
+    /**
+     * Fetches each ticker's history through YahooFinanceHelper (and the price cache) and aligns them.
+     * Tickers that fail are left out of the panel.
+     * @param cache Local price store (null = always fetch the full range)
+     * @param errors Receives the error message of each failed ticker (null = not reported)
+     */
+    public static PricePanel fetch(List<String> tickers, int daysNeeded, LocalDate endDate, PriceCache cache,
+                                   int concurrency, Map<String, String> errors) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(concurrency, tickers.size())), r -> {
+            Thread t = new Thread(r, "panel-fetch");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<PriceSeries>> futures = new ArrayList<>();
+            for (String ticker : tickers) {
+                futures.add(pool.submit(() -> YahooFinanceHelper.fetchHistoricalData(ticker, daysNeeded, endDate, null, cache)));
+            }
+            Map<String, PriceSeries> series = new LinkedHashMap<>();
+            for (int i = 0; i < tickers.size(); i++) {
+                try {
+                    series.put(tickers.get(i), futures.get(i).get());
+                } catch (ExecutionException e) {
+                    if (errors != null) {
+                        Throwable cause = e.getCause() != null ? e.getCause() : e;
+                        errors.put(tickers.get(i), cause.getMessage());
+                    }
+                }
+            }
+            return of(series);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    public List<String> getTickers() { return tickers; }
+    public int tickerCount() { return tickers.size(); }
+    public int dayCount() { return epochDays.length; }
+    public int epochDay(int d) { return epochDays[d]; }
+    public LocalDate date(int d) { return LocalDate.ofEpochDay(epochDays[d]); }
+    
+    /**
+     * Column of a ticker, or -1 if it is not in the panel.
+     */
+    public int indexOf(String ticker) {
+        Integer t = tickerIndex.get(ticker);
+        return t != null ? t : -1;
+    }
+    
+    /**
+     * Row of a date, or -1 if no ticker traded that day.
+     */
+    public int dayIndex(int epochDay) {
+        int d = Arrays.binarySearch(epochDays, epochDay);
+        return d >= 0 ? d : -1;
+    }
+    
+    /**
+     * Close of ticker column {@code t} on row {@code d} (NaN when it has no bar that day).
+     */
+    public double close(int t, int d) {
+        return closes[t * epochDays.length + d];
+    }
+    
+    /**
+     * Backing matrix: ticker {@code t}'s closes are {@code [columnOffset(t), columnOffset(t) + dayCount())}.
+     * Callers must not modify it.
+     */
+    public double[] closeArray() {
+        return closes;
+    }
+    
+    public int columnOffset(int t) {
+        return t * epochDays.length;
+    }
+    
+    /**
+     * Closes of every ticker on row {@code d}, in ticker order.
+     * @param out Array of at least tickerCount() entries (reused across calls)
+     */
+    public double[] row(int d, double[] out) {
+        int days = epochDays.length;
+        for (int t = 0, i = d; t < tickers.size(); t++, i += days) {
+            out[t] = closes[i];
+        }
+        return out;
+    }
+    
+    /**
+     * A ticker's bars without the NaN gaps, for the single-ticker scoring path.
+     */
+    public PriceSeries series(int t) {
+        int base = columnOffset(t);
+        int[] days = new int[epochDays.length];
+        double[] values = new double[epochDays.length];
+        int count = 0;
+        for (int d = 0; d < epochDays.length; d++) {
+            double close = closes[base + d];
+            if (!Double.isNaN(close)) {
+                days[count] = epochDays[d];
+                values[count] = close;
+                count++;
+            }
+        }
+        return PriceSeries.wrap(days, values, count);
+    }
+    
+    /**
+     * Each ticker's close on row {@code d} relative to its highest close over the last
+     * {@code lookback} panel dates, minus one (NaN when it has no bar on row {@code d}).
+     * @param out Array of at least tickerCount() entries (reused across calls)
+     */
+    public double[] drawdownsOn(int d, int lookback, double[] out) {
+        int days = epochDays.length;
+        int first = Math.max(0, d - lookback + 1);
+        for (int t = 0; t < tickers.size(); t++) {
+            int base = t * days;
+            double close = closes[base + d];
+            double max = close;
+            for (int i = base + first; i < base + d; i++) {
+                // NaN (missing bar) never wins the comparison
+                if (closes[i] > max) {
+                    max = closes[i];
+                }
+            }
+            out[t] = close / max - 1.0;
+        }
+        return out;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        Path dataDir = Paths.get("data");
+        LocalDate date = null;
+        int lookback = new Config().getLookbackHighDays();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--data": dataDir = Paths.get(args[++i]); break;
+                case "--date": date = LocalDate.parse(args[++i]); break;
+                case "--lookback": lookback = Integer.parseInt(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        
+        long start = System.nanoTime();
+        PricePanel panel = loadCsv(dataDir);
+        System.out.printf("Loaded %d tickers x %d dates (%s to %s) in %d ms%n", panel.tickerCount(), panel.dayCount(),
+            panel.date(0), panel.date(panel.dayCount() - 1), (System.nanoTime() - start) / 1_000_000);
+            
+        int d = date != null ? panel.dayIndex((int) date.toEpochDay()) : panel.dayCount() - 1;
+        if (d < 0) {
+            throw new IllegalArgumentException("No bars on " + date);
+        }
+        double[] drawdowns = panel.drawdownsOn(d, lookback, new double[panel.tickerCount()]);
+        Integer[] order = new Integer[panel.tickerCount()];
+        for (int t = 0; t < order.length; t++) {
+            order[t] = t;
+        }
+        // Deepest drawdown first, tickers without a bar that day last
+        Arrays.sort(order, (a, b) -> Double.compare(
+            Double.isNaN(drawdowns[a]) ? Double.MAX_VALUE : drawdowns[a],
+            Double.isNaN(drawdowns[b]) ? Double.MAX_VALUE : drawdowns[b]));
+        System.out.printf("Drawdown from %d-day high on %s:%n", lookback, panel.date(d));
+        for (int t : order) {
+            System.out.printf("  %-6s %8.2f%%%n", panel.getTickers().get(t), drawdowns[t] * 100);
+        }
+    }
+}
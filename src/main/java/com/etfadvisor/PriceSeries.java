@@ -0,0 +1,146 @@
+package com.etfadvisor;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Immutable daily close series backed by primitive arrays (oldest first).
+ * Windows are zero-copy views over the same arrays.
+ */
+public final class PriceSeries {
+    
+    private final int[] epochDays;
+    private final double[] closes;
+    private final int offset;
+    private final int length;
+    
+    private PriceSeries(int[] epochDays, double[] closes, int offset, int length) {
+        this.epochDays = epochDays;
+        this.closes = closes;
+        this.offset = offset;
+        this.length = length;
+    }
+    
+    /**
+     * Creates a series from copies of the given arrays.
+     * @param epochDays Trading dates as LocalDate.toEpochDay() values, ascending
+     * @param closes Close prices, same length as epochDays
+     */
+    public static PriceSeries of(int[] epochDays, double[] closes) {
+        return wrap(epochDays.clone(), closes.clone(), epochDays.length);
+    }
+    
+    /**
+     * Takes ownership of the arrays without copying; callers must not modify them afterwards.
+     * Only the first {@code length} entries are used.
+     */
+    static PriceSeries wrap(int[] epochDays, double[] closes, int length) {
+        if (epochDays.length < length || closes.length < length) {
+            throw new IllegalArgumentException("Arrays shorter than series length " + length);
+        }
+        return new PriceSeries(epochDays, closes, 0, length);
+    }
+    
+    public static PriceSeries empty() {
+        return new PriceSeries(new int[0], new double[0], 0, 0);
+    }
+    
+    /**
+     * Appends {@code next} after {@code first} into new arrays. Entries of {@code next}
+     * not strictly after the last date of {@code first} are dropped.
+     */
+    public static PriceSeries concat(PriceSeries first, PriceSeries next) {
+        int skip = first.isEmpty() ? 0 : next.indexOfDayAfter(first.epochDay(first.size() - 1));
+        int total = first.size() + next.size() - skip;
+        int[] days = new int[total];
+        double[] closes = new double[total];
+        System.arraycopy(first.epochDays, first.offset, days, 0, first.size());
+        System.arraycopy(first.closes, first.offset, closes, 0, first.size());
+        System.arraycopy(next.epochDays, next.offset + skip, days, first.size(), next.size() - skip);
+        System.arraycopy(next.closes, next.offset + skip, closes, first.size(), next.size() - skip);
+        return wrap(days, closes, total);
+    }
+    
+    public int size() { return length; }
+    public boolean isEmpty() { return length == 0; }
+    
+    public double close(int i) {
+        return closes[offset + checkIndex(i)];
+    }
+    
+    public int epochDay(int i) {
+        return epochDays[offset + checkIndex(i)];
+    }
+    
+    public LocalDate date(int i) {
+        return LocalDate.ofEpochDay(epochDay(i));
+    }
+    
+    public double lastClose() {
+        return close(length - 1);
+    }
+    
+    /**
+     * Zero-copy view of {@code length} entries starting at {@code from}.
+     */
+    public PriceSeries window(int from, int length) {
+        if (from < 0 || length < 0 || from + length > this.length) {
+            throw new IndexOutOfBoundsException("Window [" + from + ", " + (from + length) + ") outside series of size " + this.length);
+        }
+        return new PriceSeries(epochDays, closes, offset + from, length);
+    }
+    
+    /**
+     * Zero-copy view of the entries dated within [fromDay, toDay] (epoch days, inclusive).
+     */
+    public PriceSeries between(int fromDay, int toDay) {
+        int from = fromDay == Integer.MIN_VALUE ? 0 : indexOfDayAfter(fromDay - 1);
+        int to = indexOfDayAfter(toDay);
+        return window(from, Math.max(0, to - from));
+    }
+    
+    /**
+     * Index of the first entry dated strictly after {@code epochDay} (size() if none).
+     */
+    public int indexOfDayAfter(int epochDay) {
+        int lo = 0;
+        int hi = length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (epochDays[offset + mid] <= epochDay) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+    
+    /**
+     * Zero-copy view of the most recent {@code n} entries (or all of them if fewer).
+     */
+    public PriceSeries last(int n) {
+        int len = Math.min(n, length);
+        return window(length - len, len);
+    }
+    
+    public double[] closesToArray() {
+        return Arrays.copyOfRange(closes, offset, offset + length);
+    }
+    
+    public int[] epochDaysToArray() {
+        return Arrays.copyOfRange(epochDays, offset, offset + length);
+    }
+    
+    // Raw access for tight loops: index i of this view is closeArray()[arrayOffset() + i]
+    double[] closeArray() { return closes; }
+    int[] epochDayArray() { return epochDays; }
+    int arrayOffset() { return offset; }
+    
+    private int checkIndex(int i) {
+        if (i < 0 || i >= length) {
+            throw new IndexOutOfBoundsException("Index " + i + " outside series of size " + length);
+        }
+        return i;
+    }
+}
@@ -0,0 +1,281 @@
+package com.etfadvisor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming renderer for the daily HTML report.
+ * The stylesheet and fixed markup are constants, numbers are written digit by digit
+ * (same text as String.format("%.2f")), and each ticker's history is walked once for its
+ * rows, average score and tier counts. Output goes to any Appendable, a Writer or an
+ * OutputStream (UTF-8), or a pre-sized String.
+ */
+public final class ReportRenderer {
+    
+    private static final String PRELUDE = "<html><head><style>"
+        + "body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; max-width: 1200px; margin: 0 auto; }"
+        + "h1 { color: #2c3e50; border-bottom: 3px solid #3498db; padding-bottom: 10px; }"
+        + "h2 { color: #34495e; margin-top: 30px; }"
+        + ".summary-box { background: #f8f9fa; border: 2px solid #3498db; border-radius: 8px; padding: 20px; margin: 20px 0; }"
+        + ".buy-recommendation { background: #fff; border-left: 4px solid #27ae60; padding: 15px; margin: 10px 0; border-radius: 4px; }"
+        + ".wait-recommendation { background: #fff; border-left: 4px solid #95a5a6; padding: 15px; margin: 10px 0; border-radius: 4px; }"
+        + "table { border-collapse: collapse; width: 100%; margin: 20px 0; font-size: 14px; }"
+        + "th, td { border: 1px solid #ddd; padding: 10px; text-align: left; }"
+        + "th { background-color: #3498db; color: white; font-weight: bold; }"
+        + "tr:nth-child(even) { background-color: #f8f9fa; }"
+        + "tr:hover { background-color: #e8f4f8; }"
+        + ".tier-strong-buy { color: #c0392b; font-weight: bold; }"
+        + ".tier-buy { color: #e67e22; font-weight: bold; }"
+        + ".tier-dca-only { color: #3498db; }"
+        + ".tier-wait { color: #7f8c8d; }"
+        + ".score-high { color: #27ae60; font-weight: bold; }"
+        + ".score-medium { color: #f39c12; }"
+        + ".score-low { color: #e74c3c; }"
+        + "</style></head><body>"
+        + "<h1>ETF Advisor — Daily Report</h1>"
+        + "<p><strong>Date:</strong> ";
+        
+    private static final String SUMMARY_OPEN = "</p>"
+        + "<div class=\"summary-box\">"
+        + "<h2 style=\"margin-top: 0;\">📊 Today's Buy Recommendations</h2>";
+        
+    private static final String DETAIL_OPEN = "</div>"
+        + "<hr style=\"margin: 30px 0; border: 1px solid #ddd;\">"
+        + "<h2>📈 Detailed Analysis (Past 10 Trading Days)</h2>";
+        
+    private static final String TABLE_HEADER = "</h2><table><tr>"
+        + "<th>Date</th><th>Price</th><th>SMA 200</th><th>Drawdown</th><th>Z-Score</th><th>Buy Score</th><th>Tier</th>"
+        + "</tr>";
+        
+    private static final String EPILOGUE = "<hr><p><em>This is an automated report from ETF Advisor.</em></p></body></html>";
+    
+    private static final Tier[] TIERS = Tier.values();
+    
+    // Indexed by tier ordinal
+    private static final String[] GROUP_OPEN = {
+        "<div class=\"buy-recommendation\"><strong style=\"color: #c0392b; font-size: 16px;\">🔴 STRONG_BUY</strong><br>",
+        "<div class=\"buy-recommendation\"><strong style=\"color: #e67e22; font-size: 16px;\">🟠 BUY</strong><br>",
+        "<div class=\"buy-recommendation\"><strong style=\"color: #3498db; font-size: 16px;\">🔵 DCA_ONLY</strong><br>",
+        "<div class=\"wait-recommendation\"><strong style=\"color: #7f8c8d; font-size: 16px;\">⚪ WAIT</strong><br>"
+    };
+    
+    // Rough output size, used to pre-size the String buffer
+    private static final int TICKER_OVERHEAD_CHARS = 320;
+    private static final int ROW_CHARS = 180;
+    
+    private final List<String> tickers;
+    
+    /**
+     * @param tickers Report order (tickers missing from the history are skipped)
+     */
+    public ReportRenderer(List<String> tickers) {
+        this.tickers = tickers;
+    }
+    
+    public String renderToString(String runDate, Map<String, SignalBatch> tickerHistory) {
+        int rows = 0;
+        for (SignalBatch batch : tickerHistory.values()) {
+            rows += batch.size();
+        }
+        StringBuilder html = new StringBuilder(PRELUDE.length() + DETAIL_OPEN.length() + 1024
+            + tickers.size() * TICKER_OVERHEAD_CHARS + rows * ROW_CHARS);
+        try {
+            render(runDate, tickerHistory, html);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return html.toString();
+    }
+    
+    /**
+     * Writes the report as UTF-8. The stream is flushed but not closed.
+     */
+    public void render(String runDate, Map<String, SignalBatch> tickerHistory, OutputStream out)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16384);
+        render(runDate, tickerHistory, writer);
+        writer.flush();
+    }
+    
+    public void render(String runDate, Map<String, SignalBatch> tickerHistory, Appendable out)
+            throws IOException {
+        out.append(PRELUDE).append(runDate).append(SUMMARY_OPEN);
+        
+        // Today's signal (most recent day) per ticker, grouped by tier
+        SignalBatch[] reported = new SignalBatch[tickers.size()];
+        int count = 0;
+        boolean[] hasTier = new boolean[TIERS.length];
+        for (String ticker : tickers) {
+            SignalBatch batch = tickerHistory.get(ticker);
+            if (batch != null && !batch.isEmpty()) {
+                reported[count++] = batch;
+                hasTier[batch.tier(batch.size() - 1).ordinal()] = true;
+            }
+        }
+        for (Tier tier : TIERS) {
+            if (!hasTier[tier.ordinal()]) {
+                continue;
+            }
+            out.append(GROUP_OPEN[tier.ordinal()]);
+            for (int t = 0; t < count; t++) {
+                SignalBatch batch = reported[t];
+                int last = batch.size() - 1;
+                if (batch.tier(last) != tier) {
+                    continue;
+                }
+                out.append("• ").append(batch.getTicker()).append(" (Score: ");
+                appendInt(out, batch.buyScore(last));
+                out.append(", Price: $");
+                appendFixed2(out, batch.close(last));
+                out.append(")<br>");
+            }
+            out.append("</div>");
+        }
+        
+        out.append(DETAIL_OPEN);
+        
+        for (int t = 0; t < count; t++) {
+            SignalBatch batch = reported[t];
+            out.append("<h2>").append(batch.getTicker()).append(TABLE_HEADER);
+            
+            long scoreSum = 0;
+            int[] tierCounts = new int[TIERS.length];
+            for (int i = 0; i < batch.size(); i++) {
+                int buyScore = batch.buyScore(i);
+                Tier tier = batch.tier(i);
+                scoreSum += buyScore;
+                tierCounts[tier.ordinal()]++;
+                
+                out.append("<tr><td>");
+                appendDate(out, batch.epochDay(i));
+                out.append("</td><td>$");
+                appendFixed2(out, batch.close(i));
+                out.append("</td><td>");
+                double sma200 = batch.sma200(i);
+                if (!Double.isNaN(sma200)) {
+                    out.append('$');
+                    appendFixed2(out, sma200);
+                } else {
+                    out.append("N/A");
+                }
+                out.append("</td><td>");
+                appendFixed2(out, batch.drawdown6m(i) * 100);
+                out.append("%</td><td>");
+                appendFixed2(out, batch.zscore(i));
+                out.append("</td><td class=\"")
+                   .append(buyScore >= 75 ? "score-high" : (buyScore >= 35 ? "score-medium" : "score-low"))
+                   .append("\">");
+                appendInt(out, buyScore);
+                out.append("</td><td class=\"").append(tier.getCssClass())
+                   .append("\">").append(tier.name()).append("</td></tr>");
+            }
+            
+            // Summary for this ticker
+            out.append("</table><p><strong>Average Buy Score:</strong> ");
+            appendInt(out, (int) ((double) scoreSum / batch.size()));
+            out.append(" | <strong>Signals:</strong> ");
+            boolean first = true;
+            for (Tier tier : TIERS) {
+                if (tierCounts[tier.ordinal()] == 0) {
+                    continue;
+                }
+                if (!first) {
+                    out.append(", ");
+                }
+                out.append(tier.name()).append(": ");
+                appendInt(out, tierCounts[tier.ordinal()]);
+                first = false;
+            }
+            out.append("</p>");
+        }
+        
+        out.append(EPILOGUE);
+    }
+    
+    /**
+     * yyyy-MM-dd, as LocalDate.toString() for four-digit years.
+     */
+    static void appendDate(Appendable out, int epochDay) throws IOException {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        int year = date.getYear();
+        if (year < 1000 || year > 9999) {
+            out.append(date.toString());
+            return;
+        }
+        appendInt4(out, year);
+        out.append('-');
+        appendTwoDigits(out, date.getMonthValue());
+        out.append('-');
+        appendTwoDigits(out, date.getDayOfMonth());
+    }
+    
+    private static void appendInt4(Appendable out, int value) throws IOException {
+        out.append((char) ('0' + value / 1000))
+           .append((char) ('0' + value / 100 % 10))
+           .append((char) ('0' + value / 10 % 10))
+           .append((char) ('0' + value % 10));
+    }
+    
+    private static void appendTwoDigits(Appendable out, int value) throws IOException {
+        out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+    
+    static void appendInt(Appendable out, int value) throws IOException {
+        if (value < 0 || value >= 1000) {
+            out.append(Integer.toString(value));
+            return;
+        }
+        if (value >= 100) {
+            out.append((char) ('0' + value / 100));
+        }
+        if (value >= 10) {
+            out.append((char) ('0' + value / 10 % 10));
+        }
+        out.append((char) ('0' + value % 10));
+    }
+    
+    /**
+     * Same text as String.format("%.2f", value), without a Formatter.
+     */
+    static void appendFixed2(Appendable out, double value) throws IOException {
+        double abs = Math.abs(value);
+        if (!(abs < 1e7)) {
+            // NaN, infinities and values where abs * 100 loses cent precision
+            out.append(String.format("%.2f", value));
+            return;
+        }
+        
+        double scaled = abs * 100;
+        long cents = (long) scaled;
+        double fraction = scaled - cents;
+        if (Math.abs(fraction - 0.5) < 1e-6) {
+            // Formatter rounds the shortest decimal representation half-up; replicate it near ties
+            cents = new BigDecimal(Double.toString(abs)).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+        } else if (fraction > 0.5) {
+            cents++;
+        }
+        
+        if (Double.doubleToRawLongBits(value) < 0) {
+            out.append('-');
+        }
+        long whole = cents / 100;
+        int fractionDigits = (int) (cents % 100);
+        if (whole < 1000) {
+            appendInt(out, (int) whole);
+        } else {
+            out.append(Long.toString(whole));
+        }
+        out.append('.').append((char) ('0' + fractionDigits / 10)).append((char) ('0' + fractionDigits % 10));
+    }
+}
@@ -0,0 +1,218 @@
+package com.etfadvisor;
+
+/**
+ * Streaming version of IndicatorCalculator: fed one close at a time, O(1) per day.
+ * Keeps a running sum for the SMA, a monotonic deque for the rolling high and a
+ * sliding Welford mean/variance for the z-score. Windows shorter than configured
+ * are handled the same way as calculateAll (partial lookback/z-score, null SMA).
+ */
+public class RollingIndicators {
+    
+    private final int smaDays;
+    private final int lookbackDays;
+    private final int zscoreWindow;
+    private final int resyncInterval;
+    
+    // Ring buffer of the most recent closes (large enough for every window)
+    private final double[] ring;
+    private long count;
+    
+    // SMA running sum over the last smaDays closes
+    private double smaSum;
+    
+    // Monotonic (decreasing) deque of positions for the rolling high
+    private final long[] deque;
+    private int dequeHead;
+    private int dequeSize;
+    
+    // Sliding mean and sum of squared deviations over the z-score window
+    private double zMean;
+    private double zM2;
+    private int sinceResync;
+    
+    public RollingIndicators(Config config) {
+        this.smaDays = config.getSmaDays();
+        // A lookback under one day means drawdown against today's close only, as in calculateAll
+        this.lookbackDays = Math.max(1, config.getLookbackHighDays());
+        this.zscoreWindow = config.getZscoreWindow();
+        int capacity = Math.max(smaDays, Math.max(lookbackDays, zscoreWindow));
+        this.ring = new double[capacity];
+        this.deque = new long[lookbackDays];
+        // Recomputing the sums once per full window bounds float drift at amortized O(1)
+        this.resyncInterval = capacity;
+    }
+    
+    /**
+     * Append the next daily close (oldest first).
+     */
+    public void push(double close) {
+        int slot = (int) (count % ring.length);
+        
+        // SMA: add new close, drop the one leaving the window
+        smaSum += close;
+        if (count >= smaDays) {
+            smaSum -= at(count - smaDays);
+        }
+        
+        // Z-score: sliding Welford update (grow until the window is full, then replace)
+        if (count < zscoreWindow) {
+            int n = (int) count + 1;
+            double delta = close - zMean;
+            zMean += delta / n;
+            zM2 += delta * (close - zMean);
+        } else {
+            double old = at(count - zscoreWindow);
+            double oldMean = zMean;
+            zMean += (close - old) / zscoreWindow;
+            zM2 += (close - old) * (close - zMean + old - oldMean);
+        }
+        
+        ring[slot] = close;
+        
+        // Rolling high: evict expired front, then pop smaller-or-equal values from the back
+        if (dequeSize > 0 && deque[dequeHead] <= count - lookbackDays) {
+            dequeHead = (dequeHead + 1) % deque.length;
+            dequeSize--;
+        }
+        while (dequeSize > 0 && at(deque[(dequeHead + dequeSize - 1) % deque.length]) <= close) {
+            dequeSize--;
+        }
+        deque[(dequeHead + dequeSize) % deque.length] = count;
+        dequeSize++;
+        
+        count++;
+        
+        if (++sinceResync >= resyncInterval) {
+            resync();
+        }
+    }
+    
+    /**
+     * Indicators for the most recently pushed close.
+     */
+    public IndicatorCalculator.Indicators current() {
+        if (count == 0) {
+            throw new IllegalStateException("No prices pushed yet");
+        }
+        double closeToday = at(count - 1);
+        Double sma200 = count >= smaDays ? smaSum / smaDays : null;
+        double drawdown6m = (closeToday / at(deque[dequeHead])) - 1.0;
+        
+        double zscore = 0.0;
+        int n = (int) Math.min(count, zscoreWindow);
+        double variance = zM2 / n;
+        if (variance > 0) {
+            zscore = (closeToday - zMean) / Math.sqrt(variance);
+        }
+        
+        return new IndicatorCalculator.Indicators(closeToday, sma200, drawdown6m, zscore);
+    }
+    
+    /**
+     * current() without allocating, for tight loops over many series.
+     * @param out Receives close, SMA (NaN when not available), drawdown and z-score
+     */
+    public void current(double[] out) {
+        if (count == 0) {
+            throw new IllegalStateException("No prices pushed yet");
+        }
+        double closeToday = at(count - 1);
+        int n = (int) Math.min(count, zscoreWindow);
+        double variance = zM2 / n;
+        
+        out[0] = closeToday;
+        out[1] = count >= smaDays ? smaSum / smaDays : Double.NaN;
+        out[2] = (closeToday / at(deque[dequeHead])) - 1.0;
+        out[3] = variance > 0 ? (closeToday - zMean) / Math.sqrt(variance) : 0.0;
+    }
+    
+    /**
+     * Indicators as if {@code close} were pushed next, without changing any state (O(1)).
+     * Used for intraday ticks that revise the still-open day.
+     * @param out Receives close, SMA (NaN when not available), drawdown and z-score
+     */
+    public void peek(double close, double[] out) {
+        // SMA: same order of operations as push
+        double sma = Double.NaN;
+        if (count + 1 >= smaDays) {
+            double sum = smaSum + close;
+            if (count >= smaDays) {
+                sum -= at(count - smaDays);
+            }
+            sma = sum / smaDays;
+        }
+        
+        // Rolling high: skip the deque front if it leaves the window with this close
+        double high = close;
+        int front = dequeHead;
+        int size = dequeSize;
+        if (size > 0 && deque[front] <= count - lookbackDays) {
+            front = (front + 1) % deque.length;
+            size--;
+        }
+        if (size > 0) {
+            high = Math.max(high, at(deque[front]));
+        }
+        
+        // Z-score: the Welford step push would take
+        double mean;
+        double m2;
+        int n;
+        if (count < zscoreWindow) {
+            n = (int) count + 1;
+            double delta = close - zMean;
+            mean = zMean + delta / n;
+            m2 = zM2 + delta * (close - mean);
+        } else {
+            n = zscoreWindow;
+            double old = at(count - zscoreWindow);
+            mean = zMean + (close - old) / zscoreWindow;
+            m2 = zM2 + (close - old) * (close - mean + old - zMean);
+        }
+        double variance = m2 / n;
+        
+        out[0] = close;
+        out[1] = sma;
+        out[2] = (close / high) - 1.0;
+        out[3] = variance > 0 ? (close - mean) / Math.sqrt(variance) : 0.0;
+    }
+    
+    /**
+     * Number of closes pushed so far.
+     */
+    public long size() {
+        return count;
+    }
+    
+    private double at(long position) {
+        return ring[(int) (position % ring.length)];
+    }
+    
+    /**
+     * Recompute the running sums exactly from the ring buffer.
+     */
+    private void resync() {
+        sinceResync = 0;
+        
+        int smaN = (int) Math.min(count, smaDays);
+        double sum = 0.0;
+        for (long p = count - smaN; p < count; p++) {
+            sum += at(p);
+        }
+        smaSum = sum;
+        
+        int zN = (int) Math.min(count, zscoreWindow);
+        double zSum = 0.0;
+        for (long p = count - zN; p < count; p++) {
+            zSum += at(p);
+        }
+        double mean = zSum / zN;
+        double m2 = 0.0;
+        for (long p = count - zN; p < count; p++) {
+            double diff = at(p) - mean;
+            m2 += diff * diff;
+        }
+        zMean = mean;
+        zM2 = m2;
+    }
+}
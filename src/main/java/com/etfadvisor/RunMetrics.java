@@ -0,0 +1,275 @@
+package com.etfadvisor;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-run timings and counters: time spent in each pipeline stage (summed across ticker
+ * workers), end-to-end latency per ticker and a histogram of it, and retry/failure/cache counts.
+ * Recording is a System.nanoTime() pair and a LongAdder update, so it stays on in production.
+ * Written out as a CloudWatch embedded-metric-format (EMF) log line and as a plain map
+ * for the handler response.
+ */
+public final class RunMetrics {
+    
+    static final String NAMESPACE = "ETFAdvisor";
+    
+    // EMF accepts at most 100 values per metric per line
+    private static final int MAX_EMF_VALUES = 100;
+    
+    // Upper bounds of the ticker latency buckets; the last bucket is open-ended
+    private static final long[] BUCKET_BOUNDS_MS = {50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000};
+    
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    
+    public enum Stage {
+        // Request sent until response headers arrive, including retries
+        FETCH("fetch", "FetchMs"),
+        // Body transfer and chart parsing
+        PARSE("parse", "ParseMs"),
+        // Rolling indicators and buy scores
+        INDICATORS("indicators", "IndicatorsMs"),
+        RENDER("render", "RenderMs"),
+        // SES call
+        SEND("send", "SendMs");
+        
+        private final String key;
+        private final String metricName;
+        
+        Stage(String key, String metricName) {
+            this.key = key;
+            this.metricName = metricName;
+        }
+    }
+    
+    public enum Counter {
+        RETRIES("retries", "Retries"),
+        HEDGES("hedges", "Hedges"),
+        THROTTLED("throttled", "Throttled"),
+        FAILURES("failures", "TickerFailures"),
+        TIMEOUTS("timeouts", "TickerTimeouts"),
+        CACHE_HITS("cache_hits", "CacheHits"),
+        CACHE_MISSES("cache_misses", "CacheMisses"),
+        CACHE_REWRITES("cache_rewrites", "CacheRewrites"),
+        SCORE_CACHE_HITS("score_cache_hits", "ScoreCacheHits"),
+        SCORE_CACHE_MISSES("score_cache_misses", "ScoreCacheMisses");
+        
+        private final String key;
+        private final String metricName;
+        
+        Counter(String key, String metricName) {
+            this.key = key;
+            this.metricName = metricName;
+        }
+    }
+    
+    private static final Stage[] STAGES = Stage.values();
+    private static final Counter[] COUNTERS = Counter.values();
+    
+    private final long startNanos = System.nanoTime();
+    private final LongAdder[] stageNanos = adders(STAGES.length);
+    private final LongAdder[] counters = adders(COUNTERS.length);
+    private final Map<String, Long> tickerNanos = new ConcurrentHashMap<>();
+    private final AtomicLongArray latencyBuckets = new AtomicLongArray(BUCKET_BOUNDS_MS.length + 1);
+    
+    private static LongAdder[] adders(int n) {
+        LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+    
+    /**
+     * Adds the time since {@code startNanos} (a System.nanoTime() value) to a stage.
+     */
+    public void record(Stage stage, long startNanos) {
+        stageNanos[stage.ordinal()].add(System.nanoTime() - startNanos);
+    }
+    
+    public void increment(Counter counter) {
+        counters[counter.ordinal()].increment();
+    }
+    
+    public void add(Counter counter, long delta) {
+        counters[counter.ordinal()].add(delta);
+    }
+    
+    /**
+     * Records a ticker's end-to-end latency, from {@code startNanos} until now.
+     */
+    public void recordTicker(String ticker, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        tickerNanos.put(ticker, nanos);
+        long ms = nanos / 1_000_000;
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MS.length && ms > BUCKET_BOUNDS_MS[bucket]) {
+            bucket++;
+        }
+        latencyBuckets.incrementAndGet(bucket);
+    }
+    
+    public double getStageMs(Stage stage) {
+        return stageNanos[stage.ordinal()].sum() / 1e6;
+    }
+    
+    public long getCount(Counter counter) {
+        return counters[counter.ordinal()].sum();
+    }
+    
+    public double getElapsedMs() {
+        return (System.nanoTime() - startNanos) / 1e6;
+    }
+    
+    /**
+     * Plain-map summary for the handler response.
+     * @param tickers Order of the per-ticker latencies (tickers without one are skipped)
+     */
+    public Map<String, Object> summary(List<String> tickers) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("total_ms", round(getElapsedMs()));
+        
+        Map<String, Object> stages = new LinkedHashMap<>();
+        for (Stage stage : STAGES) {
+            stages.put(stage.key, round(getStageMs(stage)));
+        }
+        summary.put("stages_ms", stages);
+        
+        Map<String, Object> counts = new LinkedHashMap<>();
+        for (Counter counter : COUNTERS) {
+            counts.put(counter.key, getCount(counter));
+        }
+        summary.put("counters", counts);
+        
+        Map<String, Object> latencies = new LinkedHashMap<>();
+        for (String ticker : tickers) {
+            Long nanos = tickerNanos.get(ticker);
+            if (nanos != null) {
+                latencies.put(ticker, round(nanos / 1e6));
+            }
+        }
+        summary.put("ticker_latency_ms", latencies);
+        
+        double[] sorted = sortedTickerMs();
+        if (sorted.length > 0) {
+            summary.put("ticker_latency_p50_ms", round(percentile(sorted, 0.50)));
+            summary.put("ticker_latency_p95_ms", round(percentile(sorted, 0.95)));
+            summary.put("ticker_latency_max_ms", round(sorted[sorted.length - 1]));
+        }
+        
+        Map<String, Object> histogram = new LinkedHashMap<>();
+        for (int i = 0; i <= BUCKET_BOUNDS_MS.length; i++) {
+            long count = latencyBuckets.get(i);
+            if (count > 0) {
+                histogram.put(i < BUCKET_BOUNDS_MS.length ? "le_" + BUCKET_BOUNDS_MS[i] + "ms"
+                    : "gt_" + BUCKET_BOUNDS_MS[i - 1] + "ms", count);
+            }
+        }
+        summary.put("ticker_latency_histogram", histogram);
+        return summary;
+    }
+    
+    /**
+     * EMF log lines: stage timings and counters, with the per-ticker latencies as a value
+     * array (split across lines past 100 tickers) so CloudWatch can derive percentiles.
+     */
+    public List<String> toEmf(String function, long timestampMillis) {
+        double[] latencies = sortedTickerMs();
+        int lines = Math.max(1, (latencies.length + MAX_EMF_VALUES - 1) / MAX_EMF_VALUES);
+        String[] out = new String[lines];
+        for (int line = 0; line < lines; line++) {
+            int from = line * MAX_EMF_VALUES;
+            double[] chunk = Arrays.copyOfRange(latencies, Math.min(from, latencies.length),
+                Math.min(from + MAX_EMF_VALUES, latencies.length));
+            out[line] = emfLine(function, timestampMillis, line == 0, chunk);
+        }
+        return Arrays.asList(out);
+    }
+    
+    private String emfLine(String function, long timestampMillis, boolean withTotals, double[] tickerMs) {
+        StringWriter writer = new StringWriter(1024);
+        try (JsonGenerator json = jsonFactory.createGenerator(writer)) {
+            json.writeStartObject();
+            json.writeObjectFieldStart("_aws");
+            json.writeNumberField("Timestamp", timestampMillis);
+            json.writeArrayFieldStart("CloudWatchMetrics");
+            json.writeStartObject();
+            json.writeStringField("Namespace", NAMESPACE);
+            json.writeArrayFieldStart("Dimensions");
+            json.writeStartArray();
+            json.writeString("Function");
+            json.writeEndArray();
+            json.writeEndArray();
+            json.writeArrayFieldStart("Metrics");
+            if (withTotals) {
+                metricDefinition(json, "TotalMs", "Milliseconds");
+                for (Stage stage : STAGES) {
+                    metricDefinition(json, stage.metricName, "Milliseconds");
+                }
+                for (Counter counter : COUNTERS) {
+                    metricDefinition(json, counter.metricName, "Count");
+                }
+            }
+            if (tickerMs.length > 0) {
+                metricDefinition(json, "TickerLatencyMs", "Milliseconds");
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeEndArray();
+            json.writeEndObject();
+            
+            json.writeStringField("Function", function);
+            if (withTotals) {
+                json.writeNumberField("TotalMs", round(getElapsedMs()));
+                for (Stage stage : STAGES) {
+                    json.writeNumberField(stage.metricName, round(getStageMs(stage)));
+                }
+                for (Counter counter : COUNTERS) {
+                    json.writeNumberField(counter.metricName, getCount(counter));
+                }
+            }
+            if (tickerMs.length > 0) {
+                json.writeArrayFieldStart("TickerLatencyMs");
+                for (double ms : tickerMs) {
+                    json.writeNumber(round(ms));
+                }
+                json.writeEndArray();
+            }
+            json.writeEndObject();
+        } catch (IOException e) {
+            // StringWriter does not throw
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+    
+    private static void metricDefinition(JsonGenerator json, String name, String unit) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("Name", name);
+        json.writeStringField("Unit", unit);
+        json.writeEndObject();
+    }
+    
+    private double[] sortedTickerMs() {
+        return tickerNanos.values().stream().mapToDouble(nanos -> nanos / 1e6).sorted().toArray();
+    }
+    
+    private static double percentile(double[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, Math.max(0, (int) Math.ceil(p * sorted.length) - 1))];
+    }
+    
+    private static double round(double ms) {
+        return Math.round(ms * 10) / 10.0;
+    }
+}
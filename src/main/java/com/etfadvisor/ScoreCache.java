@@ -0,0 +1,226 @@
+package com.etfadvisor;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Indicators and buy scores already computed for a (ticker, bar date, config fingerprint),
+ * so a daily run only scores the bars it has not seen: with yesterday's run cached, 9 of the
+ * 10 reported days are lookups. The fingerprint covers every parameter the values depend on,
+ * so changing any of them misses instead of returning stale scores. Entries also remember the
+ * bar's close and miss if it changed (today's still-open bar, or a revised history).
+ * <p>
+ * Bounded to SCORE_CACHE_ENTRIES, least recently used evicted first. Kept in memory for warm
+ * containers and, with SCORE_CACHE_FILE set, saved to and loaded from that file.
+ */
+public class ScoreCache {
+    
+    // Bump when the scoring code changes, so saved entries stop matching
+    private static final int FORMAT_VERSION = 2;
+    private static final String HEADER = "# score-cache v" + FORMAT_VERSION;
+    
+    private final int maxEntries;
+    private final Path file;
+    private final Map<Key, Entry> entries;
+    private boolean dirty;
+    
+    private long hits;
+    private long misses;
+    private long evictions;
+    
+    private static final class Key {
+        final String ticker;
+        final int epochDay;
+        final long fingerprint;
+        
+        Key(String ticker, int epochDay, long fingerprint) {
+            this.ticker = ticker;
+            this.epochDay = epochDay;
+            this.fingerprint = fingerprint;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return epochDay == other.epochDay && fingerprint == other.fingerprint && ticker.equals(other.ticker);
+        }
+        
+        @Override
+        public int hashCode() {
+            int h = ticker.hashCode();
+            h = 31 * h + epochDay;
+            return 31 * h + Long.hashCode(fingerprint);
+        }
+    }
+    
+    /**
+     * A cached day: the indicators and score exactly as computed.
+     */
+    public static final class Entry {
+        private final IndicatorCalculator.Indicators indicators;
+        private final BuyScoreCalculator.BuyScoreResult score;
+        
+        Entry(IndicatorCalculator.Indicators indicators, BuyScoreCalculator.BuyScoreResult score) {
+            this.indicators = indicators;
+            this.score = score;
+        }
+        
+        public IndicatorCalculator.Indicators getIndicators() { return indicators; }
+        public BuyScoreCalculator.BuyScoreResult getScore() { return score; }
+    }
+    
+    /**
+     * @param file Where {@link #save()} writes and {@link #load()} reads entries (null = memory only)
+     */
+    public ScoreCache(int maxEntries, Path file) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.file = file;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > ScoreCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * Hash of every Config parameter that indicators, scores or tiers depend on.
+     */
+    public static long fingerprint(Config config) {
+        long h = 0xcbf29ce484222325L;
+        long[] parts = {
+            config.getScoreFormula().hashCode(),
+            FORMAT_VERSION,
+            config.getSmaDays(),
+            config.getLookbackHighDays(),
+            config.getZscoreWindow(),
+            Double.doubleToLongBits(config.getDrawdownMax()),
+            Double.doubleToLongBits(config.getZscoreMax()),
+            config.getTierStrongBuy(),
+            config.getTierBuy(),
+            config.getTierDcaOnly()
+        };
+        // FNV-1a over the 8 bytes of each part
+        for (long part : parts) {
+            for (int shift = 0; shift < 64; shift += 8) {
+                h ^= (part >>> shift) & 0xFF;
+                h *= 0x100000001b3L;
+            }
+        }
+        return h;
+    }
+    
+    /**
+     * The cached day, or null if it is missing or was computed for a different close.
+     */
+    public synchronized Entry get(String ticker, int epochDay, long fingerprint, double close) {
+        Entry entry = entries.get(new Key(ticker, epochDay, fingerprint));
+        if (entry == null || Double.compare(entry.indicators.getCloseToday(), close) != 0) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry;
+    }
+    
+    public synchronized void put(String ticker, int epochDay, long fingerprint,
+                                 IndicatorCalculator.Indicators indicators, BuyScoreCalculator.BuyScoreResult score) {
+        entries.put(new Key(ticker, epochDay, fingerprint), new Entry(indicators, score));
+        dirty = true;
+    }
+    
+    /**
+     * Writes every entry to the cache file (replacing it) if anything changed since the last
+     * save or load. No-op for a memory-only cache.
+     */
+    public synchronized void save() throws IOException {
+        if (file == null || !dirty) {
+            return;
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            out.write(HEADER);
+            out.write('\n');
+            // Least recently used first, so reading back restores the LRU order
+            for (Map.Entry<Key, Entry> e : entries.entrySet()) {
+                out.write(format(e.getKey(), e.getValue()));
+                out.write('\n');
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+    
+    public synchronized int size() { return entries.size(); }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+    public Path getFile() { return file; }
+    public int getMaxEntries() { return maxEntries; }
+    
+    // "fingerprint,ticker,epochDay,close,sma,drawdown,zscore,buyScore,tier,trend,drawdownScore,zscoreScore"
+    private static String format(Key key, Entry entry) {
+        IndicatorCalculator.Indicators ind = entry.indicators;
+        BuyScoreCalculator.BuyScoreResult score = entry.score;
+        return Long.toHexString(key.fingerprint) + ',' + key.ticker + ',' + key.epochDay + ','
+            + ind.getCloseToday() + ',' + (ind.getSma200() != null ? ind.getSma200().toString() : "") + ','
+            + ind.getDrawdown6m() + ',' + ind.getZscore() + ','
+            + score.getBuyScore() + ',' + score.getTier().name() + ','
+            + score.getTrendScore() + ',' + score.getDrawdownScore() + ',' + score.getZscoreScore();
+    }
+    
+    /**
+     * Adds the entries saved in the cache file, if there is one.
+     */
+    public synchronized void load() throws IOException {
+        if (file == null) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) {
+                // Older format: start empty, the next save replaces it
+                return;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] f = line.split(",", -1);
+                if (f.length != 12) {
+                    continue;
+                }
+                try {
+                    Key key = new Key(f[1], Integer.parseInt(f[2]), Long.parseUnsignedLong(f[0], 16));
+                    IndicatorCalculator.Indicators indicators = new IndicatorCalculator.Indicators(
+                        Double.parseDouble(f[3]), f[4].isEmpty() ? null : Double.valueOf(f[4]),
+                        Double.parseDouble(f[5]), Double.parseDouble(f[6]));
+                    BuyScoreCalculator.BuyScoreResult score = new BuyScoreCalculator.BuyScoreResult(
+                        Integer.parseInt(f[7]), Tier.valueOf(f[8]),
+                        Double.parseDouble(f[9]), Double.parseDouble(f[10]), Double.parseDouble(f[11]));
+                    entries.put(key, new Entry(indicators, score));
+                } catch (RuntimeException e) {
+                    // Skip a damaged line
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // Nothing saved yet
+        }
+    }
+}
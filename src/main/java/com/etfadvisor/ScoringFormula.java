@@ -0,0 +1,794 @@
+package com.etfadvisor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buy score formula written as an expression (SCORE_FORMULA) instead of Java. A formula is
+ * a list of bindings followed by the score expression:
+ * <pre>
+ *   trend = close > sma ? 1.0 : 0.3;
+ *   drawdown_score = dip(drawdown, drawdown_max);
+ *   zscore_score = dip(zscore, zscore_max);
+ *   100 * (0.25 * trend + 0.45 * drawdown_score + 0.30 * zscore_score)
+ * </pre>
+ * Inputs are {@code close}, {@code sma} (NaN while unavailable), {@code drawdown},
+ * {@code zscore}, {@code drawdown_max} and {@code zscore_max}. Operators: + - * / unary -,
+ * comparisons, && || ! and c ? a : b (booleans are 1/0; both branches are evaluated).
+ * Functions: min, max, abs, sqrt, log, exp, pow, clamp(x, lo, hi), isnan(x) and dip(x, max)
+ * (BuyScoreCalculator.dipScore). Bindings named trend, drawdown_score and zscore_score are
+ * reported as the score's components. The result is clamped to 0-100 and truncated by
+ * {@link #toScore}.
+ * <p>
+ * compile() turns the formula into a hidden class whose evaluate() is straight-line bytecode
+ * (locals for bindings, static calls for functions), so the JIT treats it like the
+ * hand-written method; nothing walks a tree per call.
+ */
+public abstract class ScoringFormula {
+    
+    /** Component bindings, in the order evaluate() writes them. */
+    public static final List<String> COMPONENTS = List.of("trend", "drawdown_score", "zscore_score");
+    
+    public static final String DEFAULT = "trend = close > sma ? 1.0 : 0.3; "
+        + "drawdown_score = dip(drawdown, drawdown_max); "
+        + "zscore_score = dip(zscore, zscore_max); "
+        + "100 * (0.25 * trend + 0.45 * drawdown_score + 0.30 * zscore_score)";
+        
+    private static final List<String> INPUTS = List.of("close", "sma", "drawdown", "zscore", "drawdown_max", "zscore_max");
+    // Local variable slots: this, six doubles, the components array, then bindings
+    private static final int COMPONENTS_SLOT = 1 + 2 * 6;
+    private static final int FIRST_BINDING_SLOT = COMPONENTS_SLOT + 1;
+    private static final int MAX_BINDINGS = 100;
+    // Parser recursion and syntax tree depth; deeper input would overflow the stack
+    private static final int MAX_DEPTH = 256;
+    
+    private static final String SELF = "com/etfadvisor/ScoringFormula";
+    private static final String EVALUATE_DESCRIPTOR = "(DDDDDD[D)D";
+    
+    // Compiled formulas by source, so every calculator and sweep cell reuses one class; least
+    // recently used first, and an evicted formula's class is unloaded once nothing uses it
+    private static final int MAX_COMPILED = 64;
+    private static final Map<String, ScoringFormula> COMPILED = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ScoringFormula> eldest) {
+            return size() > MAX_COMPILED;
+        }
+    };
+    
+    private String source;
+    
+    protected ScoringFormula() {
+    }
+    
+    /**
+     * The raw formula value (before clamping).
+     * @param components Receives trend, drawdown_score and zscore_score (NaN when not bound)
+     */
+    public abstract double evaluate(double close, double sma, double drawdown, double zscore,
+                                    double drawdownMax, double zscoreMax, double[] components);
+                                    
+    /**
+     * Score 0-100 from a raw value: clamped, then truncated.
+     */
+    public static int toScore(double value) {
+        return (int) Math.max(0, Math.min(100, value));
+    }
+    
+    public String getSource() { return source; }
+    
+    @Override
+    public String toString() {
+        return source;
+    }
+    
+    /**
+     * Parses and compiles a formula.
+     * @throws IllegalArgumentException with the position of the first syntax or name error
+     */
+    public static ScoringFormula compile(String source) {
+        Program program = new Parser(source).parse();
+        byte[] bytes = new ClassWriter(program).toBytes();
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            ScoringFormula formula = (ScoringFormula) lookup.findConstructor(lookup.lookupClass(),
+                java.lang.invoke.MethodType.methodType(void.class)).invoke();
+            formula.source = source;
+            return formula;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not load compiled formula: " + source, e);
+        }
+    }
+    
+    /**
+     * The compiled formula for {@code source}, compiling it on first use.
+     */
+    public static ScoringFormula of(String source) {
+        synchronized (COMPILED) {
+            ScoringFormula formula = COMPILED.get(source);
+            if (formula == null) {
+                formula = compile(source);
+                COMPILED.put(source, formula);
+            }
+            return formula;
+        }
+    }
+    
+    // Helpers the generated code calls; each is small enough to be inlined
+    
+    static double gt(double a, double b) { return a > b ? 1.0 : 0.0; }
+    static double ge(double a, double b) { return a >= b ? 1.0 : 0.0; }
+    static double lt(double a, double b) { return a < b ? 1.0 : 0.0; }
+    static double le(double a, double b) { return a <= b ? 1.0 : 0.0; }
+    static double eq(double a, double b) { return a == b ? 1.0 : 0.0; }
+    static double ne(double a, double b) { return a != b ? 1.0 : 0.0; }
+    static double and(double a, double b) { return truthy(a) && truthy(b) ? 1.0 : 0.0; }
+    static double or(double a, double b) { return truthy(a) || truthy(b) ? 1.0 : 0.0; }
+    static double not(double a) { return truthy(a) ? 0.0 : 1.0; }
+    static double select(double condition, double a, double b) { return truthy(condition) ? a : b; }
+    static double clamp(double x, double lo, double hi) { return Math.max(lo, Math.min(hi, x)); }
+    static double isnan(double x) { return Double.isNaN(x) ? 1.0 : 0.0; }
+    
+    private static boolean truthy(double x) {
+        return x != 0 && !Double.isNaN(x);
+    }
+    
+    /**
+     * Built-in functions: owner, method and argument count.
+     */
+    private enum Function {
+        MIN("java/lang/Math", "min", 2),
+        MAX("java/lang/Math", "max", 2),
+        ABS("java/lang/Math", "abs", 1),
+        SQRT("java/lang/Math", "sqrt", 1),
+        LOG("java/lang/Math", "log", 1),
+        EXP("java/lang/Math", "exp", 1),
+        POW("java/lang/Math", "pow", 2),
+        CLAMP(SELF, "clamp", 3),
+        ISNAN(SELF, "isnan", 1),
+        DIP("com/etfadvisor/BuyScoreCalculator", "dipScore", 2);
+        
+        final String owner;
+        final String method;
+        final int arity;
+        
+        Function(String owner, String method, int arity) {
+            this.owner = owner;
+            this.method = method;
+            this.arity = arity;
+        }
+        
+        String descriptor() {
+            return "(" + "D".repeat(arity) + ")D";
+        }
+    }
+    
+    // ---- Syntax tree ----
+    
+    private abstract static class Node {
+        /** Longest path down to a leaf, counting this node. */
+        final int depth;
+        
+        Node(Node... children) {
+            int deepest = 0;
+            for (Node child : children) {
+                deepest = Math.max(deepest, child.depth);
+            }
+            this.depth = deepest + 1;
+        }
+        
+        /** Value if the node is constant after folding, else null. */
+        Double constant() { return null; }
+    }
+    
+    private static final class Constant extends Node {
+        final double value;
+        Constant(double value) { super(); this.value = value; }
+        @Override Double constant() { return value; }
+    }
+    
+    /** An input or binding, by local variable slot. */
+    private static final class Variable extends Node {
+        final int slot;
+        Variable(int slot) { super(); this.slot = slot; }
+    }
+    
+    /** dadd, dsub, dmul or ddiv. */
+    private static final class Arithmetic extends Node {
+        final int opcode;
+        final Node left;
+        final Node right;
+        Arithmetic(int opcode, Node left, Node right) {
+            super(left, right);
+            this.opcode = opcode;
+            this.left = left;
+            this.right = right;
+        }
+    }
+    
+    private static final class Negate extends Node {
+        final Node operand;
+        Negate(Node operand) { super(operand); this.operand = operand; }
+    }
+    
+    /** A static (D...)D call: a built-in function or an operator helper. */
+    private static final class Call extends Node {
+        final String owner;
+        final String method;
+        final Node[] args;
+        Call(String owner, String method, Node... args) {
+            super(args);
+            this.owner = owner;
+            this.method = method;
+            this.args = args;
+        }
+    }
+    
+    private static final class Program {
+        final List<Node> bindings = new ArrayList<>();
+        final List<Integer> bindingSlots = new ArrayList<>();
+        // Component index -> binding slot
+        final Map<Integer, Integer> components = new HashMap<>();
+        Node result;
+        int maxLocals = FIRST_BINDING_SLOT;
+    }
+    
+    // ---- Parser (recursive descent, folding constant subexpressions) ----
+    
+    private static final class Parser {
+        private final String src;
+        private int pos;
+        private int depth;
+        private final Map<String, Integer> names = new LinkedHashMap<>();
+        private final Program program = new Program();
+        
+        Parser(String src) {
+            this.src = src;
+            for (int i = 0; i < INPUTS.size(); i++) {
+                names.put(INPUTS.get(i), 1 + 2 * i);
+            }
+        }
+        
+        Program parse() {
+            while (true) {
+                skipSpace();
+                int start = pos;
+                String name = peekIdentifier();
+                if (name != null) {
+                    pos += name.length();
+                    skipSpace();
+                    if (peek() == '=' && peekAt(1) != '=') {
+                        pos++;
+                        binding(start, name, shallow(expression()));
+                        expect(';');
+                        continue;
+                    }
+                    pos = start;
+                }
+                break;
+            }
+            program.result = shallow(expression());
+            skipSpace();
+            if (peek() == ';') {
+                pos++;
+                skipSpace();
+            }
+            if (pos < src.length()) {
+                throw error("Unexpected '" + src.charAt(pos) + "'");
+            }
+            return program;
+        }
+        
+        private void binding(int at, String name, Node value) {
+            if (names.containsKey(name)) {
+                throw new IllegalArgumentException("'" + name + "' is already defined (at " + at + ")");
+            }
+            if (program.bindings.size() == MAX_BINDINGS) {
+                throw new IllegalArgumentException("More than " + MAX_BINDINGS + " bindings");
+            }
+            int slot = program.maxLocals;
+            program.maxLocals += 2;
+            names.put(name, slot);
+            program.bindings.add(value);
+            program.bindingSlots.add(slot);
+            int component = COMPONENTS.indexOf(name);
+            if (component >= 0) {
+                program.components.put(component, slot);
+            }
+        }
+        
+        private Node expression() {
+            enter();
+            Node node = conditional();
+            depth--;
+            return node;
+        }
+        
+        private Node conditional() {
+            Node condition = or();
+            skipSpace();
+            if (peek() == '?') {
+                pos++;
+                Node a = expression();
+                expect(':');
+                Node b = expression();
+                Double c = condition.constant();
+                if (c != null) {
+                    return truthy(c) ? a : b;
+                }
+                return call(SELF, "select", condition, a, b);
+            }
+            return condition;
+        }
+        
+        private Node or() {
+            Node left = and();
+            while (match("||")) {
+                left = call(SELF, "or", left, and());
+            }
+            return left;
+        }
+        
+        private Node and() {
+            Node left = comparison();
+            while (match("&&")) {
+                left = call(SELF, "and", left, comparison());
+            }
+            return left;
+        }
+        
+        private Node comparison() {
+            Node left = additive();
+            String[][] ops = {{">=", "ge"}, {"<=", "le"}, {"==", "eq"}, {"!=", "ne"}, {">", "gt"}, {"<", "lt"}};
+            for (String[] op : ops) {
+                if (match(op[0])) {
+                    return call(SELF, op[1], left, additive());
+                }
+            }
+            return left;
+        }
+        
+        private Node additive() {
+            Node left = multiplicative();
+            while (true) {
+                if (match("+")) {
+                    left = arithmetic(0x63, left, multiplicative());
+                } else if (match("-")) {
+                    left = arithmetic(0x67, left, multiplicative());
+                } else {
+                    return left;
+                }
+            }
+        }
+        
+        private Node multiplicative() {
+            Node left = unary();
+            while (true) {
+                if (match("*")) {
+                    left = arithmetic(0x6b, left, unary());
+                } else if (match("/")) {
+                    left = arithmetic(0x6f, left, unary());
+                } else {
+                    return left;
+                }
+            }
+        }
+        
+        private Node unary() {
+            if (match("-")) {
+                enter();
+                Node operand = unary();
+                depth--;
+                Double c = operand.constant();
+                return c != null ? new Constant(-c) : new Negate(operand);
+            }
+            if (match("!") ) {
+                enter();
+                Node operand = unary();
+                depth--;
+                return call(SELF, "not", operand);
+            }
+            return primary();
+        }
+        
+        private Node primary() {
+            skipSpace();
+            int start = pos;
+            char ch = peek();
+            if (ch == '(') {
+                pos++;
+                Node inner = expression();
+                expect(')');
+                return inner;
+            }
+            if (Character.isDigit(ch) || ch == '.') {
+                while (pos < src.length() && (Character.isDigit(src.charAt(pos)) || src.charAt(pos) == '.')) {
+                    pos++;
+                }
+                if (pos < src.length() && (src.charAt(pos) == 'e' || src.charAt(pos) == 'E')) {
+                    pos++;
+                    if (peek() == '+' || peek() == '-') {
+                        pos++;
+                    }
+                    while (pos < src.length() && Character.isDigit(src.charAt(pos))) {
+                        pos++;
+                    }
+                }
+                try {
+                    return new Constant(Double.parseDouble(src.substring(start, pos)));
+                } catch (NumberFormatException e) {
+                    throw error("Bad number '" + src.substring(start, pos) + "'");
+                }
+            }
+            String name = peekIdentifier();
+            if (name == null) {
+                throw error(pos < src.length() ? "Unexpected '" + ch + "'" : "Unexpected end of formula");
+            }
+            pos += name.length();
+            skipSpace();
+            if (peek() == '(') {
+                pos++;
+                Function function;
+                try {
+                    function = Function.valueOf(name.toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unknown function '" + name + "' (at " + start + ")");
+                }
+                List<Node> args = new ArrayList<>();
+                skipSpace();
+                if (peek() != ')') {
+                    do {
+                        args.add(expression());
+                    } while (match(","));
+                }
+                expect(')');
+                if (args.size() != function.arity) {
+                    throw new IllegalArgumentException(name + " takes " + function.arity + " arguments (at " + start + ")");
+                }
+                return call(function.owner, function.method, args.toArray(new Node[0]));
+            }
+            Integer slot = names.get(name);
+            if (slot == null) {
+                throw new IllegalArgumentException("Unknown name '" + name + "' (at " + start + ")");
+            }
+            return new Variable(slot);
+        }
+        
+        /** One more level of parser recursion (parentheses, arguments, unary operators). */
+        private void enter() {
+            if (++depth > MAX_DEPTH) {
+                throw error("Nested more than " + MAX_DEPTH + " levels deep");
+            }
+        }
+        
+        /** Long operator chains build deep trees without deep recursion; emit() would still recurse. */
+        private Node shallow(Node node) {
+            if (node.depth > MAX_DEPTH) {
+                throw error("Expression more than " + MAX_DEPTH + " operations deep");
+            }
+            return node;
+        }
+        
+        private static Node arithmetic(int opcode, Node left, Node right) {
+            Double a = left.constant();
+            Double b = right.constant();
+            if (a != null && b != null) {
+                switch (opcode) {
+                    case 0x63: return new Constant(a + b);
+                    case 0x67: return new Constant(a - b);
+                    case 0x6b: return new Constant(a * b);
+                    default: return new Constant(a / b);
+                }
+            }
+            return new Arithmetic(opcode, left, right);
+        }
+        
+        private static Node call(String owner, String method, Node... args) {
+            return new Call(owner, method, args);
+        }
+        
+        private String peekIdentifier() {
+            skipSpace();
+            int end = pos;
+            if (end < src.length() && (Character.isLetter(src.charAt(end)) || src.charAt(end) == '_')) {
+                while (end < src.length() && (Character.isLetterOrDigit(src.charAt(end)) || src.charAt(end) == '_')) {
+                    end++;
+                }
+                return src.substring(pos, end);
+            }
+            return null;
+        }
+        
+        private boolean match(String token) {
+            skipSpace();
+            if (src.startsWith(token, pos)) {
+                // "<" must not swallow "<=", "!" must not swallow "!="
+                if (token.length() == 1 && "<>!=".indexOf(token.charAt(0)) >= 0 && peekAt(1) == '=') {
+                    return false;
+                }
+                if (token.length() == 1 && (token.equals("|") || token.equals("&"))) {
+                    return false;
+                }
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+        
+        private void expect(char c) {
+            skipSpace();
+            if (peek() != c) {
+                throw error("Expected '" + c + "'");
+            }
+            pos++;
+        }
+        
+        private char peek() {
+            return pos < src.length() ? src.charAt(pos) : '\0';
+        }
+        
+        private char peekAt(int offset) {
+            return pos + offset < src.length() ? src.charAt(pos + offset) : '\0';
+        }
+        
+        private void skipSpace() {
+            while (pos < src.length() && Character.isWhitespace(src.charAt(pos))) {
+                pos++;
+            }
+        }
+        
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at " + pos + " in formula: " + src);
+        }
+    }
+    
+    // ---- Class file writer ----
+    
+    /**
+     * Emits a final subclass of ScoringFormula with a no-argument constructor and evaluate().
+     * The code has no branches, so the class needs no stack map frames.
+     */
+    private static final class ClassWriter {
+        private final Program program;
+        private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        private final DataOutputStream poolOut = new DataOutputStream(pool);
+        private final Map<String, Integer> poolIndex = new HashMap<>();
+        private int poolCount = 1;
+        
+        private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+        private int stack;
+        private int maxStack;
+        
+        ClassWriter(Program program) {
+            this.program = program;
+        }
+        
+        byte[] toBytes() {
+            try {
+                int thisClass = classRef("com/etfadvisor/ScoringFormula$Compiled");
+                int superClass = classRef(SELF);
+                int superInit = methodRef(SELF, "<init>", "()V");
+                int initName = utf8("<init>");
+                int initType = utf8("()V");
+                int evaluateName = utf8("evaluate");
+                int evaluateType = utf8(EVALUATE_DESCRIPTOR);
+                int codeName = utf8("Code");
+                
+                // evaluate(): bindings into locals (and components), then the result
+                for (int k = 0; k < COMPONENTS.size(); k++) {
+                    if (!program.components.containsKey(k)) {
+                        storeComponent(k, () -> emitConstant(Double.NaN));
+                    }
+                }
+                for (int b = 0; b < program.bindings.size(); b++) {
+                    int slot = program.bindingSlots.get(b);
+                    emit(program.bindings.get(b));
+                    op(0x39, -2);
+                    code.write(slot);
+                    int component = componentOf(slot);
+                    if (component >= 0) {
+                        storeComponent(component, () -> {
+                            op(0x18, 2);
+                            code.write(slot);
+                        });
+                    }
+                }
+                emit(program.result);
+                op(0xaf, -2);
+                byte[] evaluateCode = code.toByteArray();
+                
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                DataOutputStream data = new DataOutputStream(out);
+                data.writeInt(0xCAFEBABE);
+                data.writeShort(0);
+                data.writeShort(61);
+                data.writeShort(poolCount);
+                poolOut.flush();
+                data.write(pool.toByteArray());
+                data.writeShort(0x0010 | 0x0020); // final, super
+                data.writeShort(thisClass);
+                data.writeShort(superClass);
+                data.writeShort(0); // interfaces
+                data.writeShort(0); // fields
+                data.writeShort(2); // methods
+                
+                // <init>: aload_0, invokespecial super.<init>, return
+                data.writeShort(0x0001);
+                data.writeShort(initName);
+                data.writeShort(initType);
+                data.writeShort(1);
+                byte[] init = {0x2a, (byte) 0xb7, (byte) (superInit >> 8), (byte) superInit, (byte) 0xb1};
+                writeCode(data, codeName, 1, 1, init);
+                
+                data.writeShort(0x0001 | 0x0010); // public final
+                data.writeShort(evaluateName);
+                data.writeShort(evaluateType);
+                data.writeShort(1);
+                writeCode(data, codeName, maxStack, program.maxLocals, evaluateCode);
+                
+                data.writeShort(0); // class attributes
+                return out.toByteArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        
+        private int componentOf(int slot) {
+            for (Map.Entry<Integer, Integer> e : program.components.entrySet()) {
+                if (e.getValue() == slot) {
+                    return e.getKey();
+                }
+            }
+            return -1;
+        }
+        
+        /** components[index] = value */
+        private void storeComponent(int index, Runnable value) {
+            op(0x19, 1);
+            code.write(COMPONENTS_SLOT);
+            op(0x10, 1);
+            code.write(index);
+            value.run();
+            op(0x52, -4);
+        }
+        
+        private static void writeCode(DataOutputStream data, int codeName, int maxStack, int maxLocals, byte[] body)
+                throws IOException {
+            data.writeShort(codeName);
+            data.writeInt(2 + 2 + 4 + body.length + 2 + 2);
+            data.writeShort(maxStack);
+            data.writeShort(maxLocals);
+            data.writeInt(body.length);
+            data.write(body);
+            data.writeShort(0); // exception table
+            data.writeShort(0); // attributes
+        }
+        
+        private void emit(Node node) {
+            Double constant = node.constant();
+            if (constant != null) {
+                emitConstant(constant);
+            } else if (node instanceof Variable) {
+                op(0x18, 2);
+                code.write(((Variable) node).slot);
+            } else if (node instanceof Arithmetic) {
+                Arithmetic a = (Arithmetic) node;
+                emit(a.left);
+                emit(a.right);
+                op(a.opcode, -2);
+            } else if (node instanceof Negate) {
+                emit(((Negate) node).operand);
+                op(0x77, 0);
+            } else if (node instanceof Call) {
+                Call call = (Call) node;
+                for (Node arg : call.args) {
+                    emit(arg);
+                }
+                int ref = methodRef(call.owner, call.method, "(" + "D".repeat(call.args.length) + ")D");
+                op(0xb8, 2 - 2 * call.args.length);
+                code.write(ref >> 8);
+                code.write(ref);
+            } else {
+                throw new IllegalStateException("Unknown node " + node);
+            }
+        }
+        
+        private void emitConstant(double value) {
+            if (Double.doubleToRawLongBits(value) == 0L) {
+                op(0x0e, 2);
+            } else if (value == 1.0) {
+                op(0x0f, 2);
+            } else {
+                int index = doubleConstant(value);
+                op(0x14, 2);
+                code.write(index >> 8);
+                code.write(index);
+            }
+        }
+        
+        private void op(int opcode, int stackDelta) {
+            code.write(opcode);
+            stack += stackDelta;
+            maxStack = Math.max(maxStack, stack);
+        }
+        
+        // Constant pool
+        
+        private int utf8(String s) throws IOException {
+            String key = "U" + s;
+            Integer index = poolIndex.get(key);
+            if (index == null) {
+                poolOut.writeByte(1);
+                poolOut.writeUTF(s);
+                index = poolCount++;
+                poolIndex.put(key, index);
+            }
+            return index;
+        }
+        
+        private int classRef(String internalName) throws IOException {
+            String key = "C" + internalName;
+            Integer index = poolIndex.get(key);
+            if (index == null) {
+                int name = utf8(internalName);
+                poolOut.writeByte(7);
+                poolOut.writeShort(name);
+                index = poolCount++;
+                poolIndex.put(key, index);
+            }
+            return index;
+        }
+        
+        private int methodRef(String owner, String name, String descriptor) {
+            String key = "M" + owner + "." + name + descriptor;
+            Integer index = poolIndex.get(key);
+            if (index != null) {
+                return index;
+            }
+            try {
+                int ownerIndex = classRef(owner);
+                int nameIndex = utf8(name);
+                int typeIndex = utf8(descriptor);
+                poolOut.writeByte(12);
+                poolOut.writeShort(nameIndex);
+                poolOut.writeShort(typeIndex);
+                int nameAndType = poolCount++;
+                poolOut.writeByte(10);
+                poolOut.writeShort(ownerIndex);
+                poolOut.writeShort(nameAndType);
+                index = poolCount++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            poolIndex.put(key, index);
+            return index;
+        }
+        
+        private int doubleConstant(double value) {
+            String key = "D" + Double.doubleToRawLongBits(value);
+            Integer index = poolIndex.get(key);
+            if (index == null) {
+                try {
+                    poolOut.writeByte(6);
+                    poolOut.writeDouble(value);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                index = poolCount;
+                // Doubles take two constant pool entries
+                poolCount += 2;
+                poolIndex.put(key, index);
+            }
+            return index;
+        }
+    }
+}
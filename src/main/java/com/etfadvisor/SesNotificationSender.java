@@ -0,0 +1,33 @@
+package com.etfadvisor;
+
+import com.amazonaws.services.simpleemail.AmazonSimpleEmailService;
+import com.amazonaws.services.simpleemail.model.Body;
+import com.amazonaws.services.simpleemail.model.Content;
+import com.amazonaws.services.simpleemail.model.Destination;
+import com.amazonaws.services.simpleemail.model.Message;
+import com.amazonaws.services.simpleemail.model.SendEmailRequest;
+
+/**
+ * Sends notifications as HTML email through SES. The client is thread-safe and meant to be
+ * built once per container.
+ */
+public class SesNotificationSender implements NotificationSender {
+    
+    private final AmazonSimpleEmailService sesClient;
+    private final String from;
+    
+    public SesNotificationSender(AmazonSimpleEmailService sesClient, String from) {
+        this.sesClient = sesClient;
+        this.from = from;
+    }
+    
+    @Override
+    public void send(Notification notification) {
+        sesClient.sendEmail(new SendEmailRequest()
+            .withSource(from)
+            .withDestination(new Destination().withToAddresses(notification.getRecipients()))
+            .withMessage(new Message()
+                .withSubject(new Content(notification.getSubject()))
+                .withBody(new Body().withHtml(new Content(notification.getHtml())))));
+    }
+}
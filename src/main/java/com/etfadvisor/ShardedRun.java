@@ -0,0 +1,85 @@
+package com.etfadvisor;
+
+import com.amazonaws.services.lambda.runtime.Context;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Sharded execution for ticker universes too large for one handler run.
+ * The universe is split into contiguous shards; each worker scores one shard with the
+ * handler's pipeline (its own FETCH_CONCURRENCY pool), and the reducer merges the shard
+ * results back into universe order for a single report and response.
+ * <p>
+ * On Lambda the workers are separate invocations with {@code {"shard_index": i, "shard_count": n}}
+ * and the reducer is an invocation with {@code {"partials": [worker responses...]}} (e.g. a Step
+ * Functions Map state followed by a reduce step). Locally, {@link #run} runs the workers as
+ * threads (see LocalShardedRun in src/local).
+ */
+public class ShardedRun {
+    
+    /**
+     * Contiguous shards whose sizes differ by at most one (empty when there are more shards than tickers).
+     */
+    public static List<List<String>> split(List<String> tickers, int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shard_count must be at least 1");
+        }
+        List<List<String>> shards = new ArrayList<>(shardCount);
+        int base = tickers.size() / shardCount;
+        int extra = tickers.size() % shardCount;
+        int from = 0;
+        for (int i = 0; i < shardCount; i++) {
+            int to = from + base + (i < extra ? 1 : 0);
+            shards.add(tickers.subList(from, to));
+            from = to;
+        }
+        return shards;
+    }
+    
+    /**
+     * Score {@code config}'s tickers as {@code shardCount} in-process workers, at most
+     * {@code parallel} at a time, and merge their results.
+     * @param shardMs Filled with each shard's wall time in milliseconds (null = not recorded)
+     */
+    static ETFAdvisorHandler.TickerResults run(Config config, int shardCount, int parallel, RunMetrics metrics,
+                                               Context context, double[] shardMs)
+            throws InterruptedException, ExecutionException {
+        LocalDate runDate = LocalDate.now();
+        BuyScoreCalculator buyScoreCalc = new BuyScoreCalculator(config);
+        PriceCache cache = ETFAdvisorHandler.getPriceCache(config, context);
+        ScoreCache scores = ETFAdvisorHandler.getScoreCache(config, context);
+        List<List<String>> shards = split(config.getTickers(), shardCount);
+        
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, Math.min(parallel, shardCount)));
+        try {
+            List<Future<ETFAdvisorHandler.TickerResults>> futures = new ArrayList<>();
+            for (int i = 0; i < shards.size(); i++) {
+                List<String> shard = shards.get(i);
+                int index = i;
+                futures.add(workers.submit(() -> {
+                    long start = System.nanoTime();
+                    ETFAdvisorHandler.TickerResults part = ETFAdvisorHandler.scoreTickers(shard, runDate, config,
+                        buyScoreCalc, cache, scores, metrics, context);
+                    if (shardMs != null) {
+                        shardMs[index] = (System.nanoTime() - start) / 1e6;
+                    }
+                    return part;
+                }));
+            }
+            List<ETFAdvisorHandler.TickerResults> parts = new ArrayList<>();
+            for (Future<ETFAdvisorHandler.TickerResults> future : futures) {
+                parts.add(future.get());
+            }
+            ETFAdvisorHandler.saveScoreCache(scores, context);
+            return ETFAdvisorHandler.TickerResults.merge(config.getTickers(), parts);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.etfadvisor;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Day signals for one ticker, oldest first, stored column by column.
+ * Filled once by the scoring loop, then read-only; {@link #toResponse()} converts it to the
+ * map form returned by the Lambda handler.
+ */
+public final class SignalBatch {
+    
+    private static final Tier[] TIERS = Tier.values();
+    
+    private final String ticker;
+    private int[] epochDays;
+    private double[] closes;
+    private double[] sma200;
+    private double[] drawdown6m;
+    private double[] zscores;
+    private int[] buyScores;
+    private byte[] tiers;
+    private int size;
+    
+    public SignalBatch(String ticker, int capacity) {
+        this.ticker = ticker;
+        int n = Math.max(1, capacity);
+        this.epochDays = new int[n];
+        this.closes = new double[n];
+        this.sma200 = new double[n];
+        this.drawdown6m = new double[n];
+        this.zscores = new double[n];
+        this.buyScores = new int[n];
+        this.tiers = new byte[n];
+    }
+    
+    /**
+     * Append the next (later) trading day.
+     */
+    void add(int epochDay, IndicatorCalculator.Indicators indicators, BuyScoreCalculator.BuyScoreResult score) {
+        add(epochDay, indicators.getCloseToday(),
+            indicators.getSma200() != null ? indicators.getSma200() : Double.NaN,
+            indicators.getDrawdown6m(), indicators.getZscore(), score.getBuyScore(), score.getTier());
+    }
+    
+    void add(int epochDay, double close, double sma200, double drawdown6m, double zscore, int buyScore, Tier tier) {
+        if (size == epochDays.length) {
+            grow();
+        }
+        epochDays[size] = epochDay;
+        closes[size] = close;
+        this.sma200[size] = sma200;
+        this.drawdown6m[size] = drawdown6m;
+        zscores[size] = zscore;
+        buyScores[size] = buyScore;
+        tiers[size] = (byte) tier.ordinal();
+        size++;
+    }
+    
+    /**
+     * Inverse of {@link #toResponse()}, for merging shard results returned by worker invocations.
+     */
+    @SuppressWarnings("unchecked")
+    static SignalBatch fromResponse(String ticker, List<?> days) {
+        SignalBatch batch = new SignalBatch(ticker, days.size());
+        for (Object item : days) {
+            Map<String, Object> day = (Map<String, Object>) item;
+            Object sma = day.get("sma_200");
+            batch.add((int) LocalDate.parse((String) day.get("date")).toEpochDay(),
+                ((Number) day.get("close")).doubleValue(),
+                sma != null ? ((Number) sma).doubleValue() : Double.NaN,
+                ((Number) day.get("drawdown_6m")).doubleValue(),
+                ((Number) day.get("zscore")).doubleValue(),
+                ((Number) day.get("buy_score")).intValue(),
+                Tier.valueOf((String) day.get("tier")));
+        }
+        return batch;
+    }
+    
+    public String getTicker() { return ticker; }
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    
+    public int epochDay(int i) { return epochDays[i]; }
+    public double close(int i) { return closes[i]; }
+    public double sma200(int i) { return sma200[i]; }
+    public double drawdown6m(int i) { return drawdown6m[i]; }
+    public double zscore(int i) { return zscores[i]; }
+    public int buyScore(int i) { return buyScores[i]; }
+    public Tier tier(int i) { return TIERS[tiers[i]]; }
+    
+    public DaySignal get(int i) {
+        return new DaySignal(epochDays[i], closes[i], sma200[i], drawdown6m[i], zscores[i], buyScores[i], tier(i));
+    }
+    
+    /**
+     * Most recent day's signal.
+     */
+    public DaySignal last() {
+        if (size == 0) {
+            throw new IllegalStateException("No signals for " + ticker);
+        }
+        return get(size - 1);
+    }
+    
+    /**
+     * Response form: one map per day with ticker, date, close, sma_200 (null while unavailable),
+     * drawdown_6m, zscore, buy_score and tier.
+     */
+    public List<Map<String, Object>> toResponse() {
+        List<Map<String, Object>> days = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Map<String, Object> day = new HashMap<>();
+            day.put("ticker", ticker);
+            day.put("date", LocalDate.ofEpochDay(epochDays[i]).toString());
+            day.put("close", closes[i]);
+            day.put("sma_200", Double.isNaN(sma200[i]) ? null : sma200[i]);
+            day.put("drawdown_6m", drawdown6m[i]);
+            day.put("zscore", zscores[i]);
+            day.put("buy_score", buyScores[i]);
+            day.put("tier", tier(i).name());
+            days.add(day);
+        }
+        return days;
+    }
+    
+    private void grow() {
+        int n = epochDays.length * 2;
+        epochDays = Arrays.copyOf(epochDays, n);
+        closes = Arrays.copyOf(closes, n);
+        sma200 = Arrays.copyOf(sma200, n);
+        drawdown6m = Arrays.copyOf(drawdown6m, n);
+        zscores = Arrays.copyOf(zscores, n);
+        buyScores = Arrays.copyOf(buyScores, n);
+        tiers = Arrays.copyOf(tiers, n);
+    }
+}
@@ -0,0 +1,154 @@
+package com.etfadvisor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures cold and warm start of the handler's request path in fresh JVMs, with and without
+ * priming (PRIME_ON_INIT) and the application CDS archive built by the cds profile.
+ * Each child JVM initializes ETFAdvisorHandler, runs one offline invocation against the
+ * bundled fixture, then a number of warm ones; the parent reports medians per variant.
+ *
+ * Usage: java -cp target/etf-advisor-1.0.0.jar com.etfadvisor.StartupHarness
+ *          [--runs 5] [--warm 20] [--cds-archive target/app-cds.jsa]
+ */
+public class StartupHarness {
+    
+    private static final String RESULT_PREFIX = "STARTUP ";
+    private static final String[] METRICS = {"jvm_to_main_ms", "init_ms", "first_ms", "warm_ms"};
+    
+    public static void main(String[] args) throws Exception {
+        int runs = 5;
+        int warm = 20;
+        boolean child = false;
+        Path archive = Paths.get("target", "app-cds.jsa");
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--runs": runs = Integer.parseInt(args[++i]); break;
+                case "--warm": warm = Integer.parseInt(args[++i]); break;
+                case "--cds-archive": archive = Paths.get(args[++i]); break;
+                case "--child": child = true; break;
+                default: throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        
+        if (child) {
+            runChild(warm);
+            return;
+        }
+        
+        Map<String, List<String>> variants = new LinkedHashMap<>();
+        variants.put("baseline", List.of());
+        variants.put("primed", List.of());
+        if (Files.exists(archive)) {
+            String shared = "-XX:SharedArchiveFile=" + archive.toAbsolutePath();
+            variants.put("cds", List.of(shared));
+            variants.put("primed+cds", List.of(shared));
+        } else {
+            System.out.println("No CDS archive at " + archive + " (build with: mvn -Pcds package)");
+        }
+        
+        System.out.printf("%-12s %9s %14s %9s %9s %9s%n",
+            "variant", "wall_ms", "jvm_to_main_ms", "init_ms", "first_ms", "warm_ms");
+        for (Map.Entry<String, List<String>> variant : variants.entrySet()) {
+            boolean primed = variant.getKey().startsWith("primed");
+            List<Double> wall = new ArrayList<>();
+            Map<String, List<Double>> metrics = new HashMap<>();
+            for (int r = 0; r < runs; r++) {
+                long start = System.nanoTime();
+                Map<String, Double> result = launchChild(variant.getValue(), primed, warm);
+                wall.add((System.nanoTime() - start) / 1e6);
+                for (String metric : METRICS) {
+                    metrics.computeIfAbsent(metric, m -> new ArrayList<>()).add(result.get(metric));
+                }
+            }
+            System.out.printf("%-12s %9.1f %14.1f %9.1f %9.1f %9.3f%n", variant.getKey(), median(wall),
+                median(metrics.get("jvm_to_main_ms")), median(metrics.get("init_ms")),
+                median(metrics.get("first_ms")), median(metrics.get("warm_ms")));
+        }
+    }
+    
+    /**
+     * One measured container lifetime: init, first invocation, then warm invocations.
+     */
+    private static void runChild(int warm) throws Exception {
+        long jvmToMain = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        
+        // Static init builds the long-lived components (and primes when PRIME_ON_INIT is set)
+        long start = System.nanoTime();
+        Class.forName(ETFAdvisorHandler.class.getName(), true, StartupHarness.class.getClassLoader());
+        double initMs = (System.nanoTime() - start) / 1e6;
+        
+        Config config = new Config();
+        BuyScoreCalculator buyScoreCalc = new BuyScoreCalculator(config);
+        ReportRenderer renderer = new ReportRenderer(config.getTickers());
+        
+        start = System.nanoTime();
+        Primer.runFixture(config, buyScoreCalc, renderer);
+        double firstMs = (System.nanoTime() - start) / 1e6;
+        
+        List<Double> warmMs = new ArrayList<>();
+        for (int i = 0; i < warm; i++) {
+            start = System.nanoTime();
+            Primer.runFixture(config, buyScoreCalc, renderer);
+            warmMs.add((System.nanoTime() - start) / 1e6);
+        }
+        
+        System.out.printf("%sjvm_to_main_ms=%d init_ms=%.3f first_ms=%.3f warm_ms=%.3f%n", RESULT_PREFIX,
+            jvmToMain, initMs, firstMs, warmMs.isEmpty() ? Double.NaN : median(warmMs));
+    }
+    
+    private static Map<String, Double> launchChild(List<String> jvmArgs, boolean primed, int warm)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"),
+            StartupHarness.class.getName(), "--child", "--warm", Integer.toString(warm)));
+            
+        ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true);
+        builder.environment().put("PRIME_ON_INIT", Boolean.toString(primed));
+        Process process = builder.start();
+        
+        Map<String, Double> result = null;
+        StringBuilder output = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.append(line).append('\n');
+                if (line.startsWith(RESULT_PREFIX)) {
+                    result = new HashMap<>();
+                    for (String pair : line.substring(RESULT_PREFIX.length()).split(" ")) {
+                        String[] kv = pair.split("=");
+                        result.put(kv[0], Double.parseDouble(kv[1]));
+                    }
+                }
+            }
+        }
+        int exit = process.waitFor();
+        if (exit != 0 || result == null) {
+            throw new IOException("Child JVM failed (exit " + exit + "):\n" + output);
+        }
+        return result;
+    }
+    
+    private static double median(List<Double> values) {
+        double[] sorted = values.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        int mid = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2;
+    }
+}
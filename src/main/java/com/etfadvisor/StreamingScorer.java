@@ -0,0 +1,250 @@
+package com.etfadvisor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Continuous scoring over a stream of price ticks. Each ticker keeps a RollingIndicators
+ * window of its daily closes; a tick for the still-open day revises that day's close and a
+ * tick for a later day commits the previous one, so every tick rescores in O(1) without
+ * allocating. A TierCrossing is emitted whenever a ticker's tier changes.
+ *
+ * Usage: StreamingScorer [--data data] [--days-per-second 0] [--ticks-per-day 1] [--repeat 1] [--quiet]
+ *   Replays the CSVs as one feed in date order (0 days per second = as fast as possible),
+ *   splitting each day into --ticks-per-day intraday ticks that end at the close.
+ * Usage: StreamingScorer --stdin
+ *   Scores "TICKER,yyyy-MM-dd,price" lines from stdin until end of input.
+ */
+public class StreamingScorer {
+    
+    private final Config config;
+    private final BuyScoreCalculator calculator;
+    private final Listener listener;
+    private final Map<String, TickerState> states = new HashMap<>();
+    private final double[] scratch = new double[4];
+    private final double[] components = new double[ScoringFormula.COMPONENTS.size()];
+    
+    private long ticks;
+    private long crossings;
+    private long stale;
+    
+    /**
+     * Receives tier changes, on the thread that calls onTick.
+     */
+    public interface Listener {
+        void onCrossing(TierCrossing crossing);
+    }
+    
+    public StreamingScorer(Config config, Listener listener) {
+        this.config = config;
+        this.calculator = new BuyScoreCalculator(config);
+        this.listener = listener;
+    }
+    
+    /**
+     * Scores one price update. Ticks older than the ticker's open day are dropped.
+     * @return The ticker's tier after this tick (null if the tick was dropped)
+     */
+    public Tier onTick(String ticker, int epochDay, double price) {
+        TickerState state = states.get(ticker);
+        if (state == null) {
+            state = new TickerState(new RollingIndicators(config));
+            states.put(ticker, state);
+        }
+        if (state.openDay != Integer.MIN_VALUE && epochDay < state.openDay) {
+            stale++;
+            return null;
+        }
+        if (epochDay > state.openDay) {
+            if (state.openDay != Integer.MIN_VALUE) {
+                state.window.push(state.openClose);
+            }
+            state.openDay = epochDay;
+        }
+        state.openClose = price;
+        ticks++;
+        
+        state.window.peek(price, scratch);
+        int buyScore = calculator.score(scratch[0], scratch[1], scratch[2], scratch[3], components);
+        Tier tier = Tier.of(buyScore, config);
+        
+        Tier previous = state.tier;
+        state.tier = tier;
+        state.buyScore = buyScore;
+        if (previous != null && previous != tier) {
+            crossings++;
+            if (listener != null) {
+                listener.onCrossing(new TierCrossing(ticker, epochDay, price, buyScore, previous, tier));
+            }
+        }
+        return tier;
+    }
+    
+    /**
+     * Latest tier of a ticker, or null before its first tick.
+     */
+    public Tier getTier(String ticker) {
+        TickerState state = states.get(ticker);
+        return state != null ? state.tier : null;
+    }
+    
+    /**
+     * Latest buy score of a ticker, or -1 before its first tick.
+     */
+    public int getBuyScore(String ticker) {
+        TickerState state = states.get(ticker);
+        return state != null && state.tier != null ? state.buyScore : -1;
+    }
+    
+    public long getTicks() { return ticks; }
+    public long getCrossings() { return crossings; }
+    public long getStale() { return stale; }
+    
+    private static final class TickerState {
+        final RollingIndicators window;
+        int openDay = Integer.MIN_VALUE;
+        double openClose;
+        Tier tier;
+        int buyScore;
+        
+        TickerState(RollingIndicators window) {
+            this.window = window;
+        }
+    }
+    
+    /**
+     * A ticker moving from one tier to another on a tick.
+     */
+    public static class TierCrossing {
+        private final String ticker;
+        private final int epochDay;
+        private final double price;
+        private final int buyScore;
+        private final Tier from;
+        private final Tier to;
+        
+        public TierCrossing(String ticker, int epochDay, double price, int buyScore, Tier from, Tier to) {
+            this.ticker = ticker;
+            this.epochDay = epochDay;
+            this.price = price;
+            this.buyScore = buyScore;
+            this.from = from;
+            this.to = to;
+        }
+        
+        public String getTicker() { return ticker; }
+        public int getEpochDay() { return epochDay; }
+        public LocalDate getDate() { return LocalDate.ofEpochDay(epochDay); }
+        public double getPrice() { return price; }
+        public int getBuyScore() { return buyScore; }
+        public Tier getFrom() { return from; }
+        public Tier getTo() { return to; }
+        
+        @Override
+        public String toString() {
+            return String.format("%s %s %.2f score=%d %s -> %s", getDate(), ticker, price, buyScore, from, to);
+        }
+    }
+    
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path dataDir = Paths.get("data");
+        double daysPerSecond = 0;
+        int ticksPerDay = 1;
+        int repeat = 1;
+        boolean quiet = false;
+        boolean stdin = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--data": dataDir = Paths.get(args[++i]); break;
+                case "--days-per-second": daysPerSecond = Double.parseDouble(args[++i]); break;
+                case "--ticks-per-day": ticksPerDay = Math.max(1, Integer.parseInt(args[++i])); break;
+                case "--repeat": repeat = Math.max(1, Integer.parseInt(args[++i])); break;
+                case "--quiet": quiet = true; break;
+                case "--stdin": stdin = true; break;
+                default: throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        
+        Config config = new Config();
+        Listener printer = quiet ? null : crossing -> System.out.println(crossing);
+        if (stdin) {
+            scoreStdin(new StreamingScorer(config, printer));
+            return;
+        }
+        
+        PricePanel panel = PricePanel.loadCsv(dataDir);
+        for (int run = 0; run < repeat; run++) {
+            StreamingScorer scorer = new StreamingScorer(config, printer);
+            long start = System.nanoTime();
+            replay(panel, scorer, ticksPerDay, daysPerSecond);
+            double elapsedMs = (System.nanoTime() - start) / 1e6;
+            System.out.printf("run=%d ticks=%d crossings=%d elapsed_ms=%.1f ticks_per_s=%.0f%n", run + 1,
+                scorer.getTicks(), scorer.getCrossings(), elapsedMs, scorer.getTicks() / (elapsedMs / 1000));
+        }
+    }
+    
+    /**
+     * Feeds the panel to the scorer date by date. Intraday ticks step linearly from the
+     * previous close to the day's close.
+     */
+    static void replay(PricePanel panel, StreamingScorer scorer, int ticksPerDay, double daysPerSecond)
+            throws InterruptedException {
+        int tickers = panel.tickerCount();
+        double[] previous = new double[tickers];
+        double[] closes = new double[tickers];
+        long nanosPerDay = daysPerSecond > 0 ? (long) (1e9 / daysPerSecond) : 0;
+        long next = System.nanoTime();
+        for (int d = 0; d < panel.dayCount(); d++) {
+            panel.row(d, closes);
+            int epochDay = panel.epochDay(d);
+            for (int k = 1; k <= ticksPerDay; k++) {
+                for (int t = 0; t < tickers; t++) {
+                    double close = closes[t];
+                    if (Double.isNaN(close)) {
+                        continue;
+                    }
+                    double from = previous[t] > 0 ? previous[t] : close;
+                    double price = k == ticksPerDay ? close : from + (close - from) * k / ticksPerDay;
+                    scorer.onTick(panel.getTickers().get(t), epochDay, price);
+                }
+            }
+            for (int t = 0; t < tickers; t++) {
+                if (!Double.isNaN(closes[t])) {
+                    previous[t] = closes[t];
+                }
+            }
+            if (nanosPerDay > 0) {
+                next += nanosPerDay;
+                long sleepNanos = next - System.nanoTime();
+                if (sleepNanos > 0) {
+                    Thread.sleep(sleepNanos / 1_000_000, (int) (sleepNanos % 1_000_000));
+                }
+            }
+        }
+    }
+    
+    private static void scoreStdin(StreamingScorer scorer) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] fields = line.trim().split(",");
+            if (fields.length != 3) {
+                System.err.println("Skipping malformed tick: " + line);
+                continue;
+            }
+            try {
+                scorer.onTick(fields[0], (int) LocalDate.parse(fields[1]).toEpochDay(), Double.parseDouble(fields[2]));
+            } catch (RuntimeException e) {
+                System.err.println("Skipping malformed tick: " + line);
+            }
+        }
+        System.out.printf("ticks=%d crossings=%d stale=%d%n", scorer.getTicks(), scorer.getCrossings(), scorer.getStale());
+    }
+}
@@ -0,0 +1,46 @@
+package com.etfadvisor;
+
+/**
+ * Buy signal tier, strongest first. Names match the strings used in the notebooks,
+ * the result CSVs and the Lambda response.
+ */
+public enum Tier {
+    STRONG_BUY(2.5, "tier-strong-buy"),
+    BUY(1.5, "tier-buy"),
+    DCA_ONLY(1.0, "tier-dca-only"),
+    WAIT(0.0, "tier-wait");
+    
+    private final double buyMultiplier;
+    private final String cssClass;
+    
+    Tier(double buyMultiplier, String cssClass) {
+        this.buyMultiplier = buyMultiplier;
+        this.cssClass = cssClass;
+    }
+    
+    /**
+     * Tier for a buy score under the configured thresholds.
+     */
+    public static Tier of(int buyScore, Config config) {
+        if (buyScore >= config.getTierStrongBuy()) {
+            return STRONG_BUY;
+        } else if (buyScore >= config.getTierBuy()) {
+            return BUY;
+        } else if (buyScore >= config.getTierDcaOnly()) {
+            return DCA_ONLY;
+        } else {
+            return WAIT;
+        }
+    }
+    
+    /** Multiple of the baseline DCA amount to buy at this tier. */
+    public double getBuyMultiplier() { return buyMultiplier; }
+    
+    /** CSS class used for this tier in the email report. */
+    public String getCssClass() { return cssClass; }
+    
+    /** STRONG_BUY or BUY. */
+    public boolean isBuy() {
+        return this == STRONG_BUY || this == BUY;
+    }
+}
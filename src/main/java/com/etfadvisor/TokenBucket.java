@@ -0,0 +1,70 @@
+package com.etfadvisor;
+
+/**
+ * Thread-safe token bucket: refills at a steady rate up to a burst capacity.
+ * Callers reserve a token and wait out the returned delay, so waiting happens outside
+ * the lock (and can be scheduled asynchronously instead of blocking a thread).
+ */
+final class TokenBucket {
+    
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill;
+    
+    /**
+     * @param permitsPerSecond Refill rate (zero or negative = unlimited)
+     * @param burst Maximum tokens saved up while idle
+     */
+    TokenBucket(double permitsPerSecond, int burst) {
+        this.tokensPerNano = permitsPerSecond / 1e9;
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+    
+    /**
+     * Takes a token, borrowing against future refills when the bucket is empty.
+     * @return Nanoseconds to wait before using the token (0 = use it now)
+     */
+    synchronized long reserve() {
+        if (tokensPerNano <= 0) {
+            return 0;
+        }
+        refill();
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+    }
+    
+    /**
+     * Takes a token only if one is available right now.
+     */
+    synchronized boolean tryAcquire() {
+        if (tokensPerNano <= 0) {
+            return true;
+        }
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Gives back a reserved token that was never used (the bucket still holds at most burst).
+     */
+    synchronized void refund() {
+        if (tokensPerNano <= 0) {
+            return;
+        }
+        refill();
+        tokens = Math.min(capacity, tokens + 1);
+    }
+    
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
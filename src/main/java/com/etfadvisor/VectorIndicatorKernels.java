@@ -0,0 +1,83 @@
+package com.etfadvisor;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API implementation of the indicator columns. Each lane is one output day, and the
+ * window is walked with one unaligned load per step (load j holds element j of every lane's
+ * window), so every lane adds its closes in the same order as the scalar loop and rounds
+ * identically. Days with partial windows, and the leftovers past the last full vector, go
+ * through the scalar kernel.
+ * Only loaded when jdk.incubator.vector is in the boot layer (see IndicatorKernels).
+ */
+final class VectorIndicatorKernels implements IndicatorKernels.Kernel {
+    
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    
+    @Override
+    public void sma(double[] prices, int from, int to, int window, double[] out) {
+        int start = Math.min(to, from + window - 1);
+        IndicatorKernels.ScalarKernel.sma(prices, from, from, start, window, out);
+        
+        int t = start;
+        for (; t + LANES <= to; t += LANES) {
+            int first = t + 1 - window;
+            DoubleVector sum = DoubleVector.zero(SPECIES);
+            for (int j = 0; j < window; j++) {
+                sum = sum.add(DoubleVector.fromArray(SPECIES, prices, first + j));
+            }
+            sum.div(window).intoArray(out, t - from);
+        }
+        IndicatorKernels.ScalarKernel.sma(prices, from, t, to, window, out);
+    }
+    
+    @Override
+    public void drawdown(double[] prices, int from, int to, int lookback, double[] out) {
+        int start = Math.min(to, from + lookback - 1);
+        IndicatorKernels.ScalarKernel.drawdown(prices, from, from, start, lookback, out);
+        
+        int t = start;
+        for (; t + LANES <= to; t += LANES) {
+            int first = t + 1 - lookback;
+            DoubleVector close = DoubleVector.fromArray(SPECIES, prices, t);
+            DoubleVector max = close;
+            for (int j = 0; j < lookback; j++) {
+                max = max.max(DoubleVector.fromArray(SPECIES, prices, first + j));
+            }
+            close.div(max).sub(1.0).intoArray(out, t - from);
+        }
+        IndicatorKernels.ScalarKernel.drawdown(prices, from, t, to, lookback, out);
+    }
+    
+    @Override
+    public void zscore(double[] prices, int from, int to, int window, double[] out) {
+        int start = Math.min(to, from + window - 1);
+        IndicatorKernels.ScalarKernel.zscore(prices, from, from, start, window, out);
+        
+        int t = start;
+        for (; t + LANES <= to; t += LANES) {
+            int first = t + 1 - window;
+            DoubleVector sum = DoubleVector.zero(SPECIES);
+            for (int j = 0; j < window; j++) {
+                sum = sum.add(DoubleVector.fromArray(SPECIES, prices, first + j));
+            }
+            DoubleVector mean = sum.div(window);
+            
+            DoubleVector variance = DoubleVector.zero(SPECIES);
+            for (int j = 0; j < window; j++) {
+                DoubleVector diff = DoubleVector.fromArray(SPECIES, prices, first + j).sub(mean);
+                variance = variance.add(diff.mul(diff));
+            }
+            DoubleVector std = variance.div(window).sqrt();
+            
+            VectorMask<Double> flat = std.eq(0.0);
+            DoubleVector.fromArray(SPECIES, prices, t).sub(mean).div(std)
+                .blend(0.0, flat)
+                .intoArray(out, t - from);
+        }
+        IndicatorKernels.ScalarKernel.zscore(prices, from, t, to, window, out);
+    }
+}
@@ -0,0 +1,455 @@
+package com.etfadvisor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Walk-forward version of ParameterSweep. Each fold picks the best combination on a training
+ * window, scores it on the test window that follows, then rolls both forward by --step. A
+ * test window never overlaps the training window its parameters were chosen on, so the
+ * combined test windows give an out-of-sample estimate. The sweep's single ranking over the
+ * whole history is in-sample and overstates it.
+ * <p>
+ * Folds carry work forward instead of starting over:
+ * <ul>
+ *   <li>Indicator columns are computed once per ticker and window length over the whole
+ *       history (IndicatorKernels). They only look back, so every fold reads the values
+ *       IndicatorCalculator gives for the history up to each day.</li>
+ *   <li>Each candidate (windows, score maxima, formula) keeps its training window's buy score
+ *       histogram per ticker: days and the sum of 1 / close per score level. Moving to the
+ *       next fold removes the days that left the window and scores only the days that
+ *       entered, so a fold costs O(step) instead of O(train) per candidate and ticker.</li>
+ *   <li>As in the sweep, tier thresholds only regroup a histogram, so each full combination
+ *       is priced in O(101).</li>
+ * </ul>
+ * Windows count trading days of the merged date calendar, starting on the first date any
+ * ticker has MIN_DAYS_NEEDED days of history. A ticker joins the windows once it has that
+ * much history. Purchases are valued at the ticker's last close in the window.
+ *
+ * Usage: WalkForwardOptimizer [--data DIR] [--tickers VOO,QQQ,...] [--train 252] [--test 63]
+ *          [--step N] [--from-scratch] [--out FILE] [ParameterSweep grid options]
+ *   --step defaults to --test (back-to-back test windows). --from-scratch rescores every
+ *   training window in full instead of sliding it, for comparison. --out writes one row per
+ *   fold plus the out-of-sample aggregate.
+ */
+public class WalkForwardOptimizer {
+    
+    private static final String RESULT_HEADER = "fold,train_from,train_to,test_from,test_to,zscore_window,"
+        + "lookback_high_days,sma_days,drawdown_max,zscore_max,tier_strong_buy,tier_buy,tier_dca_only,"
+        + "in_sample_excess_return,days,buy_days,invested_usd,final_value_usd,return,baseline_return,excess_return,"
+        + "default_excess_return,score_formula";
+        
+    private final List<ParameterSweep.TickerColumns> universe;
+    private final int[] calendar;
+    private final int trainDays;
+    private final int testDays;
+    private final int stepDays;
+    private final boolean fromScratch;
+    
+    /**
+     * @param stepDays Trading days between folds (0 = testDays)
+     * @param fromScratch Rescore each training window in full instead of sliding it
+     */
+    public WalkForwardOptimizer(Map<String, PriceSeries> histories, int trainDays, int testDays, int stepDays,
+                                boolean fromScratch) {
+        if (trainDays < 1 || testDays < 1 || stepDays < 0) {
+            throw new IllegalArgumentException("Invalid windows: train " + trainDays + ", test " + testDays
+                + ", step " + stepDays);
+        }
+        this.universe = ParameterSweep.universe(histories);
+        this.trainDays = trainDays;
+        this.testDays = testDays;
+        this.stepDays = stepDays > 0 ? stepDays : testDays;
+        this.fromScratch = fromScratch;
+        
+        TreeSet<Integer> days = new TreeSet<>();
+        for (ParameterSweep.TickerColumns t : universe) {
+            for (int i = Backtester.MIN_DAYS_NEEDED; i < t.epochDays.length; i++) {
+                days.add(t.epochDays[i]);
+            }
+        }
+        this.calendar = days.stream().mapToInt(Integer::intValue).toArray();
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Path dataDir = Paths.get("data");
+        Path outFile = null;
+        List<String> tickers = null;
+        int train = 252;
+        int test = 63;
+        int step = 0;
+        boolean fromScratch = false;
+        
+        Config base = new Config();
+        ParameterSweep.GridSpec spec = new ParameterSweep.GridSpec(base);
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--data": dataDir = Paths.get(args[++i]); break;
+                case "--out": outFile = Paths.get(args[++i]); break;
+                case "--tickers": tickers = Arrays.stream(args[++i].split(","))
+                    .map(String::trim).map(String::toUpperCase).filter(s -> !s.isEmpty())
+                    .collect(Collectors.toList()); break;
+                case "--train": train = Integer.parseInt(args[++i]); break;
+                case "--test": test = Integer.parseInt(args[++i]); break;
+                case "--step": step = Integer.parseInt(args[++i]); break;
+                case "--from-scratch": fromScratch = true; break;
+                default:
+                    if (i + 1 < args.length && spec.parse(args[i], args[i + 1])) {
+                        i++;
+                        break;
+                    }
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        if (tickers == null) {
+            tickers = Backtester.listTickers(dataDir);
+        }
+        
+        Map<String, PriceSeries> histories = new LinkedHashMap<>();
+        for (String ticker : tickers) {
+            histories.put(ticker, Backtester.loadHistory(dataDir, ticker));
+        }
+        List<Config> combinations = spec.combinations(base);
+        
+        long start = System.nanoTime();
+        WalkForwardOptimizer optimizer = new WalkForwardOptimizer(histories, train, test, step, fromScratch);
+        List<Fold> folds = optimizer.run(combinations, base);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        
+        printTable(folds, spec.formulas);
+        System.out.printf("Evaluated %d combinations x %d folds over %d tickers in %d ms%s%n",
+            combinations.size(), folds.size(), optimizer.universe.size(), elapsedMs,
+            fromScratch ? " (from scratch)" : "");
+            
+        if (outFile != null) {
+            writeCsv(folds, outFile);
+            System.out.println("Wrote " + outFile);
+        }
+    }
+    
+    /**
+     * One training/test split: the combination chosen in sample and how it and {@code base}
+     * did on the test window.
+     */
+    public static final class Fold {
+        private final int index;
+        private final LocalDate trainFrom;
+        private final LocalDate trainTo;
+        private final LocalDate testFrom;
+        private final LocalDate testTo;
+        private final ParameterSweep.StrategyMetrics inSample;
+        private final ParameterSweep.StrategyMetrics outOfSample;
+        private final ParameterSweep.StrategyMetrics defaultOutOfSample;
+        
+        Fold(int index, LocalDate trainFrom, LocalDate trainTo, LocalDate testFrom, LocalDate testTo,
+             ParameterSweep.StrategyMetrics inSample, ParameterSweep.StrategyMetrics outOfSample,
+             ParameterSweep.StrategyMetrics defaultOutOfSample) {
+            this.index = index;
+            this.trainFrom = trainFrom;
+            this.trainTo = trainTo;
+            this.testFrom = testFrom;
+            this.testTo = testTo;
+            this.inSample = inSample;
+            this.outOfSample = outOfSample;
+            this.defaultOutOfSample = defaultOutOfSample;
+        }
+        
+        public int getIndex() { return index; }
+        public LocalDate getTrainFrom() { return trainFrom; }
+        public LocalDate getTrainTo() { return trainTo; }
+        public LocalDate getTestFrom() { return testFrom; }
+        public LocalDate getTestTo() { return testTo; }
+        /** Chosen combination, scored on its training window. */
+        public ParameterSweep.StrategyMetrics getInSample() { return inSample; }
+        /** Chosen combination, scored on the test window. */
+        public ParameterSweep.StrategyMetrics getOutOfSample() { return outOfSample; }
+        /** The base configuration, scored on the test window. */
+        public ParameterSweep.StrategyMetrics getDefaultOutOfSample() { return defaultOutOfSample; }
+    }
+    
+    /**
+     * Runs every fold. Folds start every step trading days while a full training window and
+     * at least one test day remain (the last test window may be short).
+     * @param base Configuration reported alongside the chosen one on each test window
+     */
+    public List<Fold> run(List<Config> combinations, Config base) {
+        List<Fold> folds = new ArrayList<>();
+        if (combinations.isEmpty()) {
+            return folds;
+        }
+        List<Config> all = new ArrayList<>(combinations);
+        all.add(base);
+        ParameterSweep.computeColumns(universe, all);
+        
+        Map<ParameterSweep.ScoreKey, Candidate> candidates = new LinkedHashMap<>();
+        for (Config c : combinations) {
+            candidates.computeIfAbsent(ParameterSweep.ScoreKey.of(c), Candidate::new);
+        }
+        
+        for (int from = 0; from + trainDays < calendar.length; from += stepDays) {
+            int trainTo = from + trainDays;
+            int testTo = Math.min(calendar.length, trainTo + testDays);
+            int[][] trainRanges = ranges(from, trainTo);
+            int[][] testRanges = ranges(trainTo, testTo);
+            
+            candidates.values().parallelStream().forEach(c -> c.moveTo(trainRanges, fromScratch));
+            ParameterSweep.StrategyMetrics best = combinations.stream()
+                .map(c -> candidates.get(ParameterSweep.ScoreKey.of(c)).histogram().evaluate(c))
+                .min(ParameterSweep.RANKING)
+                .get();
+                
+            Config chosen = best.getConfig();
+            folds.add(new Fold(folds.size() + 1, date(from), date(trainTo - 1), date(trainTo), date(testTo - 1), best,
+                histogram(chosen, testRanges).evaluate(chosen), histogram(base, testRanges).evaluate(base)));
+        }
+        return folds;
+    }
+    
+    /**
+     * Out-of-sample totals over every fold's test window.
+     */
+    public static ParameterSweep.StrategyMetrics aggregate(List<Fold> folds, boolean defaultConfig) {
+        long days = 0;
+        long buyDays = 0;
+        double invested = 0.0;
+        double finalValue = 0.0;
+        double baselineInvested = 0.0;
+        double baselineValue = 0.0;
+        Config config = null;
+        for (Fold fold : folds) {
+            ParameterSweep.StrategyMetrics m = defaultConfig ? fold.defaultOutOfSample : fold.outOfSample;
+            days += m.getDays();
+            buyDays += m.getBuyDays();
+            invested += m.getInvestedUsd();
+            finalValue += m.getFinalValueUsd();
+            baselineInvested += m.getBaselineInvestedUsd();
+            baselineValue += m.getBaselineValueUsd();
+            config = m.getConfig();
+        }
+        return new ParameterSweep.StrategyMetrics(config, days, buyDays, invested, finalValue,
+            baselineInvested, baselineValue);
+    }
+    
+    /**
+     * Each ticker's row range [from, to) for calendar positions [from, to).
+     */
+    private int[][] ranges(int from, int to) {
+        int[][] ranges = new int[universe.size()][];
+        for (int k = 0; k < ranges.length; k++) {
+            int[] days = universe.get(k).epochDays;
+            int lo = Math.max(Backtester.MIN_DAYS_NEEDED, firstIndexOnOrAfter(days, calendar[from]));
+            int hi = firstIndexOnOrAfter(days, calendar[to - 1] + 1);
+            ranges[k] = new int[] {lo, Math.max(lo, hi)};
+        }
+        return ranges;
+    }
+    
+    private static int firstIndexOnOrAfter(int[] days, int day) {
+        int i = Arrays.binarySearch(days, day);
+        return i >= 0 ? i : -i - 1;
+    }
+    
+    private LocalDate date(int calendarIndex) {
+        return LocalDate.ofEpochDay(calendar[calendarIndex]);
+    }
+    
+    /**
+     * A one-off histogram of {@code config}'s scores over the given ranges.
+     */
+    private ParameterSweep.ScoreHistogram histogram(Config config, int[][] ranges) {
+        Candidate candidate = new Candidate(ParameterSweep.ScoreKey.of(config));
+        candidate.moveTo(ranges, true);
+        return candidate.histogram();
+    }
+    
+    /**
+     * One (windows, score maxima, formula) key's score histograms over the current window,
+     * per ticker. Updated by one thread at a time.
+     */
+    private final class Candidate {
+        final ParameterSweep.ScoreKey key;
+        final ScoringFormula formula;
+        final double[] components = new double[ScoringFormula.COMPONENTS.size()];
+        final TickerWindow[] windows;
+        
+        Candidate(ParameterSweep.ScoreKey key) {
+            this.key = key;
+            this.formula = ScoringFormula.of(key.formula);
+            this.windows = new TickerWindow[universe.size()];
+            for (int k = 0; k < windows.length; k++) {
+                ParameterSweep.TickerColumns t = universe.get(k);
+                windows[k] = new TickerWindow(t.closes, t.sma(key.smaDays), t.drawdown(key.lookbackHighDays),
+                    t.zscore(key.zscoreWindow));
+            }
+        }
+        
+        void moveTo(int[][] ranges, boolean reset) {
+            for (int k = 0; k < windows.length; k++) {
+                TickerWindow w = windows[k];
+                int from = ranges[k][0];
+                int to = ranges[k][1];
+                if (reset || from >= w.to || from < w.from || to < w.to) {
+                    // No overlap to keep (or moving backwards): rebuild
+                    w.clear();
+                    w.from = from;
+                    w.to = from;
+                }
+                for (int i = w.from; i < from; i++) {
+                    w.remove(score(w, i), i);
+                }
+                for (int i = w.to; i < to; i++) {
+                    w.add(score(w, i), i);
+                }
+                w.from = from;
+                w.to = to;
+            }
+        }
+        
+        int score(TickerWindow w, int i) {
+            return ScoringFormula.toScore(formula.evaluate(w.closes[i], w.sma[i], w.drawdown[i], w.zscore[i],
+                key.drawdownMax, key.zscoreMax, components));
+        }
+        
+        /**
+         * The window's days per score across tickers, each day valued at its ticker's last
+         * close in the window.
+         */
+        ParameterSweep.ScoreHistogram histogram() {
+            ParameterSweep.ScoreHistogram histogram = new ParameterSweep.ScoreHistogram();
+            for (TickerWindow w : windows) {
+                if (w.to <= w.from) {
+                    continue;
+                }
+                double lastClose = w.closes[w.to - 1];
+                for (int s = 0; s < ParameterSweep.SCORE_LEVELS; s++) {
+                    histogram.days[s] += w.days[s];
+                    histogram.growth[s] += lastClose * w.inverseCloses[s];
+                }
+            }
+            return histogram;
+        }
+    }
+    
+    /**
+     * Days per score and the sum of 1 / close per score over rows [from, to) of one ticker.
+     */
+    private static final class TickerWindow {
+        final double[] closes;
+        final double[] sma;
+        final double[] drawdown;
+        final double[] zscore;
+        final long[] days = new long[ParameterSweep.SCORE_LEVELS];
+        final double[] inverseCloses = new double[ParameterSweep.SCORE_LEVELS];
+        int from;
+        int to;
+        
+        TickerWindow(double[] closes, double[] sma, double[] drawdown, double[] zscore) {
+            this.closes = closes;
+            this.sma = sma;
+            this.drawdown = drawdown;
+            this.zscore = zscore;
+        }
+        
+        void add(int score, int i) {
+            days[score]++;
+            inverseCloses[score] += 1.0 / closes[i];
+        }
+        
+        void remove(int score, int i) {
+            if (--days[score] == 0) {
+                // Drop the rounding left over from the adds and removes
+                inverseCloses[score] = 0.0;
+            } else {
+                inverseCloses[score] -= 1.0 / closes[i];
+            }
+        }
+        
+        void clear() {
+            Arrays.fill(days, 0);
+            Arrays.fill(inverseCloses, 0.0);
+        }
+    }
+    
+    private static void printTable(List<Fold> folds, List<String> formulas) {
+        boolean showFormula = formulas.size() > 1;
+        System.out.printf("%4s %-23s %-23s %4s %4s %4s %6s %5s %9s %9s %9s %9s %9s%s%n",
+            "fold", "train", "test", "zwin", "high", "sma", "ddMax", "zMax", "tiers",
+            "is_excess", "oos_ret", "oos_exc", "dflt_exc", showFormula ? " formula" : "");
+        for (Fold f : folds) {
+            Config c = f.outOfSample.getConfig();
+            System.out.printf("%4d %-23s %-23s %4d %4d %4d %6.3f %5.2f %9s %8.2f%% %8.2f%% %8.2f%% %8.2f%%%s%n",
+                f.index, f.trainFrom + ".." + f.trainTo, f.testFrom + ".." + f.testTo,
+                c.getZscoreWindow(), c.getLookbackHighDays(), c.getSmaDays(), c.getDrawdownMax(), c.getZscoreMax(),
+                c.getTierStrongBuy() + "/" + c.getTierBuy() + "/" + c.getTierDcaOnly(),
+                100 * f.inSample.getExcessReturn(), 100 * f.outOfSample.getReturn(),
+                100 * f.outOfSample.getExcessReturn(), 100 * f.defaultOutOfSample.getExcessReturn(),
+                showFormula ? String.format(" %7d", formulas.indexOf(c.getScoreFormula()) + 1) : "");
+        }
+        if (folds.isEmpty()) {
+            System.out.println("No folds: the history is shorter than one training window");
+            return;
+        }
+        
+        ParameterSweep.StrategyMetrics oos = aggregate(folds, false);
+        ParameterSweep.StrategyMetrics dflt = aggregate(folds, true);
+        double meanInSample = folds.stream().mapToDouble(f -> f.inSample.getExcessReturn()).average().orElse(Double.NaN);
+        double meanOutOfSample = folds.stream().mapToDouble(f -> f.outOfSample.getExcessReturn()).average().orElse(Double.NaN);
+        long beatDefault = folds.stream()
+            .filter(f -> f.outOfSample.getExcessReturn() > f.defaultOutOfSample.getExcessReturn()).count();
+        System.out.printf("Out of sample (%d ticker-days): return %.2f%%, excess over DCA %.2f%% (default config %.2f%%)%n",
+            oos.getDays(), 100 * oos.getReturn(), 100 * oos.getExcessReturn(), 100 * dflt.getExcessReturn());
+        System.out.printf("Mean excess per fold: in sample %.2f%%, out of sample %.2f%%; chosen beat default in %d of %d folds%n",
+            100 * meanInSample, 100 * meanOutOfSample, beatDefault, folds.size());
+    }
+    
+    private static void writeCsv(List<Fold> folds, Path outFile) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(outFile, StandardCharsets.UTF_8)) {
+            out.write(RESULT_HEADER);
+            out.write('\n');
+            for (Fold f : folds) {
+                Config c = f.outOfSample.getConfig();
+                out.write(f.index + "," + f.trainFrom + ',' + f.trainTo + ',' + f.testFrom + ',' + f.testTo + ','
+                    + c.getZscoreWindow() + ',' + c.getLookbackHighDays() + ',' + c.getSmaDays() + ','
+                    + Backtester.formatDouble(c.getDrawdownMax()) + ',' + Backtester.formatDouble(c.getZscoreMax()) + ','
+                    + c.getTierStrongBuy() + ',' + c.getTierBuy() + ',' + c.getTierDcaOnly() + ','
+                    + Backtester.formatDouble(f.inSample.getExcessReturn()) + ','
+                    + metrics(f.outOfSample) + ',' + Backtester.formatDouble(f.defaultOutOfSample.getExcessReturn()) + ','
+                    + quote(c.getScoreFormula()) + '\n');
+            }
+            if (!folds.isEmpty()) {
+                // Aggregate row: every test window together, no single parameter set
+                Fold first = folds.get(0);
+                Fold last = folds.get(folds.size() - 1);
+                out.write("ALL," + first.trainFrom + ',' + last.trainTo + ',' + first.testFrom + ',' + last.testTo
+                    + ",,,,,,,,,"
+                    + Backtester.formatDouble(folds.stream().mapToDouble(f -> f.inSample.getExcessReturn()).average().orElse(Double.NaN))
+                    + ',' + metrics(aggregate(folds, false)) + ','
+                    + Backtester.formatDouble(aggregate(folds, true).getExcessReturn()) + ",\n");
+            }
+        }
+    }
+    
+    // "days,buy_days,invested_usd,final_value_usd,return,baseline_return,excess_return"
+    private static String metrics(ParameterSweep.StrategyMetrics m) {
+        return m.getDays() + "," + m.getBuyDays() + ',' + Backtester.formatDouble(m.getInvestedUsd()) + ','
+            + Backtester.formatDouble(m.getFinalValueUsd()) + ',' + Backtester.formatDouble(m.getReturn()) + ','
+            + Backtester.formatDouble(m.getBaselineReturn()) + ',' + Backtester.formatDouble(m.getExcessReturn());
+    }
+    
+    private static String quote(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
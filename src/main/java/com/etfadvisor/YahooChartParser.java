@@ -0,0 +1,229 @@
+package com.etfadvisor;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Streaming token parser for Yahoo Finance v8 chart responses.
+ * Reads straight from the response stream into primitive arrays and skips
+ * every field it does not need (open/high/low/volume, adjclose, most of meta).
+ */
+public final class YahooChartParser {
+    
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final int SECONDS_PER_DAY = 86400;
+    private static final long NULL_TIMESTAMP = Long.MIN_VALUE;
+    
+    private YahooChartParser() {
+    }
+    
+    /**
+     * Raw fields of the first chart result.
+     */
+    public static final class Chart {
+        long[] timestamps = new long[0];
+        int timestampCount;
+        double[] closes = new double[0];
+        int closeCount;
+        long gmtOffset;
+        double regularMarketPrice = Double.NaN;
+        double previousClose = Double.NaN;
+        
+        public double getRegularMarketPrice() { return regularMarketPrice; }
+        public double getPreviousClose() { return previousClose; }
+        
+        /**
+         * Valid (non-null, positive) closes dated on or before endEpochDay, dated in the
+         * exchange's local time zone.
+         */
+        public PriceSeries toSeries(int endEpochDay) {
+            int n = Math.min(timestampCount, closeCount);
+            int[] epochDays = new int[n];
+            double[] values = new double[n];
+            int count = 0;
+            for (int i = 0; i < n; i++) {
+                double close = closes[i];
+                if (timestamps[i] == NULL_TIMESTAMP || !(close > 0) || Double.isInfinite(close)) {
+                    continue;
+                }
+                int day = (int) Math.floorDiv(timestamps[i] + gmtOffset, SECONDS_PER_DAY);
+                if (day > endEpochDay) {
+                    continue;
+                }
+                epochDays[count] = day;
+                values[count] = close;
+                count++;
+            }
+            return PriceSeries.wrap(epochDays, values, count);
+        }
+    }
+    
+    /**
+     * Parses a chart response body; the stream is closed when parsing finishes.
+     */
+    public static Chart parse(InputStream body) throws IOException {
+        Chart chart = new Chart();
+        boolean sawResult = false;
+        
+        try (JsonParser p = jsonFactory.createParser(body)) {
+            expect(p.nextToken(), JsonToken.START_OBJECT);
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                p.nextToken();
+                if (!"chart".equals(field) || p.currentToken() != JsonToken.START_OBJECT) {
+                    p.skipChildren();
+                    continue;
+                }
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String chartField = p.getCurrentName();
+                    JsonToken token = p.nextToken();
+                    if ("result".equals(chartField) && token == JsonToken.START_ARRAY) {
+                        if (p.nextToken() == JsonToken.START_OBJECT) {
+                            parseResult(p, chart);
+                            sawResult = true;
+                        }
+                        skipRestOfArray(p);
+                    } else if ("error".equals(chartField) && token == JsonToken.START_OBJECT) {
+                        throw new IOException("Yahoo Finance error: " + readErrorDescription(p));
+                    } else {
+                        p.skipChildren();
+                    }
+                }
+            }
+        }
+        
+        if (!sawResult) {
+            throw new IOException("No result data in Yahoo Finance response");
+        }
+        return chart;
+    }
+    
+    private static void parseResult(JsonParser p, Chart chart) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken token = p.nextToken();
+            if ("meta".equals(field) && token == JsonToken.START_OBJECT) {
+                parseMeta(p, chart);
+            } else if ("timestamp".equals(field) && token == JsonToken.START_ARRAY) {
+                parseTimestamps(p, chart);
+            } else if ("indicators".equals(field) && token == JsonToken.START_OBJECT) {
+                parseIndicators(p, chart);
+            } else {
+                p.skipChildren();
+            }
+        }
+    }
+    
+    private static void parseMeta(JsonParser p, Chart chart) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken token = p.nextToken();
+            if (token.isNumeric()) {
+                if ("gmtoffset".equals(field)) {
+                    chart.gmtOffset = p.getLongValue();
+                } else if ("regularMarketPrice".equals(field)) {
+                    chart.regularMarketPrice = p.getDoubleValue();
+                } else if ("previousClose".equals(field)) {
+                    chart.previousClose = p.getDoubleValue();
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+    }
+    
+    private static void parseTimestamps(JsonParser p, Chart chart) throws IOException {
+        long[] values = new long[256];
+        int count = 0;
+        JsonToken token;
+        while ((token = p.nextToken()) != JsonToken.END_ARRAY) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            // Null timestamps are kept as placeholders so indices stay aligned with closes
+            values[count++] = token == JsonToken.VALUE_NULL ? NULL_TIMESTAMP : p.getLongValue();
+        }
+        chart.timestamps = values;
+        chart.timestampCount = count;
+    }
+    
+    private static void parseIndicators(JsonParser p, Chart chart) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken token = p.nextToken();
+            if ("quote".equals(field) && token == JsonToken.START_ARRAY) {
+                if (p.nextToken() == JsonToken.START_OBJECT) {
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        String quoteField = p.getCurrentName();
+                        JsonToken quoteToken = p.nextToken();
+                        if ("close".equals(quoteField) && quoteToken == JsonToken.START_ARRAY) {
+                            parseCloses(p, chart);
+                        } else {
+                            p.skipChildren();
+                        }
+                    }
+                }
+                skipRestOfArray(p);
+            } else {
+                p.skipChildren();
+            }
+        }
+    }
+    
+    private static void parseCloses(JsonParser p, Chart chart) throws IOException {
+        // Timestamps precede indicators in Yahoo's layout, so the count is usually known
+        double[] values = new double[Math.max(16, chart.timestampCount)];
+        int count = 0;
+        JsonToken token;
+        while ((token = p.nextToken()) != JsonToken.END_ARRAY) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = token == JsonToken.VALUE_NULL ? Double.NaN : p.getDoubleValue();
+        }
+        chart.closes = values;
+        chart.closeCount = count;
+    }
+    
+    private static String readErrorDescription(JsonParser p) throws IOException {
+        String description = "unknown";
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken token = p.nextToken();
+            if ("description".equals(field) && token == JsonToken.VALUE_STRING) {
+                description = p.getText();
+            } else {
+                p.skipChildren();
+            }
+        }
+        return description;
+    }
+    
+    /**
+     * Skips remaining elements of the current array, leaving the parser on its END_ARRAY.
+     */
+    private static void skipRestOfArray(JsonParser p) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.END_ARRAY) {
+            return;
+        }
+        if (token == JsonToken.END_OBJECT) {
+            token = p.nextToken();
+        }
+        while (token != JsonToken.END_ARRAY && token != null) {
+            p.skipChildren();
+            token = p.nextToken();
+        }
+    }
+    
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Unexpected JSON token " + actual + ", expected " + expected);
+        }
+    }
+}
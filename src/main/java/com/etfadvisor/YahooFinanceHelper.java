@@ -1,21 +1,24 @@
 package com.etfadvisor;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.time.Instant;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
-import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Utility class for fetching stock data from Yahoo Finance.
@@ -23,17 +26,46 @@ import java.util.Map;
  */
 public class YahooFinanceHelper {
     
-    private static final HttpClient httpClient = HttpClient.newHttpClient();
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final int DEFAULT_CONCURRENCY = 8;
+    
+    // Retries, hedging and the shared rate limit for every Yahoo request, from the environment
+    private static volatile HttpFetcher fetcher;
+    private static volatile String baseUrl;
+    
+    static {
+        Config config = new Config();
+        configure(new HttpFetcher(HttpFetcher.Policy.from(config)), config.getYahooBaseUrl());
+    }
+    
+    /**
+     * Routes all requests through {@code fetcher} to {@code baseUrl} (e.g. a local stub server).
+     */
+    static void configure(HttpFetcher fetcher, String baseUrl) {
+        YahooFinanceHelper.fetcher = fetcher;
+        YahooFinanceHelper.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+    
+    static HttpFetcher getFetcher() {
+        return fetcher;
+    }
     
     /**
      * Fetches historical daily price data from Yahoo Finance API.
      * @param ticker Stock ticker symbol (e.g., "VOO", "AAPL")
      * @param daysNeeded Minimum number of trading days needed (default 220)
      * @param endDate End date for data (null = today)
-     * @return List of daily close prices (oldest first, most recent last)
+     * @return Daily close prices with trading dates (oldest first, most recent last)
+     */
+    public static PriceSeries fetchHistoricalData(String ticker, int daysNeeded, LocalDate endDate) 
+            throws IOException, InterruptedException {
+        return fetchHistoricalData(ticker, daysNeeded, endDate, null);
+    }
+    
+    /**
+     * Same as {@link #fetchHistoricalData(String, int, LocalDate)} with a request timeout.
+     * @param timeout Maximum time to wait for each attempt (null = HTTP_REQUEST_TIMEOUT_MS)
      */
-    public static java.util.List<Double> fetchHistoricalData(String ticker, int daysNeeded, LocalDate endDate) 
+    public static PriceSeries fetchHistoricalData(String ticker, int daysNeeded, LocalDate endDate, Duration timeout) 
             throws IOException, InterruptedException {
         if (endDate == null) {
             endDate = LocalDate.now();
@@ -43,108 +75,129 @@ public class YahooFinanceHelper {
         int periodDays = (int) (daysNeeded * 1.5);
         LocalDate startDate = endDate.minusDays(periodDays);
         
-        // Convert to Unix timestamps (seconds)
-        long period1 = startDate.toEpochDay() * 86400L;
-        long period2 = (endDate.toEpochDay() + 1) * 86400L; // Add one day to include end date
-        
-        String url = String.format(
-            "https://query1.finance.yahoo.com/v8/finance/chart/%s?period1=%d&period2=%d&interval=1d&includePrePost=false",
-            ticker, period1, period2
-        );
-        
-        HttpRequest request = HttpRequest.newBuilder()
-            .uri(URI.create(url))
-            .header("User-Agent", "Mozilla/5.0")
-            .GET()
-            .build();
+        return fetchRange(ticker, startDate, endDate, timeout, false, null);
+    }
+    
+    /**
+     * Same as {@link #fetchHistoricalData(String, int, LocalDate, Duration)}, but consults the
+     * price cache first and only requests the dates after the last cached bar.
+     * @param cache Local price store (null = always fetch the full range)
+     */
+    public static PriceSeries fetchHistoricalData(String ticker, int daysNeeded, LocalDate endDate, Duration timeout,
+                                                  PriceCache cache) throws IOException, InterruptedException {
+        return fetchHistoricalData(ticker, daysNeeded, endDate, timeout, cache, null);
+    }
+    
+    /**
+     * Same as {@link #fetchHistoricalData(String, int, LocalDate, Duration, PriceCache)}, recording
+     * fetch and parse time and cache hits into {@code metrics}.
+     * @param metrics Run metrics (null = not recorded)
+     */
+    public static PriceSeries fetchHistoricalData(String ticker, int daysNeeded, LocalDate endDate, Duration timeout,
+                                                  PriceCache cache, RunMetrics metrics)
+            throws IOException, InterruptedException {
+        if (endDate == null) {
+            endDate = LocalDate.now();
+        }
         
-        HttpResponse<String> httpResponse = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int periodDays = (int) (daysNeeded * 1.5);
+        LocalDate startDate = endDate.minusDays(periodDays);
+        if (cache == null) {
+            return fetchRange(ticker, startDate, endDate, timeout, false, metrics);
+        }
+        int startDay = (int) startDate.toEpochDay();
+        int endDay = (int) endDate.toEpochDay();
         
-        if (httpResponse.statusCode() != 200) {
-            throw new IOException("Failed to fetch data for " + ticker + ": HTTP " + httpResponse.statusCode() + 
-                " - " + httpResponse.body());
+        PriceSeries cached = cache.load(ticker);
+        // The range's first bar can be no earlier than its first trading day; against startDay
+        // itself, a range starting on a weekend or holiday would look uncached on every run
+        int firstBarDay = (int) MarketCalendar.firstTradingDayOnOrAfter(startDate).toEpochDay();
+        if (cached.isEmpty() || cached.epochDay(0) > firstBarDay) {
+            // Cache does not reach back far enough: fetch everything and fill it in
+            if (metrics != null) {
+                metrics.increment(RunMetrics.Counter.CACHE_MISSES);
+            }
+            PriceSeries fetched = fetchRange(ticker, startDate, endDate, timeout, false, metrics);
+            cache.merge(ticker, fetched);
+            return fetched;
         }
         
-        String responseBody = httpResponse.body();
-        if (responseBody == null || responseBody.isEmpty()) {
-            throw new IOException("Empty response from Yahoo Finance for " + ticker);
+        // Delta fetch from the last cached bar on. Re-fetching that bar checks the cache against
+        // Yahoo's current split adjustment: a split rescales every earlier close, so on a
+        // mismatch the cached history is fetched again and replaced instead of extended
+        int lastIndex = cached.size() - 1;
+        LocalDate lastCached = cached.date(lastIndex);
+        PriceSeries delta = PriceSeries.empty();
+        if (lastCached.isBefore(endDate)) {
+            PriceSeries fetched = fetchRange(ticker, lastCached, endDate, timeout, true, metrics);
+            if (fetched.isEmpty() || fetched.epochDay(0) != cached.epochDay(lastIndex)
+                    || !sameClose(fetched.close(0), cached.close(lastIndex))) {
+                if (metrics != null) {
+                    metrics.increment(RunMetrics.Counter.CACHE_REWRITES);
+                }
+                PriceSeries full = fetchRange(ticker, startDate, endDate, timeout, false, metrics);
+                cache.replace(ticker, full);
+                return full;
+            }
+            delta = fetched.between(cached.epochDay(lastIndex) + 1, Integer.MAX_VALUE);
+            cache.append(ticker, delta);
+        }
+        if (metrics != null) {
+            metrics.increment(RunMetrics.Counter.CACHE_HITS);
         }
         
-        // Parse JSON response to extract close prices
-        return parseHistoricalResponse(responseBody, endDate);
+        return PriceSeries.concat(cached.between(startDay, endDay), delta);
     }
     
     /**
-     * Parses Yahoo Finance historical data response to extract close prices using Jackson.
+     * Equal to within 0.01%: Yahoo re-serves cached bars unchanged, while a split or a switch
+     * of price basis moves them by far more.
      */
-    private static List<Double> parseHistoricalResponse(String responseBody, LocalDate endDate) throws IOException {
-        List<Double> closes = new ArrayList<>();
+    static boolean sameClose(double cached, double fetched) {
+        return Math.abs(cached - fetched) <= 1e-4 * Math.abs(fetched);
+    }
+    
+    /**
+     * Fetches daily closes dated within [startDate, endDate].
+     * @param allowEmpty Return an empty series instead of failing when the range has no bars
+     * @param metrics Run metrics (null = not recorded)
+     */
+    private static PriceSeries fetchRange(String ticker, LocalDate startDate, LocalDate endDate, Duration timeout,
+                                          boolean allowEmpty, RunMetrics metrics)
+            throws IOException, InterruptedException {
+        // Convert to Unix timestamps (seconds)
+        long period1 = startDate.toEpochDay() * 86400L;
+        long period2 = (endDate.toEpochDay() + 1) * 86400L; // Add one day to include end date
         
-        try {
-            JsonNode rootNode = objectMapper.readTree(responseBody);
-            JsonNode chartNode = rootNode.path("chart");
-            JsonNode resultNode = chartNode.path("result");
-            
-            if (!resultNode.isArray() || resultNode.size() == 0) {
-                throw new IOException("No result data in Yahoo Finance response");
-            }
-            
-            JsonNode firstResult = resultNode.get(0);
-            JsonNode indicators = firstResult.path("indicators");
-            JsonNode quote = indicators.path("quote");
-            
-            if (!quote.isArray() || quote.size() == 0) {
-                throw new IOException("No quote data in Yahoo Finance response");
-            }
-            
-            JsonNode timestampsNode = firstResult.path("timestamp");
-            JsonNode closesNode = quote.get(0).path("close");
-            
-            if (!timestampsNode.isArray() || !closesNode.isArray()) {
-                throw new IOException("Invalid data format: timestamps or closes not arrays");
+        String url = String.format(
+            "%s/v8/finance/chart/%s?period1=%d&period2=%d&interval=1d&includePrePost=false",
+            baseUrl, ticker, period1, period2
+        );
+        
+        // Retried on errors, 429 and 5xx; a non-200 here is the final answer
+        long start = System.nanoTime();
+        HttpResponse<InputStream> httpResponse = fetcher.send(chartRequest(url, timeout));
+        if (metrics != null) {
+            metrics.record(RunMetrics.Stage.FETCH, start);
+            start = System.nanoTime();
+        }
+        
+        try (InputStream body = openBody(httpResponse)) {
+            if (httpResponse.statusCode() != 200) {
+                throw new IOException("Failed to fetch data for " + ticker + ": HTTP " + httpResponse.statusCode() + 
+                    " - " + readErrorSnippet(body));
             }
             
-            // Match timestamps with closes and filter by endDate
-            int minLength = Math.min(timestampsNode.size(), closesNode.size());
-            for (int i = 0; i < minLength; i++) {
-                JsonNode timestampNode = timestampsNode.get(i);
-                JsonNode closeNode = closesNode.get(i);
-                
-                if (timestampNode.isNull() || closeNode.isNull()) {
-                    continue;
-                }
-                
-                try {
-                    long timestamp = timestampNode.asLong();
-                    LocalDate date = LocalDate.ofInstant(Instant.ofEpochSecond(timestamp), ZoneId.systemDefault());
-                    
-                    // Only include data up to endDate
-                    if (!date.isAfter(endDate)) {
-                        double close = closeNode.asDouble();
-                        if (close > 0 && !Double.isNaN(close) && !Double.isInfinite(close)) {
-                            closes.add(close);
-                        }
-                    }
-                } catch (Exception e) {
-                    // Skip invalid entries
-                    continue;
-                }
+            // Stream-parse the response straight into primitive arrays
+            PriceSeries series = YahooChartParser.parse(body).toSeries((int) endDate.toEpochDay());
+            if (metrics != null) {
+                metrics.record(RunMetrics.Stage.PARSE, start);
             }
-            
-            if (closes.isEmpty()) {
-                throw new IOException("No valid price data found in response");
+            if (series.isEmpty() && !allowEmpty) {
+                throw new IOException("No valid price data found in response for " + ticker);
             }
-            
-        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
-            throw new IOException("Failed to parse JSON response: " + e.getMessage() + 
-                " (Response length: " + (responseBody != null ? responseBody.length() : 0) + ")", e);
-        } catch (IOException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new IOException("Failed to parse historical data: " + e.getMessage(), e);
+            return series;
         }
-        
-        return closes;
     }
     
     /**
@@ -153,62 +206,64 @@ public class YahooFinanceHelper {
      * @return Map containing stock data (price, change, etc.)
      */
     public static Map<String, Object> fetchStockData(String ticker) throws IOException, InterruptedException {
-        // Yahoo Finance API endpoint for quote data
-        String url = "https://query1.finance.yahoo.com/v8/finance/chart/" + ticker + "?interval=1d&range=1d";
-        
-        HttpRequest request = HttpRequest.newBuilder()
-            .uri(URI.create(url))
-            .header("User-Agent", "Mozilla/5.0")
-            .GET()
-            .build();
-        
-        HttpResponse<String> httpResponse = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        
-        if (httpResponse.statusCode() != 200) {
-            throw new IOException("Failed to fetch data: HTTP " + httpResponse.statusCode());
+        try {
+            return fetchStockDataAsync(ticker, null).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to fetch data: " + cause.getMessage(), cause);
         }
+    }
+    
+    /**
+     * Non-blocking variant of {@link #fetchStockData(String)} on the shared HttpFetcher.
+     * @param timeout Maximum time to wait for each attempt (null = HTTP_REQUEST_TIMEOUT_MS)
+     */
+    public static CompletableFuture<Map<String, Object>> fetchStockDataAsync(String ticker, Duration timeout) {
+        // Yahoo Finance API endpoint for quote data
+        String url = baseUrl + "/v8/finance/chart/" + ticker + "?interval=1d&range=1d";
         
-        // Parse JSON response
-        String responseBody = httpResponse.body();
-        Map<String, Object> stockData = parseYahooFinanceResponse(responseBody);
-        stockData.put("date", LocalDate.now().format(DateTimeFormatter.ISO_DATE));
-        
-        return stockData;
+        return fetcher.sendAsync(chartRequest(url, timeout))
+            .thenApply(httpResponse -> {
+                try (InputStream body = openBody(httpResponse)) {
+                    if (httpResponse.statusCode() != 200) {
+                        throw new IOException("Failed to fetch data: HTTP " + httpResponse.statusCode());
+                    }
+                    
+                    // Parse JSON response
+                    Map<String, Object> stockData = parseQuote(body);
+                    stockData.put("date", LocalDate.now().format(DateTimeFormatter.ISO_DATE));
+                    return stockData;
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            });
     }
     
     /**
      * Parses Yahoo Finance API response to extract stock data
-     * @param responseBody JSON response string from Yahoo Finance
+     * @param body JSON response stream from Yahoo Finance
      * @return Map containing parsed stock data
      */
-    private static Map<String, Object> parseYahooFinanceResponse(String responseBody) {
+    private static Map<String, Object> parseQuote(InputStream body) {
         Map<String, Object> stockData = new HashMap<>();
         
         try {
-            // Find regularMarketPrice in the JSON
-            int priceIndex = responseBody.indexOf("\"regularMarketPrice\":");
-            if (priceIndex != -1) {
-                int start = responseBody.indexOf(":", priceIndex) + 1;
-                int end = responseBody.indexOf(",", start);
-                if (end == -1) end = responseBody.indexOf("}", start);
-                String priceStr = responseBody.substring(start, end).trim();
-                double price = Double.parseDouble(priceStr);
+            YahooChartParser.Chart chart = YahooChartParser.parse(body);
+            
+            double price = chart.getRegularMarketPrice();
+            if (!Double.isNaN(price)) {
                 stockData.put("price", price);
             }
             
-            // Find previousClose
-            int prevCloseIndex = responseBody.indexOf("\"previousClose\":");
-            if (prevCloseIndex != -1) {
-                int start = responseBody.indexOf(":", prevCloseIndex) + 1;
-                int end = responseBody.indexOf(",", start);
-                if (end == -1) end = responseBody.indexOf("}", start);
-                String prevCloseStr = responseBody.substring(start, end).trim();
-                double prevClose = Double.parseDouble(prevCloseStr);
+            double prevClose = chart.getPreviousClose();
+            if (!Double.isNaN(prevClose)) {
                 stockData.put("previousClose", prevClose);
                 
                 // Calculate change
-                if (stockData.containsKey("price")) {
-                    double price = (Double) stockData.get("price");
+                if (!Double.isNaN(price)) {
                     double change = price - prevClose;
                     double changePercent = (change / prevClose) * 100;
                     stockData.put("change", change);
@@ -217,30 +272,84 @@ public class YahooFinanceHelper {
             }
             
         } catch (Exception e) {
-            // If parsing fails, return raw response
-            stockData.put("rawResponse", responseBody);
             stockData.put("parseError", e.getMessage());
         }
         
         return stockData;
     }
     
+    /**
+     * Response body stream, transparently gunzipped when the server honored Accept-Encoding.
+     */
+    private static InputStream openBody(HttpResponse<InputStream> response) throws IOException {
+        InputStream body = response.body();
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("");
+        return "gzip".equalsIgnoreCase(encoding) ? new GZIPInputStream(body, 8192) : body;
+    }
+    
+    private static HttpRequest chartRequest(String url, Duration timeout) {
+        return fetcher.newRequest(URI.create(url), timeout)
+            .header("User-Agent", "Mozilla/5.0")
+            .header("Accept-Encoding", "gzip")
+            .build();
+    }
+    
+    /**
+     * Creates the shared HttpFetcher and builds (but does not send) a chart request, so the
+     * java.net.http classes are loaded before the first real fetch.
+     */
+    static void prime(Duration timeout) {
+        chartRequest(baseUrl + "/v8/finance/chart/VOO?interval=1d&range=1d", timeout);
+    }
+    
+    private static String readErrorSnippet(InputStream body) throws IOException {
+        return new String(body.readNBytes(512), StandardCharsets.UTF_8);
+    }
+    
     /**
      * Fetches stock data for multiple tickers
      * @param tickers Array of ticker symbols
      * @return Map with ticker as key and stock data as value
      */
     public static Map<String, Map<String, Object>> fetchMultipleStocks(String[] tickers) {
-        Map<String, Map<String, Object>> results = new HashMap<>();
+        return fetchMultipleStocks(tickers, DEFAULT_CONCURRENCY, null);
+    }
+    
+    /**
+     * Fetches stock data for multiple tickers concurrently.
+     * @param tickers Array of ticker symbols
+     * @param maxConcurrency Maximum number of requests in flight at once
+     * @param timeout Per-ticker request timeout (null = no timeout)
+     * @return Map with ticker as key and stock data (or an "error" entry) as value, in input order
+     */
+    public static Map<String, Map<String, Object>> fetchMultipleStocks(String[] tickers, int maxConcurrency, Duration timeout) {
+        Semaphore inFlight = new Semaphore(Math.max(1, maxConcurrency));
+        List<CompletableFuture<Map<String, Object>>> futures = new ArrayList<>(tickers.length);
         
-        for (String ticker : tickers) {
+        try {
+            for (String ticker : tickers) {
+                inFlight.acquire();
+                futures.add(fetchStockDataAsync(ticker, timeout).whenComplete((data, error) -> inFlight.release()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        Map<String, Map<String, Object>> results = new LinkedHashMap<>();
+        for (int i = 0; i < tickers.length; i++) {
             try {
-                Map<String, Object> data = fetchStockData(ticker);
-                results.put(ticker, data);
+                if (i >= futures.size()) {
+                    throw new InterruptedException("Interrupted before request was sent");
+                }
+                results.put(tickers[i], futures.get(i).get());
             } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
                 Map<String, Object> errorData = new HashMap<>();
-                errorData.put("error", e.getMessage());
-                results.put(ticker, errorData);
+                errorData.put("error", cause.getMessage());
+                results.put(tickers[i], errorData);
             }
         }
         
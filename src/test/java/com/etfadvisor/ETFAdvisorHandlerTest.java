@@ -0,0 +1,51 @@
+package com.etfadvisor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * scoreRecentDays with a warm score cache against a cold run over the same history.
+ */
+class ETFAdvisorHandlerTest {
+    
+    @Test
+    void cachedDaysMatchAnUncachedRun() {
+        Config config = new Config();
+        BuyScoreCalculator calculator = new BuyScoreCalculator(config);
+        PriceSeries history = randomWalk(600, 11);
+        ScoreCache scores = new ScoreCache(10_000, null);
+        
+        // One new bar a day and, as YahooFinanceHelper trims the cache to the requested range,
+        // one old bar dropped: every run after the first misses only the newest day
+        int length = 240;
+        for (int start = 0; start + length <= history.size(); start++) {
+            PriceSeries upToDay = history.window(start, length);
+            SignalBatch cached = ETFAdvisorHandler.scoreRecentDays("X", upToDay, config, calculator, scores, null, null);
+            SignalBatch cold = ETFAdvisorHandler.scoreRecentDays("X", upToDay, config, calculator, null);
+            assertEquals(cold.size(), cached.size());
+            for (int i = 0; i < cold.size(); i++) {
+                assertEquals(cold.epochDay(i), cached.epochDay(i));
+                assertEquals(cold.sma200(i), cached.sma200(i));
+                assertEquals(cold.drawdown6m(i), cached.drawdown6m(i));
+                assertEquals(cold.zscore(i), cached.zscore(i));
+                assertEquals(cold.buyScore(i), cached.buyScore(i));
+            }
+        }
+    }
+    
+    private static PriceSeries randomWalk(int days, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] epochDays = new int[days];
+        double[] closes = new double[days];
+        double close = 100;
+        for (int i = 0; i < days; i++) {
+            close *= Math.exp(random.nextGaussian() * 0.015);
+            epochDays[i] = 18_000 + i;
+            closes[i] = close;
+        }
+        return PriceSeries.of(epochDays, closes);
+    }
+}
@@ -0,0 +1,182 @@
+package com.etfadvisor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HttpFetcher's retries, Retry-After, hedging, rate limit and cancellation against scripted
+ * YahooStubServer replies.
+ */
+class HttpFetcherTest {
+    
+    private YahooStubServer stub;
+    
+    @BeforeEach
+    void startStub() throws Exception {
+        // No random latency or errors: every reply that matters is scripted
+        stub = new YahooStubServer(0, 0, 0, 0, 0, 0, 1, 42);
+        stub.start();
+    }
+    
+    @AfterEach
+    void stopStub() {
+        stub.stop();
+    }
+    
+    @Test
+    void retriesServerErrors() throws Exception {
+        stub.enqueue(503, 0);
+        stub.enqueue(500, 0);
+        HttpFetcher fetcher = new HttpFetcher(policy(4, null, 0, 1));
+        
+        assertEquals(200, status(fetcher.send(request(fetcher))));
+        assertEquals(3, fetcher.getAttempts());
+        assertEquals(2, fetcher.getRetries());
+        assertEquals(3, stub.getRequests());
+    }
+    
+    @Test
+    void returnsTheLastErrorAfterMaxAttempts() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            stub.enqueue(503, 0);
+        }
+        HttpFetcher fetcher = new HttpFetcher(policy(3, null, 0, 1));
+        
+        assertEquals(503, status(fetcher.send(request(fetcher))));
+        assertEquals(3, stub.getRequests());
+    }
+    
+    @Test
+    void waitsRetryAfterOnThrottling() throws Exception {
+        stub.enqueue(429, 0);
+        HttpFetcher fetcher = new HttpFetcher(policy(3, null, 0, 1));
+        
+        long start = System.nanoTime();
+        assertEquals(200, status(fetcher.send(request(fetcher))));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        // The stub asks for 1 s; the policy's own backoff is 1 ms
+        assertTrue(elapsedMs >= 1000, "waited " + elapsedMs + " ms");
+        assertEquals(1, fetcher.getThrottled());
+        assertEquals(1, fetcher.getRetries());
+    }
+    
+    @Test
+    void hedgeWinsAndTheSlowRequestIsAborted() throws Exception {
+        stub.enqueue(200, 3000);
+        stub.enqueue(200, 0);
+        HttpFetcher fetcher = new HttpFetcher(policy(1, Duration.ofMillis(100), 0, 1));
+        
+        long start = System.nanoTime();
+        assertEquals(200, status(fetcher.send(request(fetcher))));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(elapsedMs < 2000, "took " + elapsedMs + " ms");
+        assertEquals(2, fetcher.getAttempts());
+        assertEquals(1, fetcher.getHedges());
+        assertEquals(1, fetcher.getAborted());
+    }
+    
+    @Test
+    void fastFirstRequestSendsNoHedge() throws Exception {
+        HttpFetcher fetcher = new HttpFetcher(policy(1, Duration.ofMillis(500), 0, 1));
+        
+        assertEquals(200, status(fetcher.send(request(fetcher))));
+        Thread.sleep(700);
+        assertEquals(1, fetcher.getAttempts());
+        assertEquals(0, fetcher.getHedges());
+        assertEquals(1, stub.getRequests());
+    }
+    
+    @Test
+    void pacesRequestsToTheRateLimit() throws Exception {
+        // Burst 2 at 20/s: 12 requests need 10 more tokens, i.e. at least 500 ms
+        HttpFetcher fetcher = new HttpFetcher(policy(1, null, 20, 2));
+        List<CompletableFuture<HttpResponse<InputStream>>> responses = new ArrayList<>();
+        
+        long start = System.nanoTime();
+        for (int i = 0; i < 12; i++) {
+            responses.add(fetcher.sendAsync(request(fetcher)));
+        }
+        for (CompletableFuture<HttpResponse<InputStream>> response : responses) {
+            assertEquals(200, status(response.get()));
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(elapsedMs >= 450 && elapsedMs < 2000, "took " + elapsedMs + " ms");
+        assertEquals(12, stub.getRequests());
+    }
+    
+    @Test
+    void cancellingStopsPendingRetries() throws Exception {
+        // Retry-After holds the retry back 1 s, whatever the jittered backoff
+        stub.enqueue(429, 0);
+        HttpFetcher fetcher = new HttpFetcher(policy(4, null, 0, 1));
+        
+        CompletableFuture<HttpResponse<InputStream>> response = fetcher.sendAsync(request(fetcher));
+        while (stub.getRequests() < 1 || fetcher.getRetries() < 1) {
+            Thread.sleep(5);
+        }
+        response.cancel(true);
+        Thread.sleep(1500);
+        assertEquals(1, fetcher.getAttempts());
+        assertEquals(1, stub.getRequests());
+    }
+    
+    @Test
+    void interruptingSendAbortsTheRequestInFlight() throws Exception {
+        stub.enqueue(200, 3000);
+        stub.enqueue(200, 3000);
+        HttpFetcher fetcher = new HttpFetcher(policy(3, Duration.ofMillis(1000), 0, 1));
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        
+        Thread caller = new Thread(() -> {
+            try {
+                fetcher.send(request(fetcher)).body().close();
+            } catch (Exception e) {
+                thrown.set(e);
+            }
+        });
+        caller.start();
+        while (stub.getRequests() < 1) {
+            Thread.sleep(5);
+        }
+        caller.interrupt();
+        caller.join(1000);
+        
+        assertInstanceOf(InterruptedException.class, thrown.get());
+        assertEquals(1, fetcher.getAborted());
+        // Past the hedge delay: cancelled calls send no hedge
+        Thread.sleep(1500);
+        assertEquals(1, fetcher.getAttempts());
+        assertEquals(1, stub.getRequests());
+    }
+    
+    private HttpRequest request(HttpFetcher fetcher) {
+        return fetcher.newRequest(URI.create(stub.getBaseUrl() + "/v8/finance/chart/SPY"), null).build();
+    }
+    
+    private static HttpFetcher.Policy policy(int maxAttempts, Duration hedgeDelay, double ratePerSecond, long backoffMs) {
+        return new HttpFetcher.Policy(Duration.ofSeconds(2), Duration.ofSeconds(10), maxAttempts,
+            Duration.ofMillis(backoffMs), Duration.ofMillis(backoffMs), hedgeDelay, ratePerSecond, 2);
+    }
+    
+    private static int status(HttpResponse<InputStream> response) throws Exception {
+        try (InputStream body = response.body()) {
+            body.readAllBytes();
+        }
+        return response.statusCode();
+    }
+}
@@ -0,0 +1,66 @@
+package com.etfadvisor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * IndicatorKernels against IndicatorCalculator.calculateAll on every prefix of a series.
+ */
+class IndicatorKernelsTest {
+    
+    @Test
+    void vectorKernelIsLoadedUnderTheTestJvmFlags() {
+        // surefire adds jdk.incubator.vector, so both kernels below are exercised
+        assertTrue(IndicatorKernels.isVectorized());
+    }
+    
+    @Test
+    void scalarKernelMatchesCalculateAllOnEveryDay() {
+        assertMatchesCalculateAll(IndicatorKernels.scalar());
+    }
+    
+    @Test
+    void defaultKernelMatchesCalculateAllOnEveryDay() {
+        assertMatchesCalculateAll(IndicatorKernels.defaultKernel());
+    }
+    
+    private static void assertMatchesCalculateAll(IndicatorKernels.Kernel kernel) {
+        Config base = new Config();
+        int[][] windows = {{30, 126, 200}, {1, 1, 1}, {7, 13, 3}, {64, 63, 65}};
+        for (int[] w : windows) {
+            Config config = base.withParameters(w[0], w[1], w[2], base.getDrawdownMax(), base.getZscoreMax(),
+                base.getTierStrongBuy(), base.getTierBuy(), base.getTierDcaOnly());
+            IndicatorCalculator calculator = new IndicatorCalculator(config);
+            // Offset window into a longer array, as PriceSeries.between hands out
+            PriceSeries series = randomWalk(700, w[0]).window(37, 600);
+            IndicatorKernels.Columns columns = IndicatorKernels.compute(kernel, series, config);
+            for (int i = 0; i < series.size(); i++) {
+                IndicatorCalculator.Indicators expected = calculator.calculateAll(series.window(0, i + 1));
+                double sma = expected.getSma200() != null ? expected.getSma200() : Double.NaN;
+                assertEquals(Double.doubleToRawLongBits(sma), Double.doubleToRawLongBits(columns.sma(i)), "sma " + i);
+                assertEquals(expected.getDrawdown6m(), columns.drawdown(i), "drawdown " + i);
+                assertEquals(expected.getZscore(), columns.zscore(i), "zscore " + i);
+            }
+        }
+    }
+    
+    private static PriceSeries randomWalk(int days, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] epochDays = new int[days];
+        double[] closes = new double[days];
+        double close = 100;
+        for (int i = 0; i < days; i++) {
+            // Repeated closes now and then, for flat windows (zero std)
+            if (random.nextInt(20) != 0) {
+                close *= Math.exp(random.nextGaussian() * 0.015);
+            }
+            epochDays[i] = 18_000 + i;
+            closes[i] = close;
+        }
+        return PriceSeries.of(epochDays, closes);
+    }
+}
@@ -0,0 +1,39 @@
+package com.etfadvisor;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * MarketCalendar against the NYSE's published holiday dates.
+ */
+class MarketCalendarTest {
+    
+    @Test
+    void matchesPublishedHolidays() {
+        assertEquals(dates("2024-01-01", "2024-01-15", "2024-02-19", "2024-03-29", "2024-05-27", "2024-06-19",
+            "2024-07-04", "2024-09-02", "2024-11-28", "2024-12-25"), MarketCalendar.holidays(2024));
+        assertEquals(dates("2021-01-01", "2021-01-18", "2021-02-15", "2021-04-02", "2021-05-31",
+            "2021-07-05", "2021-09-06", "2021-11-25", "2021-12-24"), MarketCalendar.holidays(2021));
+        // New Year's Day 2022 is a Saturday: not observed; Juneteenth on a Sunday moves to Monday
+        assertEquals(dates("2022-01-17", "2022-02-21", "2022-04-15", "2022-05-30", "2022-06-20",
+            "2022-07-04", "2022-09-05", "2022-11-24", "2022-12-26"), MarketCalendar.holidays(2022));
+    }
+    
+    @Test
+    void firstTradingDaySkipsWeekendsAndHolidays() {
+        assertEquals(LocalDate.parse("2024-03-28"), MarketCalendar.firstTradingDayOnOrAfter(LocalDate.parse("2024-03-28")));
+        assertEquals(LocalDate.parse("2024-04-01"), MarketCalendar.firstTradingDayOnOrAfter(LocalDate.parse("2024-03-29")));
+        assertEquals(LocalDate.parse("2024-04-01"), MarketCalendar.firstTradingDayOnOrAfter(LocalDate.parse("2024-03-30")));
+        assertEquals(LocalDate.parse("2022-01-03"), MarketCalendar.firstTradingDayOnOrAfter(LocalDate.parse("2022-01-01")));
+    }
+    
+    private static List<LocalDate> dates(String... days) {
+        return Arrays.stream(days).map(LocalDate::parse).collect(Collectors.toList());
+    }
+}
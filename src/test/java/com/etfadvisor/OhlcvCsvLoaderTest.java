@@ -0,0 +1,177 @@
+package com.etfadvisor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * OhlcvCsvLoader's hand-rolled number parser and delimiter scan against the JDK and a plain loop.
+ */
+class OhlcvCsvLoaderTest {
+    
+    private static final String[] EDGE_NUMBERS = {
+        "0", "-0", "0.0", "-0.0", "+1.5", ".5", "5.", "00012.5000", "1e0", "1E+2", "1e-2",
+        "125.97444915771484", "315.57086181640625", "143301900", "9007199254740993", "9007199254740992.5",
+        "1.7976931348623157e308", "1.7976931348623158e308", "1e309", "2.2250738585072014E-308",
+        "2.2250738585072011e-308", "4.9e-324", "2.4703282292062328e-324", "1e-400",
+        "9999999999999999999", "18446744073709551615", "99999999999999999999.5",
+        "1.00000000000000011102230246251565404236316680908203125",
+        "0.1", "0.2", "0.3", "123456789012345678e-10", "7.2057594037927933e16", "1e22", "1e23",
+        "NaN", "nan", "Infinity", "-Infinity", "inf", "-inf"
+    };
+    
+    @Test
+    void parseDoubleMatchesJdkOnEdgeCases() {
+        for (String text : EDGE_NUMBERS) {
+            assertParsesLikeJdk(text);
+        }
+    }
+    
+    @Test
+    void parseDoubleMatchesJdkOnRandomDoubles() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 100_000; i++) {
+            double value = Double.longBitsToDouble(random.nextLong());
+            if (Double.isFinite(value)) {
+                assertParsesLikeJdk(Double.toString(value));
+            }
+        }
+    }
+    
+    @Test
+    void parseDoubleMatchesJdkOnRandomDecimals() {
+        SplittableRandom random = new SplittableRandom(7);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            text.setLength(0);
+            if (random.nextInt(4) == 0) {
+                text.append(random.nextBoolean() ? '-' : '+');
+            }
+            int digits = 1 + random.nextInt(24);
+            int point = random.nextInt(digits + 1);
+            for (int d = 0; d < digits; d++) {
+                if (d == point) {
+                    text.append('.');
+                }
+                text.append((char) ('0' + random.nextInt(10)));
+            }
+            if (random.nextInt(3) == 0) {
+                text.append(random.nextBoolean() ? 'e' : 'E');
+                text.append(random.nextBoolean() ? "-" : "");
+                text.append(random.nextInt(random.nextBoolean() ? 30 : 350));
+            }
+            assertParsesLikeJdk(text.toString());
+        }
+    }
+    
+    @Test
+    void eiselLemireIsCorrectlyRoundedWhenItDecides() {
+        SplittableRandom random = new SplittableRandom(99);
+        for (int i = 0; i < 50_000; i++) {
+            long mantissa = random.nextLong() >>> random.nextInt(64);
+            if (mantissa == 0) {
+                continue;
+            }
+            int exponent = random.nextInt(-342, 309);
+            long bits = OhlcvCsvLoader.eiselLemire(mantissa, exponent);
+            if (bits == -1) {
+                // Left to the slow path
+                continue;
+            }
+            double expected = new BigDecimal(new BigInteger(Long.toUnsignedString(mantissa)))
+                .scaleByPowerOfTen(exponent).doubleValue();
+            assertEquals(Double.doubleToRawLongBits(expected), bits,
+                () -> Long.toUnsignedString(mantissa) + "e" + exponent);
+        }
+    }
+    
+    @Test
+    void fieldEndFindsTheFirstDelimiterAtEveryOffset() {
+        byte[] fillers = {'0', '9', '.', '-', '+', ' ', 0x0B, 0x2B, 0x2D, 0x0C, 0x7F, (byte) 0x80, (byte) 0xAC, (byte) 0xFF};
+        byte[] delimiters = {',', '\n', '\r'};
+        for (byte filler : fillers) {
+            for (byte delimiter : delimiters) {
+                for (int length = 0; length <= 24; length++) {
+                    for (int at = 0; at <= length; at++) {
+                        byte[] b = new byte[length];
+                        Arrays.fill(b, filler);
+                        if (at < length) {
+                            b[at] = delimiter;
+                        }
+                        for (int pos = 0; pos <= length; pos++) {
+                            assertEquals(naiveFieldEnd(b, pos, length), OhlcvCsvLoader.fieldEnd(b, pos, length));
+                        }
+                    }
+                }
+            }
+        }
+    }
+    
+    @Test
+    void fieldEndMatchesPlainScanOnRandomBuffers() {
+        byte[] alphabet = {',', '\n', '\r', '0', '5', '.', '-', (byte) 0x80, (byte) 0xFF, 0x2B, 0x0B, 0x0C};
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 100_000; i++) {
+            byte[] b = new byte[random.nextInt(48)];
+            // Mostly non-delimiters, so runs longer than one 8-byte word are common
+            for (int j = 0; j < b.length; j++) {
+                b[j] = random.nextInt(8) == 0 ? alphabet[random.nextInt(3)] : alphabet[3 + random.nextInt(alphabet.length - 3)];
+            }
+            int pos = random.nextInt(b.length + 1);
+            int limit = pos + random.nextInt(b.length - pos + 1);
+            assertEquals(naiveFieldEnd(b, pos, limit), OhlcvCsvLoader.fieldEnd(b, pos, limit));
+        }
+    }
+    
+    @Test
+    void loadsCrlfFileWithBareDatesAndEmptyCloses(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("X_5y.csv");
+        Files.write(file, ("Date,Open,High,Low,Close,Volume\r\n"
+            + "2021-01-04 00:00:00-05:00,1,2,0.5,1.25,100\r\n"
+            + "2021-01-05,1,2,0.5,,200\r\n"
+            + "2021-01-06,1,2,0.5,125.97444915771484,300").getBytes(StandardCharsets.US_ASCII));
+            
+        OhlcvCsvLoader.Bars bars = OhlcvCsvLoader.load(file);
+        assertEquals(3, bars.size());
+        assertEquals(300, bars.volumes()[2]);
+        PriceSeries closes = bars.closes();
+        assertEquals(2, closes.size());
+        assertEquals(18631, closes.epochDay(0));
+        assertEquals(1.25, closes.close(0));
+        assertEquals(125.97444915771484, closes.close(1));
+    }
+    
+    private static void assertParsesLikeJdk(String text) {
+        byte[] b = (" " + text + ",").getBytes(StandardCharsets.US_ASCII);
+        double expected = jdkParse(text);
+        double actual = OhlcvCsvLoader.parseDouble(b, 1, b.length - 1);
+        assertEquals(Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(actual), text);
+    }
+    
+    private static double jdkParse(String text) {
+        switch (text.toLowerCase()) {
+            case "nan": return Double.NaN;
+            case "inf": return Double.POSITIVE_INFINITY;
+            case "-inf": return Double.NEGATIVE_INFINITY;
+            default: return Double.parseDouble(text);
+        }
+    }
+    
+    private static int naiveFieldEnd(byte[] b, int pos, int limit) {
+        int i = pos;
+        while (i < limit && b[i] != ',' && b[i] != '\n' && b[i] != '\r') {
+            i++;
+        }
+        return i;
+    }
+}
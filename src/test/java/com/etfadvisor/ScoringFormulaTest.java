@@ -0,0 +1,136 @@
+package com.etfadvisor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * ScoringFormula's parser errors and limits, and the compiled default against the hand-written score.
+ */
+class ScoringFormulaTest {
+    
+    @Test
+    void rejectsMalformedFormulas() {
+        String[] bad = {
+            "", "1 +", "(1", "1)", "1 2", "close >", "x", "foo(1)", "min(1)", "abs(1, 2)",
+            "close = 1; close", "a = 1; a = 2; a", "a = 1 a", "1e", "1..2", "close | sma", "close & sma",
+            "trend = 1; ; trend", "? 1 : 2", "1 ? 2", "#"
+        };
+        for (String source : bad) {
+            assertThrows(IllegalArgumentException.class, () -> ScoringFormula.compile(source), source);
+        }
+    }
+    
+    @Test
+    void rejectsTooManyBindings() {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i <= 100; i++) {
+            source.append("b").append(i).append(" = ").append(i).append("; ");
+        }
+        source.append("b0");
+        assertThrows(IllegalArgumentException.class, () -> ScoringFormula.compile(source.toString()));
+    }
+    
+    @Test
+    void deepNestingIsAnErrorNotAStackOverflow() {
+        String[] deep = {
+            "(".repeat(3000) + "close" + ")".repeat(3000),
+            "-".repeat(3000) + "close",
+            "!".repeat(3000) + "close",
+            "abs(".repeat(3000) + "close" + ")".repeat(3000),
+            "close ? ".repeat(3000) + "1" + " : 0".repeat(3000),
+            "close" + " + sma".repeat(3000),
+            "close" + " * sma".repeat(3000),
+            "close" + " && sma".repeat(3000),
+            "a = 1; " + "a + ".repeat(3000) + "close"
+        };
+        for (String source : deep) {
+            assertThrows(IllegalArgumentException.class, () -> ScoringFormula.compile(source),
+                () -> source.substring(0, 20));
+        }
+    }
+    
+    @Test
+    void moderateNestingStillCompiles() {
+        assertEquals(1.0, evaluate("(".repeat(100) + "1" + ")".repeat(100)));
+        assertEquals(1.0, evaluate("-".repeat(100) + "1"));
+        assertEquals(101.0, evaluate("1" + " + 1".repeat(100)));
+        assertEquals(101.0, evaluate("close" + " + close".repeat(100)));
+    }
+    
+    @Test
+    void foldsConstantsAndEvaluatesOperators() {
+        assertEquals(7.0, evaluate("1 + 2 * 3"));
+        assertEquals(9.0, evaluate("(1 + 2) * 3"));
+        assertEquals(-1.0, evaluate("-close"));
+        assertEquals(1.0, evaluate("close >= 1 && !(sma > 0) || 0"));
+        assertEquals(0.0, evaluate("isnan(close)"));
+        assertEquals(2.0, evaluate("clamp(5, 0, 2)"));
+        assertEquals(8.0, evaluate("pow(2, 3)"));
+        assertEquals(3.0, evaluate("a = 1; b = a + 1; a + b"));
+        assertEquals(2.0, evaluate("close < 0 ? 1 : close > 0 ? 2 : 3"));
+    }
+    
+    @Test
+    void defaultMatchesHandWrittenScore() {
+        ScoringFormula formula = ScoringFormula.compile(ScoringFormula.DEFAULT);
+        SplittableRandom random = new SplittableRandom(23);
+        double[] components = new double[ScoringFormula.COMPONENTS.size()];
+        for (int i = 0; i < 100_000; i++) {
+            double close = random.nextDouble(10, 500);
+            double sma = random.nextInt(10) == 0 ? Double.NaN : random.nextDouble(10, 500);
+            double drawdown = random.nextDouble(-0.6, 0);
+            double zscore = random.nextDouble(-4, 4);
+            double drawdownMax = random.nextDouble(0.05, 0.5);
+            double zscoreMax = random.nextDouble(0.5, 3);
+            
+            double trend = trendScore(close, sma);
+            double drawdownScore = BuyScoreCalculator.dipScore(drawdown, drawdownMax);
+            double zscoreScore = BuyScoreCalculator.dipScore(zscore, zscoreMax);
+            int expected = combine(trend, drawdownScore, zscoreScore);
+            
+            double value = formula.evaluate(close, sma, drawdown, zscore, drawdownMax, zscoreMax, components);
+            assertEquals(expected, ScoringFormula.toScore(value));
+            assertEquals(trend, components[0]);
+            assertEquals(drawdownScore, components[1]);
+            assertEquals(zscoreScore, components[2]);
+        }
+    }
+    
+    @Test
+    void calculatorScoresWithTheDefaultFormula() {
+        Config config = new Config();
+        BuyScoreCalculator calculator = new BuyScoreCalculator(config);
+        SplittableRandom random = new SplittableRandom(5);
+        double[] components = new double[ScoringFormula.COMPONENTS.size()];
+        for (int i = 0; i < 10_000; i++) {
+            double close = random.nextDouble(10, 500);
+            double sma = random.nextInt(10) == 0 ? Double.NaN : random.nextDouble(10, 500);
+            double drawdown = random.nextDouble(-0.6, 0);
+            double zscore = random.nextDouble(-4, 4);
+            int expected = combine(trendScore(close, sma),
+                BuyScoreCalculator.dipScore(drawdown, config.getDrawdownMax()),
+                BuyScoreCalculator.dipScore(zscore, config.getZscoreMax()));
+            assertEquals(expected, calculator.score(close, sma, drawdown, zscore, components));
+        }
+    }
+    
+    /**
+     * The notebook's score, written out by hand as the reference for the default formula.
+     */
+    private static double trendScore(double close, double sma) {
+        return close > sma ? 1.0 : 0.3;
+    }
+    
+    private static int combine(double trendScore, double drawdownScore, double zscoreScore) {
+        double baseScore = 100 * (0.25 * trendScore + 0.45 * drawdownScore + 0.30 * zscoreScore);
+        return (int) Math.max(0, Math.min(100, baseScore));
+    }
+    
+    private static double evaluate(String source) {
+        return ScoringFormula.compile(source).evaluate(1, 0, 0, 0, 1, 1, new double[ScoringFormula.COMPONENTS.size()]);
+    }
+}